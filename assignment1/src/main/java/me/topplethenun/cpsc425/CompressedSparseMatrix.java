@@ -0,0 +1,1178 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class represents an immutable sparse matrix in compressed sparse row (CSR) or compressed sparse column (CSC)
+ * form.
+ * <p>
+ * The stored values live in three primitive arrays. For {@link Orientation#ROW} the values of row {@code i} occupy
+ * {@code values[pointers[i]]} up to {@code values[pointers[i + 1]]}, with their columns in the same positions of
+ * {@code indices} in ascending order; {@link Orientation#COLUMN} swaps the roles of rows and columns. Each stored value
+ * costs 12 bytes and a row (or column) can be scanned sequentially.
+ * <p>
+ * The diagonal is stored as given by its {@link SparseMatrix.DiagonalMode}: a {@link SparseMatrix.DiagonalMode#UNIT}
+ * diagonal is implicitly one and never stored, a {@link SparseMatrix.DiagonalMode#GENERAL} diagonal is stored in the
+ * three arrays with the other values, and a {@link SparseMatrix.DiagonalMode#SEPARATE} diagonal is kept in a dense
+ * array of its own while the three arrays hold only the values off the diagonal.
+ *
+ * @author Richard Harrah
+ * @see SparseMatrix#compress()
+ */
+public final class CompressedSparseMatrix implements Matrix {
+
+    /**
+     * The dimension a CompressedSparseMatrix is compressed along.
+     */
+    public enum Orientation {
+        /**
+         * Compressed sparse row: values are grouped by row and {@code indices} holds columns.
+         */
+        ROW,
+        /**
+         * Compressed sparse column: values are grouped by column and {@code indices} holds rows.
+         */
+        COLUMN
+    }
+
+    final int rows;
+    final int columns;
+    final Orientation orientation;
+    final int[] pointers;
+    final int[] indices;
+    final double[] values;
+    final SparseMatrix.DiagonalMode diagonalMode;
+    final double[] diagonal;
+    private int nonZeros = -1;
+
+    CompressedSparseMatrix(int rows, int columns, Orientation orientation, int[] pointers, int[] indices,
+                           double[] values) {
+        this(rows, columns, orientation, pointers, indices, values, SparseMatrix.DiagonalMode.UNIT, null);
+    }
+
+    CompressedSparseMatrix(int rows, int columns, Orientation orientation, int[] pointers, int[] indices,
+                           double[] values, SparseMatrix.DiagonalMode diagonalMode, double[] diagonal) {
+        this.rows = rows;
+        this.columns = columns;
+        this.orientation = orientation;
+        this.pointers = pointers;
+        this.indices = indices;
+        this.values = values;
+        this.diagonalMode = diagonalMode;
+        this.diagonal = diagonal;
+    }
+
+    /**
+     * Builds a CompressedSparseMatrix from the first {@code count} entries of a coordinate list. The entries may be in
+     * any order but must not repeat a position or hold zero, and must lie off the diagonal unless
+     * {@code diagonalMode} is {@link SparseMatrix.DiagonalMode#GENERAL}. Two stable counting sorts, first by inner and
+     * then by outer index, leave each row (or column) in ascending order in {@code O(count + rows + columns)} time.
+     *
+     * @param rows         number of rows
+     * @param columns      number of columns
+     * @param orientation  orientation of the result
+     * @param entryRows    row of each entry
+     * @param entryColumns column of each entry
+     * @param entryValues  value of each entry
+     * @param count        number of entries
+     * @param diagonalMode diagonal mode of the result
+     * @param diagonal     the separate diagonal, or null unless {@code diagonalMode} is
+     *                     {@link SparseMatrix.DiagonalMode#SEPARATE}
+     * @return new CompressedSparseMatrix
+     */
+    static CompressedSparseMatrix fromCoordinates(int rows, int columns, Orientation orientation, int[] entryRows,
+                                                  int[] entryColumns, double[] entryValues, int count,
+                                                  SparseMatrix.DiagonalMode diagonalMode, double[] diagonal) {
+        int[] outer = orientation == Orientation.ROW ? entryRows : entryColumns;
+        int[] inner = orientation == Orientation.ROW ? entryColumns : entryRows;
+        int outerSize = orientation == Orientation.ROW ? rows : columns;
+        int innerSize = orientation == Orientation.ROW ? columns : rows;
+
+        int[] byInner = new int[count];
+        int[] innerStarts = new int[innerSize + 1];
+        for (int e = 0; e < count; e++) {
+            innerStarts[inner[e] + 1]++;
+        }
+        for (int k = 0; k < innerSize; k++) {
+            innerStarts[k + 1] += innerStarts[k];
+        }
+        for (int e = 0; e < count; e++) {
+            byInner[innerStarts[inner[e]]++] = e;
+        }
+
+        int[] pointers = new int[outerSize + 1];
+        for (int e = 0; e < count; e++) {
+            pointers[outer[e] + 1]++;
+        }
+        for (int k = 0; k < outerSize; k++) {
+            pointers[k + 1] += pointers[k];
+        }
+        int[] next = new int[outerSize];
+        System.arraycopy(pointers, 0, next, 0, outerSize);
+        int[] indices = new int[count];
+        double[] values = new double[count];
+        for (int s = 0; s < count; s++) {
+            int e = byInner[s];
+            int position = next[outer[e]]++;
+            indices[position] = inner[e];
+            values[position] = entryValues[e];
+        }
+        return new CompressedSparseMatrix(rows, columns, orientation, pointers, indices, values, diagonalMode,
+                diagonal);
+    }
+
+    /**
+     * Returns the number of rows in this CompressedSparseMatrix.
+     *
+     * @return number of rows
+     */
+    public int numOfRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns in this CompressedSparseMatrix.
+     *
+     * @return number of columns
+     */
+    public int numOfColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the dimension this CompressedSparseMatrix is compressed along.
+     *
+     * @return orientation of this matrix
+     */
+    public Orientation getOrientation() {
+        return orientation;
+    }
+
+    /**
+     * Returns how the diagonal of this CompressedSparseMatrix is stored.
+     *
+     * @return diagonal mode of this matrix
+     */
+    public SparseMatrix.DiagonalMode getDiagonalMode() {
+        return diagonalMode;
+    }
+
+    /**
+     * Returns the number of non-zero values stored in this matrix, which is the number of values visited by
+     * {@link #forEachNonZero(IntIntDoubleConsumer)}. The implicit diagonal of a {@link SparseMatrix.DiagonalMode#UNIT}
+     * matrix is not counted.
+     *
+     * @return number of stored values
+     */
+    public int numOfNonZeros() {
+        if (diagonal == null) {
+            return values.length;
+        }
+        int count = nonZeros;
+        if (count < 0) {
+            count = values.length;
+            for (double value : diagonal) {
+                if (value != 0D) {
+                    count++;
+                }
+            }
+            nonZeros = count;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of non-zero values stored in the given row, counted as by {@link #numOfNonZeros()}. This
+     * takes constant time for a compressed sparse row matrix; a compressed sparse column matrix has to scan its
+     * indices, so use {@link #numOfNonZerosPerRow()} to count every row.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code row} is less than 0 or equal to or greater than
+     * {@link #numOfRows()}.
+     *
+     * @param row row to count
+     * @return number of stored values in the row
+     */
+    public int numOfNonZeros(int row) {
+        if (row < 0 || row >= rows) {
+            throw new IllegalArgumentException("row must be greater than -1 and less than number of rows");
+        }
+        if (orientation == Orientation.COLUMN) {
+            return numOfNonZerosPerRow()[row];
+        }
+        int count = pointers[row + 1] - pointers[row];
+        if (diagonal != null && row < diagonal.length && diagonal[row] != 0D) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns a new array holding the number of non-zero values stored in each row, counted as by
+     * {@link #numOfNonZeros()}.
+     *
+     * @return number of stored values in each row
+     */
+    public int[] numOfNonZerosPerRow() {
+        int[] counts = new int[rows];
+        if (orientation == Orientation.ROW) {
+            for (int i = 0; i < rows; i++) {
+                counts[i] = pointers[i + 1] - pointers[i];
+            }
+        } else {
+            for (int index : indices) {
+                counts[index]++;
+            }
+        }
+        if (diagonal != null) {
+            for (int k = 0; k < diagonal.length; k++) {
+                if (diagonal[k] != 0D) {
+                    counts[k]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Passes every non-zero value stored in this matrix to {@code action} along with its row and column, one row (or
+     * column) at a time in ascending order of column (or row). Values of a separate diagonal are passed in their
+     * place among the others; the implicit diagonal of a {@link SparseMatrix.DiagonalMode#UNIT} matrix is not. Nothing
+     * is allocated, so only the stored values are touched.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code action} is null.
+     *
+     * @param action operation to perform on each value
+     */
+    public void forEachNonZero(IntIntDoubleConsumer action) {
+        if (action == null) {
+            throw new IllegalArgumentException("action must not be null");
+        }
+        boolean byRow = orientation == Orientation.ROW;
+        for (int outer = 0; outer + 1 < pointers.length; outer++) {
+            double diagonalValue = diagonal != null && outer < diagonal.length ? diagonal[outer] : 0D;
+            boolean pending = diagonalValue != 0D;
+            for (int p = pointers[outer]; p < pointers[outer + 1]; p++) {
+                int inner = indices[p];
+                if (pending && inner > outer) {
+                    action.accept(outer, outer, diagonalValue);
+                    pending = false;
+                }
+                if (byRow) {
+                    action.accept(outer, inner, values[p]);
+                } else {
+                    action.accept(inner, outer, values[p]);
+                }
+            }
+            if (pending) {
+                action.accept(outer, outer, diagonalValue);
+            }
+        }
+    }
+
+    /**
+     * Returns a new {@link RowCursor} over the rows of this matrix. The cursor can be moved between rows any number of
+     * times without allocating. A compressed sparse column matrix is converted to rows first.
+     *
+     * @return new RowCursor
+     */
+    public RowCursor rowCursor() {
+        return new RowCursor(toOrientation(Orientation.ROW));
+    }
+
+    /**
+     * Returns a new array holding the diagonal of this matrix, from the top-left corner to the last row or column,
+     * whichever comes first.
+     *
+     * @return the diagonal
+     */
+    public double[] getDiagonal() {
+        double[] retDiagonal = new double[Math.min(rows, columns)];
+        for (int k = 0; k < retDiagonal.length; k++) {
+            if (diagonalMode == SparseMatrix.DiagonalMode.GENERAL) {
+                int position = find(k, k);
+                retDiagonal[k] = position < 0 ? 0D : values[position];
+            } else {
+                retDiagonal[k] = implicitDiagonal(k);
+            }
+        }
+        return retDiagonal;
+    }
+
+    /**
+     * Returns the value at {@code (k, k)} that is not stored in the three arrays: one for a unit diagonal, the
+     * separate value for a separate diagonal, and zero for a general diagonal or a position past the diagonal.
+     *
+     * @param k row and column of the diagonal value
+     * @return the implicit diagonal value
+     */
+    double implicitDiagonal(int k) {
+        if (diagonalMode == SparseMatrix.DiagonalMode.UNIT) {
+            return k < rows && k < columns ? 1D : 0D;
+        }
+        if (diagonalMode == SparseMatrix.DiagonalMode.SEPARATE) {
+            return k < diagonal.length ? diagonal[k] : 0D;
+        }
+        return 0D;
+    }
+
+    /**
+     * Gets and returns the value at the given row and column, found by a binary search of its row (or column).
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code row} is less than 0 or equal to or greater than
+     * {@link #numOfRows()} or if {@code column} is less than 0 or equal to or greater than {@link #numOfColumns()}.
+     *
+     * @param row    row to query
+     * @param column column to query
+     * @return value at the given row and column
+     */
+    public double get(int row, int column) {
+        if (row < 0 || row >= rows) {
+            throw new IllegalArgumentException("row must be greater than -1 and less than number of rows");
+        }
+        if (column < 0 || column >= columns) {
+            throw new IllegalArgumentException("column must be greater than -1 and less than number of columns");
+        }
+        if (row == column && diagonalMode != SparseMatrix.DiagonalMode.GENERAL) {
+            return implicitDiagonal(row);
+        }
+        int outer = orientation == Orientation.ROW ? row : column;
+        int inner = orientation == Orientation.ROW ? column : row;
+        int position = find(outer, inner);
+        return position < 0 ? 0D : values[position];
+    }
+
+    /**
+     * Returns the position in {@link #values} of the value stored at {@code inner} within {@code outer}, or a negative
+     * number if none is stored.
+     *
+     * @param outer row of a CSR matrix or column of a CSC matrix
+     * @param inner column of a CSR matrix or row of a CSC matrix
+     * @return position of the value, or a negative number
+     */
+    int find(int outer, int inner) {
+        int low = pointers[outer];
+        int high = pointers[outer + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int index = indices[middle];
+            if (index < inner) {
+                low = middle + 1;
+            } else if (index > inner) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds two {@code CompressedSparseMatrix}s together by merging the sorted rows (or columns) of both, so only stored
+     * values are visited. Values that cancel to zero are not stored. Returns a new CompressedSparseMatrix with the
+     * orientation of this matrix. The result keeps the diagonal mode of the matrices if they share one, with a unit
+     * diagonal staying one; otherwise both diagonals are added into a {@link SparseMatrix.DiagonalMode#GENERAL}
+     * result.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if the matrices are not compatible.
+     *
+     * @param matrix CompressedSparseMatrix to add to this matrix
+     * @return new CompressedSparseMatrix with the results
+     */
+    public CompressedSparseMatrix add(CompressedSparseMatrix matrix) {
+        if (matrix == null) {
+            throw new IllegalArgumentException("matrix must not be null");
+        }
+        if (matrix.rows != rows || matrix.columns != columns) {
+            throw new IllegalArgumentException("matrix must have same number of rows AND columns");
+        }
+        CompressedSparseMatrix a = this;
+        CompressedSparseMatrix b = matrix.toOrientation(orientation);
+        if (a.diagonalMode != b.diagonalMode) {
+            a = a.toDiagonalMode(SparseMatrix.DiagonalMode.GENERAL);
+            b = b.toDiagonalMode(SparseMatrix.DiagonalMode.GENERAL);
+        }
+        int[] retPointers = new int[pointers.length];
+        int[] retIndices = new int[a.values.length + b.values.length];
+        double[] retValues = new double[retIndices.length];
+        int size = 0;
+        for (int outer = 0; outer + 1 < pointers.length; outer++) {
+            int p = a.pointers[outer];
+            int pEnd = a.pointers[outer + 1];
+            int q = b.pointers[outer];
+            int qEnd = b.pointers[outer + 1];
+            while (p < pEnd || q < qEnd) {
+                int index;
+                double value;
+                if (q == qEnd || (p < pEnd && a.indices[p] < b.indices[q])) {
+                    index = a.indices[p];
+                    value = a.values[p++];
+                } else if (p == pEnd || b.indices[q] < a.indices[p]) {
+                    index = b.indices[q];
+                    value = b.values[q++];
+                } else {
+                    index = a.indices[p];
+                    value = a.values[p++] + b.values[q++];
+                }
+                if (value != 0D) {
+                    retIndices[size] = index;
+                    retValues[size] = value;
+                    size++;
+                }
+            }
+            retPointers[outer + 1] = size;
+        }
+        double[] retDiagonal = null;
+        if (a.diagonal != null) {
+            retDiagonal = new double[a.diagonal.length];
+            for (int k = 0; k < retDiagonal.length; k++) {
+                retDiagonal[k] = a.diagonal[k] + b.diagonal[k];
+            }
+        }
+        return new CompressedSparseMatrix(rows, columns, orientation, retPointers, Arrays.copyOf(retIndices, size),
+                Arrays.copyOf(retValues, size), a.diagonalMode, retDiagonal);
+    }
+
+    /**
+     * Adds {@code matrix} to this CompressedSparseMatrix. Another sparse matrix is added with
+     * {@link #add(CompressedSparseMatrix)} and gives a new CompressedSparseMatrix; a dense matrix is copied and only
+     * the stored values of this matrix are added on top, giving a new {@link DenseMatrix}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if the matrices are not compatible.
+     *
+     * @param matrix Matrix to add to this matrix
+     * @return new Matrix with the results
+     */
+    @Override
+    public Matrix add(Matrix matrix) {
+        CompressedSparseMatrix sparse = SparseKernels.asCompressed(matrix);
+        if (sparse != null || matrix == null) {
+            return add(sparse);
+        }
+        DenseMatrix dense = matrix.toDense();
+        if (dense.numOfRows() != rows || dense.numOfColumns() != columns) {
+            throw new IllegalArgumentException("matrix must have same number of rows AND columns");
+        }
+        return SparseKernels.addDense(this, SparseKernels.onHeap(dense));
+    }
+
+    /**
+     * Multiplies two {@code CompressedSparseMatrix}s together with Gustavson's row-by-row algorithm. Each row of the
+     * result is gathered in a dense accumulator from the rows of {@code matrix} selected by the stored values of the
+     * same row of this matrix, so the cost grows with the number of stored values and multiplications rather than
+     * with the dimensions. Diagonals that are not stored in the arrays take part in the product as well, and values
+     * that cancel to zero are not stored. Returns a new compressed sparse row matrix. The result keeps the diagonal
+     * mode of the matrices if they share one, so the product of two matrices with a unit diagonal again has a unit
+     * diagonal; otherwise it has a {@link SparseMatrix.DiagonalMode#GENERAL} diagonal.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if the matrices are not compatible.
+     *
+     * @param matrix CompressedSparseMatrix to multiply with
+     * @return new CompressedSparseMatrix with the results
+     */
+    public CompressedSparseMatrix multiply(CompressedSparseMatrix matrix) {
+        if (matrix == null) {
+            throw new IllegalArgumentException("matrix must not be null");
+        }
+        if (rows != matrix.columns && columns != matrix.rows) {
+            throw new IllegalArgumentException("matrix dimensions are not equal");
+        }
+        if (columns > matrix.rows) {
+            throw new IllegalArgumentException("matrix must have at least as many rows as this matrix has columns");
+        }
+        CompressedSparseMatrix a = toOrientation(Orientation.ROW);
+        CompressedSparseMatrix b = matrix.toOrientation(Orientation.ROW);
+        int retColumns = matrix.columns;
+        SparseMatrix.DiagonalMode retMode = diagonalMode == matrix.diagonalMode ? diagonalMode :
+                SparseMatrix.DiagonalMode.GENERAL;
+        double[] retDiagonal = retMode == SparseMatrix.DiagonalMode.SEPARATE ? new double[Math.min(rows, retColumns)] :
+                null;
+        double[] accumulator = new double[retColumns];
+        int[] marker = new int[retColumns];
+        Arrays.fill(marker, -1);
+        int[] touched = new int[retColumns];
+
+        int[] retPointers = new int[rows + 1];
+        int[] retIndices = new int[Math.max(16, a.values.length + b.values.length)];
+        double[] retValues = new double[retIndices.length];
+        int size = 0;
+        for (int i = 0; i < rows; i++) {
+            int count = 0;
+            double ownDiagonal = a.implicitDiagonal(i);
+            if (ownDiagonal != 0D) {
+                count = scatter(b, i, ownDiagonal, i, accumulator, marker, touched, count);
+            }
+            for (int p = a.pointers[i]; p < a.pointers[i + 1]; p++) {
+                count = scatter(b, a.indices[p], a.values[p], i, accumulator, marker, touched, count);
+            }
+            Arrays.sort(touched, 0, count);
+            if (size + count > retIndices.length) {
+                int capacity = Math.max(size + count, retIndices.length + (retIndices.length >> 1));
+                retIndices = Arrays.copyOf(retIndices, capacity);
+                retValues = Arrays.copyOf(retValues, capacity);
+            }
+            for (int t = 0; t < count; t++) {
+                int j = touched[t];
+                double value = accumulator[j];
+                if (j == i && retMode != SparseMatrix.DiagonalMode.GENERAL) {
+                    if (retDiagonal != null) {
+                        retDiagonal[i] = value;
+                    }
+                } else if (value != 0D) {
+                    retIndices[size] = j;
+                    retValues[size] = value;
+                    size++;
+                }
+            }
+            retPointers[i + 1] = size;
+        }
+        return new CompressedSparseMatrix(rows, retColumns, Orientation.ROW, retPointers,
+                Arrays.copyOf(retIndices, size), Arrays.copyOf(retValues, size), retMode, retDiagonal);
+    }
+
+    /**
+     * Adds {@code scale} times row {@code k} of the CSR matrix {@code b}, including any diagonal value not stored in
+     * its arrays, into the accumulator for result row {@code row}, recording newly touched columns.
+     *
+     * @return number of touched columns
+     */
+    private static int scatter(CompressedSparseMatrix b, int k, double scale, int row, double[] accumulator,
+                               int[] marker, int[] touched, int count) {
+        for (int p = b.pointers[k]; p < b.pointers[k + 1]; p++) {
+            int j = b.indices[p];
+            if (marker[j] != row) {
+                marker[j] = row;
+                accumulator[j] = 0;
+                touched[count++] = j;
+            }
+            accumulator[j] += scale * b.values[p];
+        }
+        double bDiagonal = b.implicitDiagonal(k);
+        if (bDiagonal != 0D) {
+            if (marker[k] != row) {
+                marker[k] = row;
+                accumulator[k] = 0;
+                touched[count++] = k;
+            }
+            accumulator[k] += scale * bDiagonal;
+        }
+        return count;
+    }
+
+    /**
+     * Multiplies this CompressedSparseMatrix by {@code matrix}. Another sparse matrix is multiplied with
+     * {@link #multiply(CompressedSparseMatrix)} and gives a new CompressedSparseMatrix; a dense matrix is multiplied
+     * by adding a scaled row of it into the result for every stored value of this matrix, giving a new
+     * {@link DenseMatrix}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if the matrices are not compatible.
+     *
+     * @param matrix Matrix to multiply with
+     * @return new Matrix with the results
+     */
+    @Override
+    public Matrix multiply(Matrix matrix) {
+        CompressedSparseMatrix sparse = SparseKernels.asCompressed(matrix);
+        if (sparse != null || matrix == null) {
+            return multiply(sparse);
+        }
+        DenseMatrix dense = matrix.toDense();
+        if (columns != dense.numOfRows()) {
+            throw new IllegalArgumentException("matrix dimensions are not equal");
+        }
+        return SparseKernels.multiplyDense(toOrientation(Orientation.ROW), SparseKernels.onHeap(dense));
+    }
+
+    /**
+     * Multiplies this CompressedSparseMatrix by the vector {@code x}, storing the results in {@code y}. Only the stored
+     * values and the diagonal are visited.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code x} or {@code y} is null, if {@code x} is not as long as
+     * this matrix has columns, if {@code y} is not as long as this matrix has rows, or if {@code x} and {@code y} are
+     * the same array.
+     *
+     * @param x vector to multiply
+     * @param y vector to store the results in
+     * @return {@code y}
+     */
+    public double[] multiply(double[] x, double[] y) {
+        checkVectors(x, y);
+        if (orientation == Orientation.ROW) {
+            SparseKernels.spmvRows(this, x, y, 0, rows);
+        } else {
+            SparseKernels.spmvColumns(this, x, y);
+        }
+        return y;
+    }
+
+    /**
+     * Multiplies this CompressedSparseMatrix by the vector {@code x} across the given {@link ForkJoinPool}, storing
+     * the results in {@code y}. Rows are divided between tasks by their number of stored values rather than by
+     * count, so matrices with a few very long rows still spread evenly. Small matrices are computed on the calling
+     * thread. A compressed sparse column matrix is converted to rows first; convert it once with
+     * {@link #toOrientation(Orientation)} when multiplying it repeatedly.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code pool} is null or if the vectors would be rejected by
+     * {@link #multiply(double[], double[])}.
+     *
+     * @param x    vector to multiply
+     * @param y    vector to store the results in
+     * @param pool pool to run the multiplication in
+     * @return {@code y}
+     */
+    public double[] multiplyParallel(double[] x, double[] y, ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        checkVectors(x, y);
+        CompressedSparseMatrix a = toOrientation(Orientation.ROW);
+        SparseKernels.SpmvTask task = new SparseKernels.SpmvTask(a, x, y, 0, rows);
+        if (a.values.length + rows <= SparseKernels.SPMV_SEQUENTIAL_CUTOFF) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+        return y;
+    }
+
+    /**
+     * Performs one Jacobi sweep for the system {@code A * x = b}, where {@code A} is this CompressedSparseMatrix,
+     * storing {@code next[i] = (b[i] - sum of A[i][j] * x[j] for j != i) / A[i][i]} for every row. Returns
+     * {@code next}. Each row is scanned once, so a sweep costs one pass over the stored values; the diagonal is read
+     * from the separate array of a {@link SparseMatrix.DiagonalMode#SEPARATE} matrix rather than searched for. A
+     * compressed sparse column matrix is converted to rows first; convert it once with
+     * {@link #toOrientation(Orientation)} when sweeping repeatedly.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if this matrix is not square, if any vector is null or not as long
+     * as this matrix has rows, or if {@code x} and {@code next} are the same array. Throws an
+     * {@link ArithmeticException} if a value on the diagonal is zero.
+     *
+     * @param b    right-hand side
+     * @param x    current approximation
+     * @param next vector to store the next approximation in
+     * @return {@code next}
+     */
+    public double[] jacobiSweep(double[] b, double[] x, double[] next) {
+        checkSweep(b, x);
+        if (next == null) {
+            throw new IllegalArgumentException("vector must not be null");
+        }
+        if (next.length != rows) {
+            throw new IllegalArgumentException("next must have as many values as the matrix has rows");
+        }
+        if (x == next) {
+            throw new IllegalArgumentException("x and next must not be the same array");
+        }
+        SparseKernels.jacobiRows(toOrientation(Orientation.ROW), b, x, next);
+        return next;
+    }
+
+    /**
+     * Performs one forward Gauss-Seidel sweep for the system {@code A * x = b}, where {@code A} is this
+     * CompressedSparseMatrix, replacing {@code x[i]} with {@code (b[i] - sum of A[i][j] * x[j] for j != i) / A[i][i]}
+     * row by row, so each row already uses the values updated before it. Returns {@code x}. A compressed sparse column
+     * matrix is converted to rows first; convert it once with {@link #toOrientation(Orientation)} when sweeping
+     * repeatedly.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if this matrix is not square or if {@code b} or {@code x} is null or
+     * not as long as this matrix has rows. Throws an {@link ArithmeticException} if a value on the diagonal is zero.
+     *
+     * @param b right-hand side
+     * @param x current approximation, replaced by the next one
+     * @return {@code x}
+     */
+    public double[] gaussSeidelSweep(double[] b, double[] x) {
+        checkSweep(b, x);
+        SparseKernels.gaussSeidelRows(toOrientation(Orientation.ROW), b, x);
+        return x;
+    }
+
+    private void checkSweep(double[] b, double[] x) {
+        if (rows != columns) {
+            throw new IllegalArgumentException("matrix must be square");
+        }
+        if (b == null || x == null) {
+            throw new IllegalArgumentException("vector must not be null");
+        }
+        if (b.length != rows) {
+            throw new IllegalArgumentException("b must have as many values as the matrix has rows");
+        }
+        if (x.length != columns) {
+            throw new IllegalArgumentException("x must have as many values as the matrix has columns");
+        }
+    }
+
+    private void checkVectors(double[] x, double[] y) {
+        if (x == null || y == null) {
+            throw new IllegalArgumentException("vector must not be null");
+        }
+        if (x.length != columns) {
+            throw new IllegalArgumentException("x must have as many values as the matrix has columns");
+        }
+        if (y.length != rows) {
+            throw new IllegalArgumentException("y must have as many values as the matrix has rows");
+        }
+        if (x == y) {
+            throw new IllegalArgumentException("x and y must not be the same array");
+        }
+    }
+
+    /**
+     * Returns the transpose of this matrix without copying: the compressed sparse row form of a matrix is the
+     * compressed sparse column form of its transpose, so the result shares the arrays of this matrix with the
+     * orientation and dimensions swapped.
+     *
+     * @return the transpose of this matrix
+     */
+    public CompressedSparseMatrix transpose() {
+        Orientation swapped = orientation == Orientation.ROW ? Orientation.COLUMN : Orientation.ROW;
+        return new CompressedSparseMatrix(columns, rows, swapped, pointers, indices, values, diagonalMode, diagonal);
+    }
+
+    /**
+     * Returns this matrix compressed along the given dimension. Returns this matrix if it already has that
+     * orientation; otherwise the conversion takes {@code O(nonzeros + rows + columns)} time.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code orientation} is null.
+     *
+     * @param orientation orientation of the result
+     * @return CompressedSparseMatrix with the given orientation
+     */
+    public CompressedSparseMatrix toOrientation(Orientation orientation) {
+        if (orientation == null) {
+            throw new IllegalArgumentException("orientation must not be null");
+        }
+        if (orientation == this.orientation) {
+            return this;
+        }
+        int innerSize = this.orientation == Orientation.ROW ? columns : rows;
+        int[] newPointers = new int[innerSize + 1];
+        for (int index : indices) {
+            newPointers[index + 1]++;
+        }
+        for (int k = 0; k < innerSize; k++) {
+            newPointers[k + 1] += newPointers[k];
+        }
+        int[] next = new int[innerSize];
+        System.arraycopy(newPointers, 0, next, 0, innerSize);
+        int[] newIndices = new int[indices.length];
+        double[] newValues = new double[values.length];
+        for (int outer = 0; outer + 1 < pointers.length; outer++) {
+            for (int p = pointers[outer]; p < pointers[outer + 1]; p++) {
+                int position = next[indices[p]]++;
+                newIndices[position] = outer;
+                newValues[position] = values[p];
+            }
+        }
+        return new CompressedSparseMatrix(rows, columns, orientation, newPointers, newIndices, newValues,
+                diagonalMode, diagonal);
+    }
+
+    /**
+     * Returns this matrix with its diagonal stored as given by {@code diagonalMode}. Returns this matrix if it already
+     * has that mode. Moving a diagonal into or out of the three arrays takes {@code O(nonzeros + rows)} time; the
+     * arrays are shared when only an implicit diagonal changes. Converting to
+     * {@link SparseMatrix.DiagonalMode#UNIT} discards the diagonal, which then reads as one.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code diagonalMode} is null.
+     *
+     * @param diagonalMode diagonal mode of the result
+     * @return CompressedSparseMatrix with the given diagonal mode
+     */
+    public CompressedSparseMatrix toDiagonalMode(SparseMatrix.DiagonalMode diagonalMode) {
+        if (diagonalMode == null) {
+            throw new IllegalArgumentException("diagonal mode must not be null");
+        }
+        if (diagonalMode == this.diagonalMode) {
+            return this;
+        }
+        if (this.diagonalMode != SparseMatrix.DiagonalMode.GENERAL &&
+                diagonalMode != SparseMatrix.DiagonalMode.GENERAL) {
+            double[] newDiagonal = diagonalMode == SparseMatrix.DiagonalMode.SEPARATE ? getDiagonal() : null;
+            return new CompressedSparseMatrix(rows, columns, orientation, pointers, indices, values, diagonalMode,
+                    newDiagonal);
+        }
+        int[] newPointers = new int[pointers.length];
+        int size = 0;
+        if (diagonalMode == SparseMatrix.DiagonalMode.GENERAL) {
+            int[] newIndices = new int[values.length + Math.min(rows, columns)];
+            double[] newValues = new double[newIndices.length];
+            for (int outer = 0; outer + 1 < pointers.length; outer++) {
+                double value = implicitDiagonal(outer);
+                boolean pending = value != 0D;
+                for (int p = pointers[outer]; p < pointers[outer + 1]; p++) {
+                    if (pending && indices[p] > outer) {
+                        newIndices[size] = outer;
+                        newValues[size++] = value;
+                        pending = false;
+                    }
+                    newIndices[size] = indices[p];
+                    newValues[size++] = values[p];
+                }
+                if (pending) {
+                    newIndices[size] = outer;
+                    newValues[size++] = value;
+                }
+                newPointers[outer + 1] = size;
+            }
+            return new CompressedSparseMatrix(rows, columns, orientation, newPointers, Arrays.copyOf(newIndices, size),
+                    Arrays.copyOf(newValues, size), diagonalMode, null);
+        }
+        double[] newDiagonal = diagonalMode == SparseMatrix.DiagonalMode.SEPARATE ?
+                new double[Math.min(rows, columns)] : null;
+        int[] newIndices = new int[values.length];
+        double[] newValues = new double[values.length];
+        for (int outer = 0; outer + 1 < pointers.length; outer++) {
+            for (int p = pointers[outer]; p < pointers[outer + 1]; p++) {
+                if (indices[p] == outer) {
+                    if (newDiagonal != null) {
+                        newDiagonal[outer] = values[p];
+                    }
+                } else {
+                    newIndices[size] = indices[p];
+                    newValues[size++] = values[p];
+                }
+            }
+            newPointers[outer + 1] = size;
+        }
+        return new CompressedSparseMatrix(rows, columns, orientation, newPointers, Arrays.copyOf(newIndices, size),
+                Arrays.copyOf(newValues, size), diagonalMode, newDiagonal);
+    }
+
+    /**
+     * Writes this CompressedSparseMatrix to {@code path} in a binary format, replacing any existing file. The file
+     * holds a small header with the dimensions, orientation and a CRC-32 checksum followed by the three arrays as raw
+     * little-endian values. Such a file can be loaded with {@link #read(Path)} or mapped with
+     * {@link MappedSparseMatrix#open(Path)}. Use {@link MatrixMarket} to exchange matrices with other tools.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code path} is null.
+     *
+     * @param path file to write to
+     * @throws IOException if the file could not be written
+     */
+    public void write(Path path) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("path must not be null");
+        }
+        SparseMatrixFile.save(this, path);
+    }
+
+    /**
+     * Reads a CompressedSparseMatrix written by {@link #write(Path)} into a new matrix on the heap.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code path} is null.
+     *
+     * @param path file to read
+     * @return new CompressedSparseMatrix holding the file's values
+     * @throws IOException if the file could not be read, is not a sparse matrix file or fails its checksum
+     */
+    public static CompressedSparseMatrix read(Path path) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("path must not be null");
+        }
+        return SparseMatrixFile.load(path);
+    }
+
+    /**
+     * Copies this matrix into a new row-major {@link DenseMatrix}, writing the stored values and the diagonal straight
+     * into its array.
+     *
+     * @return new DenseMatrix with the same values
+     */
+    @Override
+    public DenseMatrix toDense() {
+        DenseMatrix retMatrix = new DenseMatrix(rows, columns);
+        SparseKernels.scatter(this, retMatrix.getElements());
+        return retMatrix;
+    }
+
+    /**
+     * Compresses the values of {@code matrix} whose magnitude is greater than {@code threshold} into a new compressed
+     * sparse row matrix with a {@link SparseMatrix.DiagonalMode#GENERAL} diagonal. A threshold of zero keeps every
+     * non-zero value.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if {@code threshold} is negative.
+     *
+     * @param matrix    DenseMatrix to compress
+     * @param threshold largest magnitude that is dropped
+     * @return new CompressedSparseMatrix with the kept values
+     */
+    public static CompressedSparseMatrix fromDense(DenseMatrix matrix, double threshold) {
+        return fromDense(matrix, threshold, SparseMatrix.DiagonalMode.GENERAL);
+    }
+
+    /**
+     * Compresses the values of {@code matrix} whose magnitude is greater than {@code threshold} into a new compressed
+     * sparse row matrix with the given diagonal mode. The matrix is read twice, once to count the kept values of each
+     * row and once to fill the arrays, so they are allocated at their final size. A
+     * {@link SparseMatrix.DiagonalMode#UNIT} result drops the diagonal of {@code matrix}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} or {@code diagonalMode} is null or if
+     * {@code threshold} is negative.
+     *
+     * @param matrix       DenseMatrix to compress
+     * @param threshold    largest magnitude that is dropped
+     * @param diagonalMode how the diagonal of the result is stored
+     * @return new CompressedSparseMatrix with the kept values
+     */
+    public static CompressedSparseMatrix fromDense(DenseMatrix matrix, double threshold,
+                                                   SparseMatrix.DiagonalMode diagonalMode) {
+        if (matrix == null) {
+            throw new IllegalArgumentException("matrix must not be null");
+        }
+        if (diagonalMode == null) {
+            throw new IllegalArgumentException("diagonal mode must not be null");
+        }
+        if (!(threshold >= 0)) {
+            throw new IllegalArgumentException("threshold must not be negative");
+        }
+        DenseMatrix dense = SparseKernels.onHeap(matrix);
+        double[] elements = dense.getElements();
+        int rows = dense.numOfRows();
+        int columns = dense.numOfColumns();
+        int columnStride = dense.getColumnStride();
+        boolean storeDiagonal = diagonalMode == SparseMatrix.DiagonalMode.GENERAL;
+        int[] pointers = new int[rows + 1];
+        for (int i = 0; i < rows; i++) {
+            int start = dense.getOffset() + i * dense.getRowStride();
+            int count = 0;
+            for (int j = 0; j < columns; j++) {
+                if (!(Math.abs(elements[start + j * columnStride]) <= threshold) && (j != i || storeDiagonal)) {
+                    count++;
+                }
+            }
+            pointers[i + 1] = pointers[i] + count;
+        }
+        int[] indices = new int[pointers[rows]];
+        double[] values = new double[pointers[rows]];
+        double[] diagonal = diagonalMode == SparseMatrix.DiagonalMode.SEPARATE
+                ? new double[Math.min(rows, columns)] : null;
+        int position = 0;
+        for (int i = 0; i < rows; i++) {
+            int start = dense.getOffset() + i * dense.getRowStride();
+            for (int j = 0; j < columns; j++) {
+                double value = elements[start + j * columnStride];
+                if (Math.abs(value) <= threshold) {
+                    continue;
+                }
+                if (j != i || storeDiagonal) {
+                    indices[position] = j;
+                    values[position++] = value;
+                } else if (diagonal != null) {
+                    diagonal[i] = value;
+                }
+            }
+        }
+        return new CompressedSparseMatrix(rows, columns, Orientation.ROW, pointers, indices, values, diagonalMode,
+                diagonal);
+    }
+
+    /**
+     * Copies this matrix into a new mutable {@link SparseMatrix} with the same diagonal mode.
+     *
+     * @return new SparseMatrix with the same values
+     */
+    public SparseMatrix toSparseMatrix() {
+        SparseMatrix retMatrix = new SparseMatrix(rows, columns, diagonalMode);
+        if (diagonal != null) {
+            for (int k = 0; k < diagonal.length; k++) {
+                retMatrix.set(k, k, diagonal[k]);
+            }
+        }
+        for (int outer = 0; outer + 1 < pointers.length; outer++) {
+            for (int p = pointers[outer]; p < pointers[outer + 1]; p++) {
+                if (orientation == Orientation.ROW) {
+                    retMatrix.set(outer, indices[p], values[p]);
+                } else {
+                    retMatrix.set(indices[p], outer, values[p]);
+                }
+            }
+        }
+        return retMatrix;
+    }
+
+    /**
+     * A reusable cursor over the non-zero values of one row at a time, visiting the same values as
+     * {@link #forEachNonZero(IntIntDoubleConsumer)} in ascending order of column. Move it to a row with
+     * {@link #moveTo(int)} and then call {@link #next()} until it returns false, reading each value through
+     * {@link #column()} and {@link #value()}.
+     * <pre>
+     * CompressedSparseMatrix.RowCursor cursor = matrix.rowCursor();
+     * for (int i = 0; i &lt; matrix.numOfRows(); i++) {
+     *     cursor.moveTo(i);
+     *     while (cursor.next()) {
+     *         use(cursor.row(), cursor.column(), cursor.value());
+     *     }
+     * }
+     * </pre>
+     * A cursor is not thread-safe, but any number of cursors may read the same matrix at once.
+     */
+    public static final class RowCursor {
+        private final CompressedSparseMatrix matrix;
+        private int row = -1;
+        private int position;
+        private int end;
+        private boolean diagonalPending;
+        private int column = -1;
+        private double value;
+
+        RowCursor(CompressedSparseMatrix matrix) {
+            this.matrix = matrix;
+        }
+
+        /**
+         * Moves this cursor to just before the first value of {@code row}. Returns this cursor.
+         * <p>
+         * Throws an {@link IllegalArgumentException} if {@code row} is less than 0 or equal to or greater than the
+         * number of rows.
+         *
+         * @param row row to move to
+         * @return this cursor
+         */
+        public RowCursor moveTo(int row) {
+            if (row < 0 || row >= matrix.rows) {
+                throw new IllegalArgumentException("row must be greater than -1 and less than number of rows");
+            }
+            this.row = row;
+            this.position = matrix.pointers[row];
+            this.end = matrix.pointers[row + 1];
+            this.diagonalPending = matrix.diagonal != null && row < matrix.diagonal.length &&
+                    matrix.diagonal[row] != 0D;
+            this.column = -1;
+            this.value = 0D;
+            return this;
+        }
+
+        /**
+         * Advances this cursor to the next value of its row, returning false once the row has no more values.
+         *
+         * @return whether the cursor is on a value
+         */
+        public boolean next() {
+            if (diagonalPending && (position == end || matrix.indices[position] > row)) {
+                diagonalPending = false;
+                column = row;
+                value = matrix.diagonal[row];
+                return true;
+            }
+            if (position == end) {
+                return false;
+            }
+            column = matrix.indices[position];
+            value = matrix.values[position];
+            position++;
+            return true;
+        }
+
+        /**
+         * Returns the row this cursor is on, or -1 before it is first moved.
+         *
+         * @return current row
+         */
+        public int row() {
+            return row;
+        }
+
+        /**
+         * Returns the column of the current value, or -1 before {@link #next()} is first called on the row.
+         *
+         * @return column of the current value
+         */
+        public int column() {
+            return column;
+        }
+
+        /**
+         * Returns the current value.
+         *
+         * @return current value
+         */
+        public double value() {
+            return value;
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (diagonalMode == SparseMatrix.DiagonalMode.SEPARATE) {
+            return toDiagonalMode(SparseMatrix.DiagonalMode.GENERAL).toString();
+        }
+        List<String> strings = new ArrayList<>(values.length);
+        for (int outer = 0; outer + 1 < pointers.length; outer++) {
+            for (int p = pointers[outer]; p < pointers[outer + 1]; p++) {
+                int row = orientation == Orientation.ROW ? outer : indices[p];
+                int column = orientation == Orientation.ROW ? indices[p] : outer;
+                strings.add(row + ":" + column + ":" + values[p]);
+            }
+        }
+        return strings.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompressedSparseMatrix)) {
+            return false;
+        }
+
+        CompressedSparseMatrix self = this;
+        CompressedSparseMatrix that = ((CompressedSparseMatrix) o).toOrientation(orientation);
+        if (self.diagonalMode != that.diagonalMode) {
+            self = self.toDiagonalMode(SparseMatrix.DiagonalMode.GENERAL);
+            that = that.toDiagonalMode(SparseMatrix.DiagonalMode.GENERAL);
+        }
+
+        if (rows != that.rows || columns != that.columns || self.values.length != that.values.length) {
+            return false;
+        }
+        for (int k = 0; k < pointers.length; k++) {
+            if (self.pointers[k] != that.pointers[k]) {
+                return false;
+            }
+        }
+        for (int p = 0; p < self.values.length; p++) {
+            if (self.indices[p] != that.indices[p] || Double.compare(self.values[p], that.values[p]) != 0) {
+                return false;
+            }
+        }
+        return Arrays.equals(self.diagonal, that.diagonal);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = rows;
+        result = 31 * result + columns;
+        int entries = 0;
+        for (int outer = 0; outer + 1 < pointers.length; outer++) {
+            for (int p = pointers[outer]; p < pointers[outer + 1]; p++) {
+                int row = orientation == Orientation.ROW ? outer : indices[p];
+                int column = orientation == Orientation.ROW ? indices[p] : outer;
+                entries += (31 * row + column) ^ Double.hashCode(values[p]);
+            }
+        }
+        for (int k = 0; k < rows && k < columns; k++) {
+            double value = implicitDiagonal(k);
+            if (value != 0D) {
+                entries += (31 * k + k) ^ Double.hashCode(value);
+            }
+        }
+        return 31 * result + entries;
+    }
+
+}
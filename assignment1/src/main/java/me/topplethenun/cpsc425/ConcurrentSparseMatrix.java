@@ -0,0 +1,428 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import java.util.Arrays;
+
+/**
+ * A mutable sparse matrix that many threads can write to at once, for filling a matrix in parallel before it is frozen
+ * into a {@link CompressedSparseMatrix} for reading.
+ * <p>
+ * Rows are spread over a fixed number of stripes, each guarded by its own lock, so threads writing to different rows
+ * rarely wait on each other. Each stripe keeps its values in an open-addressing hash table of primitive keys and
+ * values, so no object is created per value. The diagonal is stored as given by a {@link SparseMatrix.DiagonalMode};
+ * a separate diagonal value is guarded by the stripe of its row.
+ * <p>
+ * Every method is thread-safe. {@link #freeze()} copies one stripe at a time, so values written while it runs may or
+ * may not be included; freeze once the writers are done to get every value.
+ *
+ * @author Richard Harrah
+ */
+public final class ConcurrentSparseMatrix {
+
+    private static final int INITIAL_STRIPE_CAPACITY = 16;
+
+    private final int rows;
+    private final int columns;
+    private final SparseMatrix.DiagonalMode diagonalMode;
+    private final double[] diagonal;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    /**
+     * Constructs a new ConcurrentSparseMatrix with a given amount of rows and columns and a diagonal that is
+     * implicitly one.
+     * <p>
+     * This constructor will throw an {@link IllegalArgumentException} if {@code rows} or {@code columns} is less
+     * than {@code 1}.
+     *
+     * @param rows    number of rows
+     * @param columns number of columns
+     */
+    public ConcurrentSparseMatrix(int rows, int columns) {
+        this(rows, columns, SparseMatrix.DiagonalMode.UNIT);
+    }
+
+    /**
+     * Constructs a new ConcurrentSparseMatrix with a given amount of rows and columns, storing its diagonal as given
+     * by {@code diagonalMode}. The number of stripes is chosen from the number of available processors.
+     * <p>
+     * This constructor will throw an {@link IllegalArgumentException} if {@code rows} or {@code columns} is less
+     * than {@code 1} or if {@code diagonalMode} is null.
+     *
+     * @param rows         number of rows
+     * @param columns      number of columns
+     * @param diagonalMode how the diagonal is stored
+     */
+    public ConcurrentSparseMatrix(int rows, int columns, SparseMatrix.DiagonalMode diagonalMode) {
+        this(rows, columns, diagonalMode, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a new ConcurrentSparseMatrix with a given amount of rows and columns, storing its diagonal as given
+     * by {@code diagonalMode} and spreading its rows over at least {@code concurrencyLevel} stripes, rounded up to a
+     * power of two.
+     * <p>
+     * This constructor will throw an {@link IllegalArgumentException} if {@code rows} or {@code columns} is less
+     * than {@code 1}, if {@code diagonalMode} is null or if {@code concurrencyLevel} is less than {@code 1}.
+     *
+     * @param rows             number of rows
+     * @param columns          number of columns
+     * @param diagonalMode     how the diagonal is stored
+     * @param concurrencyLevel number of threads expected to write at once
+     */
+    public ConcurrentSparseMatrix(int rows, int columns, SparseMatrix.DiagonalMode diagonalMode,
+                                  int concurrencyLevel) {
+        if (rows < 1) {
+            throw new IllegalArgumentException("must have at least one row");
+        }
+        if (columns < 1) {
+            throw new IllegalArgumentException("must have at least one column");
+        }
+        if (diagonalMode == null) {
+            throw new IllegalArgumentException("diagonal mode must not be null");
+        }
+        if (concurrencyLevel < 1) {
+            throw new IllegalArgumentException("concurrency level must be at least one");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.diagonalMode = diagonalMode;
+        this.diagonal = diagonalMode == SparseMatrix.DiagonalMode.SEPARATE ? new double[Math.min(rows, columns)] :
+                null;
+        int stripeCount = Integer.highestOneBit(Math.min(concurrencyLevel, 1 << 16) * 2 - 1);
+        this.stripes = new Stripe[stripeCount];
+        for (int s = 0; s < stripeCount; s++) {
+            stripes[s] = new Stripe();
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * Returns the number of rows in this ConcurrentSparseMatrix.
+     *
+     * @return number of rows
+     */
+    public int numOfRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns in this ConcurrentSparseMatrix.
+     *
+     * @return number of columns
+     */
+    public int numOfColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns how the diagonal of this ConcurrentSparseMatrix is stored.
+     *
+     * @return diagonal mode of this matrix
+     */
+    public SparseMatrix.DiagonalMode getDiagonalMode() {
+        return diagonalMode;
+    }
+
+    /**
+     * Returns the number of non-zero values stored in this matrix. The implicit diagonal of a
+     * {@link SparseMatrix.DiagonalMode#UNIT} matrix is not counted. The stripes are counted one at a time, so the
+     * result is only exact while no other thread is writing.
+     *
+     * @return number of stored values
+     */
+    public int numOfNonZeros() {
+        int count = 0;
+        for (int s = 0; s < stripes.length; s++) {
+            synchronized (stripes[s]) {
+                count += stripes[s].size;
+                if (diagonal != null) {
+                    for (int k = s; k < diagonal.length; k += stripes.length) {
+                        if (diagonal[k] != 0D) {
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets and returns the value at the given row and column.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code row} is less than 0 or equal to or greater than
+     * {@link #numOfRows()} or if {@code column} is less than 0 or equal to or greater than {@link #numOfColumns()}.
+     *
+     * @param row    row to query
+     * @param column column to query
+     * @return value at the given row and column
+     */
+    public double get(int row, int column) {
+        checkPosition(row, column);
+        Stripe stripe = stripes[row & stripeMask];
+        synchronized (stripe) {
+            if (row == column && diagonalMode != SparseMatrix.DiagonalMode.GENERAL) {
+                return diagonal == null ? 1 : diagonal[row];
+            }
+            return stripe.get(key(row, column));
+        }
+    }
+
+    /**
+     * Sets the value at the given row and column. Setting a value to zero removes it, and values set on the diagonal
+     * of a {@link SparseMatrix.DiagonalMode#UNIT} matrix are ignored.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code row} is less than 0 or equal to or greater than
+     * {@link #numOfRows()} or if {@code column} is less than 0 or equal to or greater than {@link #numOfColumns()}.
+     *
+     * @param row    row to set value
+     * @param column column to set value
+     * @param value  value to set
+     */
+    public void set(int row, int column, double value) {
+        checkPosition(row, column);
+        Stripe stripe = stripes[row & stripeMask];
+        synchronized (stripe) {
+            if (row == column && diagonalMode != SparseMatrix.DiagonalMode.GENERAL) {
+                if (diagonal != null) {
+                    diagonal[row] = value;
+                }
+                return;
+            }
+            stripe.put(key(row, column), value);
+        }
+    }
+
+    /**
+     * Adds {@code value} to the value at the given row and column as one atomic step, so values accumulated by many
+     * threads at the same position are all counted. Values that cancel to zero are removed, and values added to the
+     * diagonal of a {@link SparseMatrix.DiagonalMode#UNIT} matrix are ignored.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code row} is less than 0 or equal to or greater than
+     * {@link #numOfRows()} or if {@code column} is less than 0 or equal to or greater than {@link #numOfColumns()}.
+     *
+     * @param row    row of the value
+     * @param column column of the value
+     * @param value  value to add
+     */
+    public void add(int row, int column, double value) {
+        checkPosition(row, column);
+        if (value == 0D) {
+            return;
+        }
+        Stripe stripe = stripes[row & stripeMask];
+        synchronized (stripe) {
+            if (row == column && diagonalMode != SparseMatrix.DiagonalMode.GENERAL) {
+                if (diagonal != null) {
+                    diagonal[row] += value;
+                }
+                return;
+            }
+            stripe.add(key(row, column), value);
+        }
+    }
+
+    /**
+     * Copies this matrix into a new immutable compressed sparse row matrix with the same diagonal mode.
+     *
+     * @return new CompressedSparseMatrix with the same values
+     */
+    public CompressedSparseMatrix freeze() {
+        return freeze(CompressedSparseMatrix.Orientation.ROW);
+    }
+
+    /**
+     * Copies this matrix into a new immutable {@link CompressedSparseMatrix} with the given orientation and the same
+     * diagonal mode. Each stripe is locked only while its values are copied out, so writers to other stripes carry on.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code orientation} is null.
+     *
+     * @param orientation orientation of the result
+     * @return new CompressedSparseMatrix with the same values
+     */
+    public CompressedSparseMatrix freeze(CompressedSparseMatrix.Orientation orientation) {
+        if (orientation == null) {
+            throw new IllegalArgumentException("orientation must not be null");
+        }
+        long[][] keys = new long[stripes.length][];
+        double[][] values = new double[stripes.length][];
+        double[] frozenDiagonal = diagonal == null ? null : new double[diagonal.length];
+        int count = 0;
+        for (int s = 0; s < stripes.length; s++) {
+            Stripe stripe = stripes[s];
+            synchronized (stripe) {
+                keys[s] = new long[stripe.size];
+                values[s] = new double[stripe.size];
+                stripe.copyTo(keys[s], values[s]);
+                if (frozenDiagonal != null) {
+                    for (int k = s; k < frozenDiagonal.length; k += stripes.length) {
+                        frozenDiagonal[k] = diagonal[k];
+                    }
+                }
+            }
+            count += keys[s].length;
+        }
+        int[] entryRows = new int[count];
+        int[] entryColumns = new int[count];
+        double[] entryValues = new double[count];
+        int entries = 0;
+        for (int s = 0; s < stripes.length; s++) {
+            for (int e = 0; e < keys[s].length; e++) {
+                entryRows[entries] = (int) (keys[s][e] >>> 32);
+                entryColumns[entries] = (int) keys[s][e];
+                entryValues[entries] = values[s][e];
+                entries++;
+            }
+        }
+        return CompressedSparseMatrix.fromCoordinates(rows, columns, orientation, entryRows, entryColumns,
+                entryValues, count, diagonalMode, frozenDiagonal);
+    }
+
+    private void checkPosition(int row, int column) {
+        if (row < 0 || row >= rows) {
+            throw new IllegalArgumentException("row must be greater than -1 and less than number of rows");
+        }
+        if (column < 0 || column >= columns) {
+            throw new IllegalArgumentException("column must be greater than -1 and less than number of columns");
+        }
+    }
+
+    private static long key(int row, int column) {
+        return (long) row << 32 | column;
+    }
+
+    /**
+     * Hash table from packed {@code (row, column)} keys to non-zero values, using linear probing and kept at most
+     * half full. Removed values are filled by shifting later keys of the same probe run back, so no tombstones build
+     * up. All access is synchronized on the stripe.
+     */
+    private static final class Stripe {
+        private static final long EMPTY = -1L;
+
+        private long[] keys;
+        private double[] values;
+        private int size;
+
+        Stripe() {
+            this.keys = new long[INITIAL_STRIPE_CAPACITY];
+            this.values = new double[INITIAL_STRIPE_CAPACITY];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        double get(long key) {
+            int slot = slot(key);
+            return keys[slot] == EMPTY ? 0D : values[slot];
+        }
+
+        void put(long key, double value) {
+            int slot = slot(key);
+            if (keys[slot] != EMPTY) {
+                if (value == 0D) {
+                    remove(slot);
+                } else {
+                    values[slot] = value;
+                }
+            } else if (value != 0D) {
+                insert(slot, key, value);
+            }
+        }
+
+        void add(long key, double value) {
+            int slot = slot(key);
+            if (keys[slot] == EMPTY) {
+                insert(slot, key, value);
+                return;
+            }
+            double sum = values[slot] + value;
+            if (sum == 0D) {
+                remove(slot);
+            } else {
+                values[slot] = sum;
+            }
+        }
+
+        void copyTo(long[] keysOut, double[] valuesOut) {
+            int count = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != EMPTY) {
+                    keysOut[count] = keys[slot];
+                    valuesOut[count] = values[slot];
+                    count++;
+                }
+            }
+        }
+
+        /**
+         * Returns the slot holding {@code key}, or the empty slot ending its probe run if it is not stored.
+         */
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void insert(int slot, long key, double value) {
+            keys[slot] = key;
+            values[slot] = value;
+            size++;
+            if (size > keys.length >> 1) {
+                grow();
+            }
+        }
+
+        private void remove(int slot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (keys[next] == EMPTY) {
+                    break;
+                }
+                int home = hash(keys[next]) & mask;
+                boolean reachable = hole < next ? hole < home && home <= next : hole < home || home <= next;
+                if (!reachable) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+            }
+            keys[hole] = EMPTY;
+            size--;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            double[] oldValues = values;
+            keys = new long[oldKeys.length << 1];
+            values = new double[keys.length];
+            Arrays.fill(keys, EMPTY);
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != EMPTY) {
+                    int newSlot = slot(oldKeys[slot]);
+                    keys[newSlot] = oldKeys[slot];
+                    values[newSlot] = oldValues[slot];
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long mixed = key * 0x9E3779B97F4A7C15L;
+            return (int) (mixed ^ (mixed >>> 32));
+        }
+    }
+
+}
@@ -0,0 +1,637 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Array-level kernels shared by {@link DenseMatrix}. Every matrix operand is described by its backing array, the offset
+ * of element {@code (0, 0)} and its row and column strides, so the kernels work for any layout.
+ *
+ * @author Richard Harrah
+ */
+final class DenseKernels {
+
+    /**
+     * Tile size used by {@link #gemm} when none is given.
+     */
+    static final int DEFAULT_TILE_SIZE = 64;
+
+    /**
+     * Number of multiply-adds below which {@link GemmTask} stops splitting and runs {@link #gemm} directly.
+     */
+    static final long GEMM_SEQUENTIAL_CUTOFF = 1L << 18;
+
+    /**
+     * Number of elements below which {@link AddTask} stops splitting and adds directly.
+     */
+    static final int ADD_SEQUENTIAL_CUTOFF = 1 << 15;
+
+    /**
+     * Approximate number of bytes of the matrix that {@link #gemvBatch} keeps hot while it runs through the vectors.
+     */
+    static final int GEMV_BLOCK_BYTES = 1 << 18;
+
+    /**
+     * Edge length of the blocks {@link #transpose} stops recursing at.
+     */
+    static final int TRANSPOSE_BLOCK = 32;
+
+    private static final int[] CALIBRATION_TILE_SIZES = {16, 32, 48, 64, 96, 128, 192, 256};
+    private static final int CALIBRATION_SIZE = 384;
+    private static final int CALIBRATION_ROUNDS = 3;
+
+    private static volatile int tileSize = DEFAULT_TILE_SIZE;
+
+    private DenseKernels() {
+        // do nothing
+    }
+
+    /**
+     * Gets and returns the tile size currently used by {@link #gemm}.
+     *
+     * @return tile size
+     */
+    static int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Sets the tile size used by {@link #gemm}.
+     *
+     * @param size new tile size
+     */
+    static void setTileSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("tile size must be greater than 0");
+        }
+        tileSize = size;
+    }
+
+    /**
+     * Times {@link #gemm} with a range of tile sizes on a warm-up product, stores the fastest as the tile size and
+     * returns it.
+     *
+     * @return the chosen tile size
+     */
+    static int calibrateTileSize() {
+        int n = CALIBRATION_SIZE;
+        double[] a = new double[n * n];
+        double[] b = new double[n * n];
+        double[] c = new double[n * n];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = (i % 7) - 3;
+            b[i] = (i % 5) - 2;
+        }
+        int best = DEFAULT_TILE_SIZE;
+        long bestTime = Long.MAX_VALUE;
+        for (int size : CALIBRATION_TILE_SIZES) {
+            long fastest = Long.MAX_VALUE;
+            for (int round = 0; round < CALIBRATION_ROUNDS; round++) {
+                long start = System.nanoTime();
+                gemm(n, n, n, a, 0, n, 1, b, 0, n, 1, c, 0, n, 1, size);
+                fastest = Math.min(fastest, System.nanoTime() - start);
+            }
+            if (fastest < bestTime) {
+                bestTime = fastest;
+                best = size;
+            }
+        }
+        tileSize = best;
+        return best;
+    }
+
+    /**
+     * Computes {@code C += A * B} where {@code A} is {@code m x p}, {@code B} is {@code p x n} and {@code C} is
+     * {@code m x n}.
+     * <p>
+     * The iteration space is split into {@code tile x tile} blocks that are visited in i-k-j order so that the
+     * active parts of all three operands stay in cache, and each block is handed to a micro-kernel that updates
+     * four rows of {@code C} per pass over a row of {@code B}.
+     *
+     * @param m    rows of A and C
+     * @param n    columns of B and C
+     * @param p    columns of A and rows of B
+     * @param a    array backing A
+     * @param aOff offset of A(0, 0)
+     * @param aRs  row stride of A
+     * @param aCs  column stride of A
+     * @param b    array backing B
+     * @param bOff offset of B(0, 0)
+     * @param bRs  row stride of B
+     * @param bCs  column stride of B
+     * @param c    array backing C
+     * @param cOff offset of C(0, 0)
+     * @param cRs  row stride of C
+     * @param cCs  column stride of C
+     * @param tile tile size
+     */
+    static void gemm(int m, int n, int p,
+                     double[] a, int aOff, int aRs, int aCs,
+                     double[] b, int bOff, int bRs, int bCs,
+                     double[] c, int cOff, int cRs, int cCs,
+                     int tile) {
+        gemm(m, n, p, 1D, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs, cCs, tile);
+    }
+
+    /**
+     * Computes {@code C += alpha * A * B} with the same blocking as the plain product. When the rows of {@code B} and
+     * {@code C} are contiguous and {@link VectorOps} is accelerated, each block is computed as a series of SIMD
+     * {@code axpy} updates along the rows of {@code C} instead of with the scalar micro-kernel.
+     *
+     * @param m     rows of A and C
+     * @param n     columns of B and C
+     * @param p     columns of A and rows of B
+     * @param alpha factor applied to the product
+     * @param a     array backing A
+     * @param aOff  offset of A(0, 0)
+     * @param aRs   row stride of A
+     * @param aCs   column stride of A
+     * @param b     array backing B
+     * @param bOff  offset of B(0, 0)
+     * @param bRs   row stride of B
+     * @param bCs   column stride of B
+     * @param c     array backing C
+     * @param cOff  offset of C(0, 0)
+     * @param cRs   row stride of C
+     * @param cCs   column stride of C
+     * @param tile  tile size
+     */
+    static void gemm(int m, int n, int p, double alpha,
+                     double[] a, int aOff, int aRs, int aCs,
+                     double[] b, int bOff, int bRs, int bCs,
+                     double[] c, int cOff, int cRs, int cCs,
+                     int tile) {
+        VectorOps ops = VectorOps.get();
+        boolean vectorized = ops.isAccelerated() && bCs == 1 && cCs == 1;
+        for (int ii = 0; ii < m; ii += tile) {
+            int iEnd = Math.min(ii + tile, m);
+            for (int kk = 0; kk < p; kk += tile) {
+                int kEnd = Math.min(kk + tile, p);
+                for (int jj = 0; jj < n; jj += tile) {
+                    int jEnd = Math.min(jj + tile, n);
+                    if (vectorized) {
+                        vectorKernel(ops, ii, iEnd, kk, kEnd, jj, jEnd, alpha, a, aOff, aRs, aCs, b, bOff, bRs,
+                                c, cOff, cRs);
+                        continue;
+                    }
+                    microKernel(ii, iEnd, kk, kEnd, jj, jEnd, alpha,
+                            a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs, cCs);
+                }
+            }
+        }
+    }
+
+    private static void vectorKernel(VectorOps ops, int iStart, int iEnd, int kStart, int kEnd, int jStart,
+                                     int jEnd, double alpha, double[] a, int aOff, int aRs, int aCs,
+                                     double[] b, int bOff, int bRs, double[] c, int cOff, int cRs) {
+        int length = jEnd - jStart;
+        for (int i = iStart; i < iEnd; i++) {
+            int cRow = cOff + i * cRs + jStart;
+            for (int k = kStart; k < kEnd; k++) {
+                ops.axpy(alpha * a[aOff + i * aRs + k * aCs], b, bOff + k * bRs + jStart, c, cRow, length);
+            }
+        }
+    }
+
+    private static void microKernel(int iStart, int iEnd, int kStart, int kEnd, int jStart, int jEnd, double alpha,
+                                    double[] a, int aOff, int aRs, int aCs,
+                                    double[] b, int bOff, int bRs, int bCs,
+                                    double[] c, int cOff, int cRs, int cCs) {
+        int i = iStart;
+        for (; i + 3 < iEnd; i += 4) {
+            int c0 = cOff + i * cRs;
+            int c1 = c0 + cRs;
+            int c2 = c1 + cRs;
+            int c3 = c2 + cRs;
+            for (int k = kStart; k < kEnd; k++) {
+                int aIndex = aOff + i * aRs + k * aCs;
+                double a0 = alpha * a[aIndex];
+                double a1 = alpha * a[aIndex + aRs];
+                double a2 = alpha * a[aIndex + 2 * aRs];
+                double a3 = alpha * a[aIndex + 3 * aRs];
+                int bRow = bOff + k * bRs;
+                for (int j = jStart; j < jEnd; j++) {
+                    double bValue = b[bRow + j * bCs];
+                    int cColumn = j * cCs;
+                    c[c0 + cColumn] += a0 * bValue;
+                    c[c1 + cColumn] += a1 * bValue;
+                    c[c2 + cColumn] += a2 * bValue;
+                    c[c3 + cColumn] += a3 * bValue;
+                }
+            }
+        }
+        for (; i < iEnd; i++) {
+            int cRow = cOff + i * cRs;
+            for (int k = kStart; k < kEnd; k++) {
+                double aValue = alpha * a[aOff + i * aRs + k * aCs];
+                int bRow = bOff + k * bRs;
+                for (int j = jStart; j < jEnd; j++) {
+                    c[cRow + j * cCs] += aValue * b[bRow + j * bCs];
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes {@code out = a + b} where all three operands are {@code m x n}.
+     *
+     * @param m    rows of the operands
+     * @param n    columns of the operands
+     * @param a    array backing the left operand
+     * @param aOff offset of its element (0, 0)
+     * @param aRs  its row stride
+     * @param aCs  its column stride
+     * @param b    array backing the right operand
+     * @param bOff offset of its element (0, 0)
+     * @param bRs  its row stride
+     * @param bCs  its column stride
+     * @param c    array backing the result
+     * @param cOff offset of its element (0, 0)
+     * @param cRs  its row stride
+     * @param cCs  its column stride
+     */
+    static void add(int m, int n,
+                    double[] a, int aOff, int aRs, int aCs,
+                    double[] b, int bOff, int bRs, int bCs,
+                    double[] c, int cOff, int cRs, int cCs) {
+        if (aCs == 1 && bCs == 1 && cCs == 1) {
+            VectorOps ops = VectorOps.get();
+            for (int i = 0; i < m; i++) {
+                ops.add(a, aOff + i * aRs, b, bOff + i * bRs, c, cOff + i * cRs, n);
+            }
+            return;
+        }
+        for (int i = 0; i < m; i++) {
+            int aRow = aOff + i * aRs;
+            int bRow = bOff + i * bRs;
+            int cRow = cOff + i * cRs;
+            for (int j = 0; j < n; j++) {
+                c[cRow + j * cCs] = a[aRow + j * aCs] + b[bRow + j * bCs];
+            }
+        }
+    }
+
+    /**
+     * Computes {@code c = factor * c} for an {@code m x n} operand. A factor of zero clears the operand, so values such
+     * as {@code NaN} already in it do not survive.
+     *
+     * @param m      rows of the operand
+     * @param n      columns of the operand
+     * @param factor factor to scale by
+     * @param c      array backing the operand
+     * @param cOff   offset of its element (0, 0)
+     * @param cRs    its row stride
+     * @param cCs    its column stride
+     */
+    static void scale(int m, int n, double factor, double[] c, int cOff, int cRs, int cCs) {
+        for (int i = 0; i < m; i++) {
+            int cRow = cOff + i * cRs;
+            for (int j = 0; j < n; j++) {
+                int index = cRow + j * cCs;
+                c[index] = factor == 0D ? 0D : factor * c[index];
+            }
+        }
+    }
+
+    /**
+     * Computes {@code y = A * x} for an {@code m x n} matrix {@code A}. Contiguous rows are reduced with
+     * {@link VectorOps#dot}; contiguous columns are accumulated into {@code y} with {@link VectorOps#axpy}.
+     *
+     * @param m    rows of A and length of y
+     * @param n    columns of A and length of x
+     * @param a    array backing A
+     * @param aOff offset of A(0, 0)
+     * @param aRs  row stride of A
+     * @param aCs  column stride of A
+     * @param x    vector to multiply
+     * @param y    vector to store the results in
+     */
+    static void gemv(int m, int n, double[] a, int aOff, int aRs, int aCs, double[] x, double[] y) {
+        gemvRows(0, m, n, a, aOff, aRs, aCs, x, y);
+    }
+
+    /**
+     * Computes {@code ys[v] = A * xs[v]} for every vector, working through {@code A} in blocks of rows small enough
+     * to stay in cache while every vector is applied to them.
+     *
+     * @param m    rows of A and length of each y
+     * @param n    columns of A and length of each x
+     * @param a    array backing A
+     * @param aOff offset of A(0, 0)
+     * @param aRs  row stride of A
+     * @param aCs  column stride of A
+     * @param xs   vectors to multiply
+     * @param ys   vectors to store the results in
+     */
+    static void gemvBatch(int m, int n, double[] a, int aOff, int aRs, int aCs, double[][] xs, double[][] ys) {
+        int blockRows = Math.max(1, GEMV_BLOCK_BYTES / (Double.BYTES * n));
+        for (int start = 0; start < m; start += blockRows) {
+            int end = Math.min(start + blockRows, m);
+            for (int v = 0; v < xs.length; v++) {
+                gemvRows(start, end, n, a, aOff, aRs, aCs, xs[v], ys[v]);
+            }
+        }
+    }
+
+    private static void gemvRows(int start, int end, int n, double[] a, int aOff, int aRs, int aCs, double[] x,
+                                 double[] y) {
+        VectorOps ops = VectorOps.get();
+        if (aCs == 1) {
+            for (int i = start; i < end; i++) {
+                y[i] = ops.dot(a, aOff + i * aRs, x, 0, n);
+            }
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            y[i] = 0D;
+        }
+        if (aRs == 1) {
+            for (int j = 0; j < n; j++) {
+                ops.axpy(x[j], a, aOff + j * aCs + start, y, start, end - start);
+            }
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            double sum = 0D;
+            int aRow = aOff + i * aRs;
+            for (int j = 0; j < n; j++) {
+                sum += a[aRow + j * aCs] * x[j];
+            }
+            y[i] = sum;
+        }
+    }
+
+    /**
+     * Computes {@code y = a * x} through {@link DenseMatrix#getQuick(int, int)}, for matrices that are not backed by
+     * arrays.
+     *
+     * @param a matrix
+     * @param x vector to multiply
+     * @param y vector to store the results in
+     */
+    static void gemv(DenseMatrix a, double[] x, double[] y) {
+        int m = a.numOfRows();
+        int n = a.numOfColumns();
+        for (int i = 0; i < m; i++) {
+            double sum = 0D;
+            for (int j = 0; j < n; j++) {
+                sum += a.getQuick(i, j) * x[j];
+            }
+            y[i] = sum;
+        }
+    }
+
+    /**
+     * Writes the transpose of the {@code m x n} matrix {@code A} into the {@code n x m} matrix {@code B}. The index
+     * space is halved along its longer side until blocks are at most {@link #TRANSPOSE_BLOCK} on a side, which keeps
+     * both the reads and the writes within cache at every level of the memory hierarchy without tuning for it.
+     *
+     * @param m    rows of A
+     * @param n    columns of A
+     * @param a    array backing A
+     * @param aOff offset of A(0, 0)
+     * @param aRs  row stride of A
+     * @param aCs  column stride of A
+     * @param b    array backing B
+     * @param bOff offset of B(0, 0)
+     * @param bRs  row stride of B
+     * @param bCs  column stride of B
+     */
+    static void transpose(int m, int n, double[] a, int aOff, int aRs, int aCs, double[] b, int bOff, int bRs,
+                          int bCs) {
+        if (m <= TRANSPOSE_BLOCK && n <= TRANSPOSE_BLOCK) {
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < n; j++) {
+                    b[bOff + j * bRs + i * bCs] = a[aOff + i * aRs + j * aCs];
+                }
+            }
+            return;
+        }
+        if (m >= n) {
+            int half = m / 2;
+            transpose(half, n, a, aOff, aRs, aCs, b, bOff, bRs, bCs);
+            transpose(m - half, n, a, aOff + half * aRs, aRs, aCs, b, bOff + half * bCs, bRs, bCs);
+        } else {
+            int half = n / 2;
+            transpose(m, half, a, aOff, aRs, aCs, b, bOff, bRs, bCs);
+            transpose(m, n - half, a, aOff + half * aCs, aRs, aCs, b, bOff + half * bRs, bRs, bCs);
+        }
+    }
+
+    /**
+     * Computes {@code c = a + b} through {@link DenseMatrix#getQuick(int, int)} and
+     * {@link DenseMatrix#setQuick(int, int, double)}, for operands that are not all backed by arrays.
+     *
+     * @param a left operand
+     * @param b right operand
+     * @param c result, which may be the same matrix as {@code a} or {@code b}
+     */
+    static void add(DenseMatrix a, DenseMatrix b, DenseMatrix c) {
+        int m = c.numOfRows();
+        int n = c.numOfColumns();
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                c.setQuick(i, j, a.getQuick(i, j) + b.getQuick(i, j));
+            }
+        }
+    }
+
+    /**
+     * Computes {@code c = factor * c} through {@link DenseMatrix#getQuick(int, int)} and
+     * {@link DenseMatrix#setQuick(int, int, double)}, for operands that are not backed by arrays.
+     *
+     * @param factor factor to scale by
+     * @param c      operand
+     */
+    static void scale(double factor, DenseMatrix c) {
+        int m = c.numOfRows();
+        int n = c.numOfColumns();
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                c.setQuick(i, j, factor == 0D ? 0D : factor * c.getQuick(i, j));
+            }
+        }
+    }
+
+    /**
+     * Computes {@code c += alpha * a * b} through {@link DenseMatrix#getQuick(int, int)} and
+     * {@link DenseMatrix#setQuick(int, int, double)}, for operands that are not all backed by arrays. The inner
+     * dimension is the number of columns of {@code a}. Uses the same tiled i-k-j order as the array kernel.
+     *
+     * @param alpha factor applied to the product
+     * @param a     left operand
+     * @param b     right operand
+     * @param c     result, which must not overlap {@code a} or {@code b}
+     * @param tile  tile size
+     */
+    static void gemm(double alpha, DenseMatrix a, DenseMatrix b, DenseMatrix c, int tile) {
+        int m = c.numOfRows();
+        int n = c.numOfColumns();
+        int p = a.numOfColumns();
+        for (int ii = 0; ii < m; ii += tile) {
+            int iEnd = Math.min(ii + tile, m);
+            for (int kk = 0; kk < p; kk += tile) {
+                int kEnd = Math.min(kk + tile, p);
+                for (int jj = 0; jj < n; jj += tile) {
+                    int jEnd = Math.min(jj + tile, n);
+                    for (int i = ii; i < iEnd; i++) {
+                        for (int k = kk; k < kEnd; k++) {
+                            double aValue = alpha * a.getQuick(i, k);
+                            for (int j = jj; j < jEnd; j++) {
+                                c.setQuick(i, j, c.getQuick(i, j) + aValue * b.getQuick(k, j));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Fork-join task computing {@code C += alpha * A * B} by recursively halving the larger dimension of {@code C}
+     * until a block holds fewer than {@link #GEMM_SEQUENTIAL_CUTOFF} multiply-adds, at which point the block is
+     * computed with {@link #gemm}. Blocks never overlap in {@code C}, so no synchronization is needed.
+     */
+    static final class GemmTask extends RecursiveAction {
+        private final int m;
+        private final int n;
+        private final int p;
+        private final double alpha;
+        private final double[] a;
+        private final int aOff;
+        private final int aRs;
+        private final int aCs;
+        private final double[] b;
+        private final int bOff;
+        private final int bRs;
+        private final int bCs;
+        private final double[] c;
+        private final int cOff;
+        private final int cRs;
+        private final int cCs;
+        private final int tile;
+
+        GemmTask(int m, int n, int p,
+                 double[] a, int aOff, int aRs, int aCs,
+                 double[] b, int bOff, int bRs, int bCs,
+                 double[] c, int cOff, int cRs, int cCs,
+                 int tile) {
+            this(m, n, p, 1D, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs, cCs, tile);
+        }
+
+        GemmTask(int m, int n, int p, double alpha,
+                 double[] a, int aOff, int aRs, int aCs,
+                 double[] b, int bOff, int bRs, int bCs,
+                 double[] c, int cOff, int cRs, int cCs,
+                 int tile) {
+            this.m = m;
+            this.n = n;
+            this.p = p;
+            this.alpha = alpha;
+            this.a = a;
+            this.aOff = aOff;
+            this.aRs = aRs;
+            this.aCs = aCs;
+            this.b = b;
+            this.bOff = bOff;
+            this.bRs = bRs;
+            this.bCs = bCs;
+            this.c = c;
+            this.cOff = cOff;
+            this.cRs = cRs;
+            this.cCs = cCs;
+            this.tile = tile;
+        }
+
+        @Override
+        protected void compute() {
+            if ((long) m * n * p <= GEMM_SEQUENTIAL_CUTOFF || (m == 1 && n == 1)) {
+                gemm(m, n, p, alpha, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs, cCs, tile);
+                return;
+            }
+            if (m >= n) {
+                int half = m / 2;
+                invokeAll(new GemmTask(half, n, p, alpha, a, aOff, aRs, aCs, b, bOff, bRs, bCs,
+                                c, cOff, cRs, cCs, tile),
+                        new GemmTask(m - half, n, p, alpha, a, aOff + half * aRs, aRs, aCs, b, bOff, bRs, bCs,
+                                c, cOff + half * cRs, cRs, cCs, tile));
+            } else {
+                int half = n / 2;
+                invokeAll(new GemmTask(m, half, p, alpha, a, aOff, aRs, aCs, b, bOff, bRs, bCs,
+                                c, cOff, cRs, cCs, tile),
+                        new GemmTask(m, n - half, p, alpha, a, aOff, aRs, aCs, b, bOff + half * bCs, bRs, bCs,
+                                c, cOff + half * cCs, cRs, cCs, tile));
+            }
+        }
+    }
+
+    /**
+     * Fork-join task computing {@code out = a + b} by recursively halving the larger dimension until a block holds
+     * fewer than {@link #ADD_SEQUENTIAL_CUTOFF} elements, at which point the block is computed with {@link #add}.
+     */
+    static final class AddTask extends RecursiveAction {
+        private final int m;
+        private final int n;
+        private final double[] a;
+        private final int aOff;
+        private final int aRs;
+        private final int aCs;
+        private final double[] b;
+        private final int bOff;
+        private final int bRs;
+        private final int bCs;
+        private final double[] c;
+        private final int cOff;
+        private final int cRs;
+        private final int cCs;
+
+        AddTask(int m, int n,
+                double[] a, int aOff, int aRs, int aCs,
+                double[] b, int bOff, int bRs, int bCs,
+                double[] c, int cOff, int cRs, int cCs) {
+            this.m = m;
+            this.n = n;
+            this.a = a;
+            this.aOff = aOff;
+            this.aRs = aRs;
+            this.aCs = aCs;
+            this.b = b;
+            this.bOff = bOff;
+            this.bRs = bRs;
+            this.bCs = bCs;
+            this.c = c;
+            this.cOff = cOff;
+            this.cRs = cRs;
+            this.cCs = cCs;
+        }
+
+        @Override
+        protected void compute() {
+            if ((long) m * n <= ADD_SEQUENTIAL_CUTOFF || (m == 1 && n == 1)) {
+                add(m, n, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs, cCs);
+                return;
+            }
+            if (m >= n) {
+                int half = m / 2;
+                invokeAll(new AddTask(half, n, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs, cCs),
+                        new AddTask(m - half, n, a, aOff + half * aRs, aRs, aCs, b, bOff + half * bRs, bRs, bCs,
+                                c, cOff + half * cRs, cRs, cCs));
+            } else {
+                int half = n / 2;
+                invokeAll(new AddTask(m, half, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs, cCs),
+                        new AddTask(m, n - half, a, aOff + half * aCs, aRs, aCs, b, bOff + half * bCs, bRs, bCs,
+                                c, cOff + half * cCs, cRs, cCs));
+            }
+        }
+    }
+
+}
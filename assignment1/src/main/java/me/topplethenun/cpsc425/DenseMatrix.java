@@ -10,19 +10,51 @@
  */
 package me.topplethenun.cpsc425;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- * This class represents a densely-stored matrix using a 2D array.
+ * This class represents a densely-stored matrix using a single contiguous array.
+ * <p>
+ * Elements are stored in one {@code double[]} in either row-major or column-major order (see {@link Layout}), so a
+ * matrix is allocated in one shot and can be scanned sequentially.
  *
  * @author Richard Harrah
  */
-public class DenseMatrix {
+public class DenseMatrix implements Matrix {
 
-    private double[][] elements;
+    /**
+     * The order in which the elements of a DenseMatrix are laid out in its backing array.
+     */
+    public enum Layout {
+        /**
+         * Elements of a row are adjacent; element {@code (row, column)} lives at {@code row * columns + column}.
+         */
+        ROW_MAJOR,
+        /**
+         * Elements of a column are adjacent; element {@code (row, column)} lives at {@code column * rows + row}.
+         */
+        COLUMN_MAJOR
+    }
+
+    private static final double EQUALS_TOLERANCE = 0.00005;
+
+    private final int rows;
+    private final int columns;
+    private final int offset;
+    private final int rowStride;
+    private final int columnStride;
+    private final Layout layout;
+    private final double[] elements;
+    /**
+     * Number of changes made through this matrix or any view sharing its storage, in element 0 so that views can
+     * share it.
+     */
+    private final long[] modifications;
 
     /**
-     * Constructs a new DenseMatrix with a given amount of rows and columns.
+     * Constructs a new row-major DenseMatrix with a given amount of rows and columns.
      * <p>
      * This constructor will throw an {@link IllegalArgumentException} if {@code rows} or {@code columns} is less
      * than {@code 1}.
@@ -31,18 +63,128 @@ public class DenseMatrix {
      * @param columns number of columns
      */
     public DenseMatrix(int rows, int columns) {
+        this(rows, columns, Layout.ROW_MAJOR);
+    }
+
+    /**
+     * Constructs a new DenseMatrix with a given amount of rows and columns, stored in the given layout.
+     * <p>
+     * This constructor will throw an {@link IllegalArgumentException} if {@code rows} or {@code columns} is less
+     * than {@code 1}, if {@code layout} is null, or if the matrix would hold more than {@link Integer#MAX_VALUE}
+     * elements.
+     *
+     * @param rows    number of rows
+     * @param columns number of columns
+     * @param layout  layout of the backing array
+     */
+    public DenseMatrix(int rows, int columns, Layout layout) {
         if (rows < 1) {
             throw new IllegalArgumentException("must have at least one row");
         }
         if (columns < 1) {
             throw new IllegalArgumentException("must have at least one column");
         }
-        this.elements = new double[rows][columns];
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                this.elements[i][j] = 0D;
-            }
+        if (layout == null) {
+            throw new IllegalArgumentException("layout must not be null");
+        }
+        if ((long) rows * columns > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("matrix must have at most Integer.MAX_VALUE elements");
         }
+        this.rows = rows;
+        this.columns = columns;
+        this.layout = layout;
+        this.offset = 0;
+        this.rowStride = layout == Layout.ROW_MAJOR ? columns : 1;
+        this.columnStride = layout == Layout.ROW_MAJOR ? 1 : rows;
+        this.elements = new double[rows * columns];
+        this.modifications = new long[1];
+    }
+
+    /**
+     * Constructs a DenseMatrix over the given backing array without validating or copying it. Subclasses that keep
+     * their values somewhere else pass {@code null} and override {@link #getQuick(int, int)},
+     * {@link #setQuick(int, int, double)} and {@link #storage()}.
+     *
+     * @param rows     number of rows
+     * @param columns  number of columns
+     * @param layout   layout of the values
+     * @param elements backing array, or null
+     */
+    DenseMatrix(int rows, int columns, Layout layout, double[] elements) {
+        this(rows, columns, layout, elements, new long[1]);
+    }
+
+    /**
+     * Constructs a DenseMatrix over the given backing array that shares the modification counter of another matrix,
+     * for subclasses whose views share their storage.
+     *
+     * @param rows          number of rows
+     * @param columns       number of columns
+     * @param layout        layout of the values
+     * @param elements      backing array, or null
+     * @param modifications shared modification counter
+     */
+    DenseMatrix(int rows, int columns, Layout layout, double[] elements, long[] modifications) {
+        this(rows, columns, layout, elements, 0, layout == Layout.ROW_MAJOR ? columns : 1,
+                layout == Layout.ROW_MAJOR ? 1 : rows, modifications);
+    }
+
+    /**
+     * Constructs a view over part of a backing array without validating or copying it. Element {@code (row, column)}
+     * lives at {@code offset + row * rowStride + column * columnStride}.
+     *
+     * @param rows          number of rows
+     * @param columns       number of columns
+     * @param layout        layout the strides follow
+     * @param elements      backing array
+     * @param offset        index of element {@code (0, 0)}
+     * @param rowStride     distance between vertically adjacent elements
+     * @param columnStride  distance between horizontally adjacent elements
+     * @param modifications modification counter shared with the other matrices over {@code elements}
+     */
+    DenseMatrix(int rows, int columns, Layout layout, double[] elements, int offset, int rowStride,
+                int columnStride, long[] modifications) {
+        this.rows = rows;
+        this.columns = columns;
+        this.layout = layout;
+        this.elements = elements;
+        this.offset = offset;
+        this.rowStride = rowStride;
+        this.columnStride = columnStride;
+        this.modifications = modifications;
+    }
+
+    /**
+     * Creates a DenseMatrix that uses the given array as its backing array without copying or clearing it. Changes
+     * to the array are reflected in the matrix and vice versa.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code rows} or {@code columns} is less than {@code 1}, if
+     * {@code layout} or {@code elements} is null, or if {@code elements} does not hold exactly
+     * {@code rows * columns} values.
+     *
+     * @param rows     number of rows
+     * @param columns  number of columns
+     * @param layout   layout of {@code elements}
+     * @param elements backing array
+     * @return new DenseMatrix backed by {@code elements}
+     */
+    public static DenseMatrix wrap(int rows, int columns, Layout layout, double[] elements) {
+        if (rows < 1) {
+            throw new IllegalArgumentException("must have at least one row");
+        }
+        if (columns < 1) {
+            throw new IllegalArgumentException("must have at least one column");
+        }
+        if (layout == null) {
+            throw new IllegalArgumentException("layout must not be null");
+        }
+        if (elements == null) {
+            throw new IllegalArgumentException("elements must not be null");
+        }
+        if (elements.length != (long) rows * columns) {
+            throw new IllegalArgumentException("elements must hold exactly rows * columns values");
+        }
+        return new DenseMatrix(rows, columns, layout, elements);
     }
 
     /**
@@ -51,7 +193,7 @@ public class DenseMatrix {
      * @return max number of rows
      */
     public int numOfRows() {
-        return elements.length;
+        return rows;
     }
 
     /**
@@ -60,7 +202,106 @@ public class DenseMatrix {
      * @return max number of columns
      */
     public int numOfColumns() {
-        return elements[0].length;
+        return columns;
+    }
+
+    /**
+     * Returns the layout of the backing array of this DenseMatrix.
+     *
+     * @return layout of the backing array
+     */
+    public Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Returns true if this DenseMatrix is backed by an accessible {@code double[]}, in which case
+     * {@link #getElements()} may be called.
+     *
+     * @return true if this matrix is backed by an array
+     */
+    public boolean hasArray() {
+        return elements != null;
+    }
+
+    /**
+     * Returns the array backing this DenseMatrix. The array is not copied, so changes to it are reflected in this
+     * matrix and vice versa. Element {@code (row, column)} lives at index
+     * {@code getOffset() + row * getRowStride() + column * getColumnStride()}; for a matrix that is not a view this
+     * is simply {@link #getLayout()} order from index zero.
+     * <p>
+     * Throws an {@link UnsupportedOperationException} if this matrix is not backed by an array.
+     *
+     * @return backing array
+     */
+    public double[] getElements() {
+        if (elements == null) {
+            throw new UnsupportedOperationException("matrix is not backed by an array");
+        }
+        return elements;
+    }
+
+    /**
+     * Returns the index in {@link #getElements()} of element {@code (0, 0)}. This is zero unless this matrix is a
+     * view.
+     *
+     * @return offset of the first element
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the distance in {@link #getElements()} between an element and the one below it.
+     *
+     * @return row stride
+     */
+    public int getRowStride() {
+        return rowStride;
+    }
+
+    /**
+     * Returns the distance in {@link #getElements()} between an element and the one to its right.
+     *
+     * @return column stride
+     */
+    public int getColumnStride() {
+        return columnStride;
+    }
+
+    /**
+     * Returns the number of changes made so far to the values of this DenseMatrix. The counter goes up on every
+     * {@link #set(int, int, double)}, {@link #addInPlace(DenseMatrix)}, {@link #scaleInPlace(double)} and every
+     * product stored into this matrix, and it is shared with every view of the same storage, so a change through a
+     * view is a change to the matrix too. Writes made directly to {@link #getElements()} or to an array passed to
+     * {@link #wrap(int, int, Layout, double[])} are not counted.
+     * <p>
+     * Two reads of the version that return the same number saw the same values, which makes it a cheap change check
+     * next to {@link #hashCode()}, which reads every element. The counter is not synchronized, so like the values
+     * themselves, a change made by another thread is only seen once its writes are visible to the reading thread, for
+     * example after joining that thread or handing the matrix over through a lock.
+     *
+     * @return modification count
+     * @see ProductCache
+     */
+    public long getVersion() {
+        return modifications[0];
+    }
+
+    /**
+     * Returns true if the values of this matrix occupy a single gap-free run of its backing array in
+     * {@link #getLayout()} order.
+     *
+     * @return true if this matrix is contiguous
+     */
+    boolean isContiguous() {
+        if (elements == null) {
+            return false;
+        }
+        if (layout == Layout.ROW_MAJOR) {
+            return columnStride == 1 && (rowStride == columns || rows == 1);
+        }
+        return rowStride == 1 && (columnStride == rows || columns == 1);
     }
 
     /**
@@ -74,13 +315,13 @@ public class DenseMatrix {
      * @return value at the given row and column
      */
     public double get(int row, int column) {
-        if (row < 0 || row >= elements.length) {
+        if (row < 0 || row >= rows) {
             throw new IllegalArgumentException("row must be greater than -1 and less than number of rows");
         }
-        if (column < 0 || column >= elements[0].length) {
+        if (column < 0 || column >= columns) {
             throw new IllegalArgumentException("column must be greater than -1 and less than number of columns");
         }
-        return elements[row][column];
+        return getQuick(row, column);
     }
 
     /**
@@ -94,13 +335,244 @@ public class DenseMatrix {
      * @param value  value to set
      */
     public void set(int row, int column, double value) {
-        if (row < 0 || row >= elements.length) {
+        if (row < 0 || row >= rows) {
+            throw new IllegalArgumentException("row must be greater than -1 and less than number of rows");
+        }
+        if (column < 0 || column >= columns) {
+            throw new IllegalArgumentException("column must be greater than -1 and less than number of columns");
+        }
+        setQuick(row, column, value);
+        modifications[0]++;
+    }
+
+    /**
+     * Gets and returns the value at the given row and column without checking bounds.
+     *
+     * @param row    row to query
+     * @param column column to query
+     * @return value at the given row and column
+     */
+    double getQuick(int row, int column) {
+        return elements[offset + row * rowStride + column * columnStride];
+    }
+
+    /**
+     * Sets the value at the given row and column without checking bounds.
+     *
+     * @param row    row to set value
+     * @param column column to set value
+     * @param value  value to set
+     */
+    void setQuick(int row, int column, double value) {
+        elements[offset + row * rowStride + column * columnStride] = value;
+    }
+
+    /**
+     * Returns the object holding the values of this DenseMatrix. Two matrices with the same storage may overlap.
+     *
+     * @return storage of this matrix
+     */
+    Object storage() {
+        return elements;
+    }
+
+    /**
+     * Returns the modification counter this DenseMatrix shares with its views, for subclasses creating views.
+     *
+     * @return shared modification counter
+     */
+    long[] modifications() {
+        return modifications;
+    }
+
+    /**
+     * Returns a view of the transpose of this DenseMatrix. The view shares this matrix's storage, so changes to
+     * either are visible in both; no values are copied.
+     *
+     * @return transposed view of this matrix
+     * @see #transposeCopy()
+     */
+    public DenseMatrix transpose() {
+        return view(0, 0, columns, rows, true);
+    }
+
+    /**
+     * Returns a view of the block of this DenseMatrix with {@code rows} rows and {@code columns} columns whose
+     * top-left element is {@code (firstRow, firstColumn)}. The view shares this matrix's storage, so changes to
+     * either are visible in both; no values are copied.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code rows} or {@code columns} is less than {@code 1} or if the
+     * block does not lie within this matrix.
+     *
+     * @param firstRow    first row of the block
+     * @param firstColumn first column of the block
+     * @param rows        number of rows in the block
+     * @param columns     number of columns in the block
+     * @return view of the block
+     */
+    public DenseMatrix subMatrix(int firstRow, int firstColumn, int rows, int columns) {
+        if (rows < 1) {
+            throw new IllegalArgumentException("must have at least one row");
+        }
+        if (columns < 1) {
+            throw new IllegalArgumentException("must have at least one column");
+        }
+        if (firstRow < 0 || (long) firstRow + rows > this.rows) {
+            throw new IllegalArgumentException("rows must lie within the matrix");
+        }
+        if (firstColumn < 0 || (long) firstColumn + columns > this.columns) {
+            throw new IllegalArgumentException("columns must lie within the matrix");
+        }
+        return view(firstRow, firstColumn, rows, columns, false);
+    }
+
+    /**
+     * Returns a {@code 1 x numOfColumns()} view of the given row. The view shares this matrix's storage.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code row} is less than 0 or equal to or greater than
+     * {@link #numOfRows()}.
+     *
+     * @param row row to view
+     * @return view of the row
+     */
+    public DenseMatrix row(int row) {
+        if (row < 0 || row >= rows) {
             throw new IllegalArgumentException("row must be greater than -1 and less than number of rows");
         }
-        if (column < 0 || column >= elements[0].length) {
+        return view(row, 0, 1, columns, false);
+    }
+
+    /**
+     * Returns a {@code numOfRows() x 1} view of the given column. The view shares this matrix's storage.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code column} is less than 0 or equal to or greater than
+     * {@link #numOfColumns()}.
+     *
+     * @param column column to view
+     * @return view of the column
+     */
+    public DenseMatrix column(int column) {
+        if (column < 0 || column >= columns) {
             throw new IllegalArgumentException("column must be greater than -1 and less than number of columns");
         }
-        elements[row][column] = value;
+        return view(0, column, rows, 1, false);
+    }
+
+    /**
+     * Creates a view sharing this matrix's storage. The view's element {@code (0, 0)} is this matrix's element
+     * {@code (row, column)}; when {@code transpose} is true the view's rows run along this matrix's columns.
+     *
+     * @param row       row of this matrix holding the view's first element
+     * @param column    column of this matrix holding the view's first element
+     * @param rows      number of rows of the view
+     * @param columns   number of columns of the view
+     * @param transpose true to swap the roles of rows and columns
+     * @return new view
+     */
+    DenseMatrix view(int row, int column, int rows, int columns, boolean transpose) {
+        Layout viewLayout = transpose ? (layout == Layout.ROW_MAJOR ? Layout.COLUMN_MAJOR : Layout.ROW_MAJOR) : layout;
+        return new DenseMatrix(rows, columns, viewLayout, elements, offset + row * rowStride + column * columnStride,
+                transpose ? columnStride : rowStride, transpose ? rowStride : columnStride, modifications);
+    }
+
+    /**
+     * Factors this square DenseMatrix into {@code P * A = L * U} with partial pivoting. Large trailing updates are
+     * split across {@link ForkJoinPool#commonPool()}. Keep the result to solve many systems with the same matrix.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if this matrix is not square.
+     *
+     * @return the factorization
+     * @see #lu(ForkJoinPool)
+     */
+    public LUDecomposition lu() {
+        return lu(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Factors this square DenseMatrix into {@code P * A = L * U} with partial pivoting, splitting large trailing
+     * updates across the given {@link ForkJoinPool}. This matrix is not changed.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code pool} is null or if this matrix is not square.
+     *
+     * @param pool pool to run large trailing updates in
+     * @return the factorization
+     */
+    public LUDecomposition lu(ForkJoinPool pool) {
+        return new LUDecomposition(this, LUDecomposition.DEFAULT_BLOCK_SIZE, pool);
+    }
+
+    /**
+     * Returns the determinant of this square DenseMatrix, computed from its LU factorization.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if this matrix is not square.
+     *
+     * @return the determinant
+     */
+    public double determinant() {
+        return lu().determinant();
+    }
+
+    /**
+     * Returns the inverse of this square DenseMatrix in a new DenseMatrix, computed from its LU factorization.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if this matrix is not square. Throws an {@link ArithmeticException}
+     * if it is singular.
+     *
+     * @return new DenseMatrix holding the inverse
+     */
+    public DenseMatrix inverse() {
+        return lu().inverse();
+    }
+
+    /**
+     * Returns this DenseMatrix, which is already dense.
+     *
+     * @return this DenseMatrix
+     */
+    @Override
+    public DenseMatrix toDense() {
+        return this;
+    }
+
+    /**
+     * Returns a copy of this DenseMatrix in its own storage, with the same layout. Useful for compacting a view.
+     *
+     * @return new DenseMatrix with the same values
+     */
+    public DenseMatrix copy() {
+        DenseMatrix retMatrix = new DenseMatrix(rows, columns, layout);
+        if (isContiguous()) {
+            System.arraycopy(elements, offset, retMatrix.elements, 0, rows * columns);
+            return retMatrix;
+        }
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                retMatrix.setQuick(i, j, getQuick(i, j));
+            }
+        }
+        return retMatrix;
+    }
+
+    /**
+     * Returns the transpose of this DenseMatrix in new storage with the same layout as this matrix. The copy is made
+     * with a cache-oblivious recursive blocking, so it stays fast for matrices much larger than the cache.
+     *
+     * @return new DenseMatrix holding the transpose
+     * @see #transpose()
+     */
+    public DenseMatrix transposeCopy() {
+        DenseMatrix retMatrix = new DenseMatrix(columns, rows, layout);
+        if (elements == null) {
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < columns; j++) {
+                    retMatrix.setQuick(j, i, getQuick(i, j));
+                }
+            }
+            return retMatrix;
+        }
+        DenseKernels.transpose(rows, columns, elements, offset, rowStride, columnStride,
+                retMatrix.elements, retMatrix.offset, retMatrix.rowStride, retMatrix.columnStride);
+        return retMatrix;
     }
 
     /**
@@ -118,15 +590,134 @@ public class DenseMatrix {
         if (matrix.numOfRows() != numOfRows() || matrix.numOfColumns() != numOfColumns()) {
             throw new IllegalArgumentException("matrix must have same number of rows AND columns");
         }
-        DenseMatrix retMatrix = new DenseMatrix(numOfRows(), numOfColumns());
-        for (int i = 0; i < numOfRows(); i++) {
-            for (int j = 0; j < numOfColumns(); j++) {
-                retMatrix.set(i, j, get(i, j) + matrix.get(i, j));
-            }
+        DenseMatrix retMatrix = new DenseMatrix(rows, columns, layout);
+        if (elements == null || matrix.elements == null) {
+            DenseKernels.add(this, matrix, retMatrix);
+            return retMatrix;
+        }
+        double[] out = retMatrix.elements;
+        if (matrix.layout == layout && isContiguous() && matrix.isContiguous()) {
+            VectorOps.get().add(elements, offset, matrix.elements, matrix.offset, out, 0, out.length);
+            return retMatrix;
+        }
+        DenseKernels.add(rows, columns,
+                elements, offset, rowStride, columnStride,
+                matrix.elements, matrix.offset, matrix.rowStride, matrix.columnStride,
+                out, retMatrix.offset, retMatrix.rowStride, retMatrix.columnStride);
+        return retMatrix;
+    }
+
+    /**
+     * Adds two {@code DenseMatrix}s together, splitting the work across the given {@link ForkJoinPool}. Returns a new
+     * DenseMatrix with the results.
+     * <p>
+     * Small matrices are added on the calling thread. Throws an {@link IllegalArgumentException} if {@code matrix} or
+     * {@code pool} is null or if the matrices are not compatible.
+     *
+     * @param matrix DenseMatrix to add to this matrix
+     * @param pool   pool to run the addition in
+     * @return new DenseMatrix with the results
+     */
+    public DenseMatrix addParallel(DenseMatrix matrix, ForkJoinPool pool) {
+        if (matrix == null) {
+            throw new IllegalArgumentException("matrix must not be null");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        if (matrix.numOfRows() != numOfRows() || matrix.numOfColumns() != numOfColumns()) {
+            throw new IllegalArgumentException("matrix must have same number of rows AND columns");
+        }
+        DenseMatrix retMatrix = new DenseMatrix(rows, columns, layout);
+        if (elements == null || matrix.elements == null) {
+            DenseKernels.add(this, matrix, retMatrix);
+            return retMatrix;
+        }
+        DenseKernels.AddTask task = new DenseKernels.AddTask(rows, columns,
+                elements, offset, rowStride, columnStride,
+                matrix.elements, matrix.offset, matrix.rowStride, matrix.columnStride,
+                retMatrix.elements, retMatrix.offset, retMatrix.rowStride, retMatrix.columnStride);
+        if ((long) rows * columns <= DenseKernels.ADD_SEQUENTIAL_CUTOFF) {
+            task.compute();
+        } else {
+            pool.invoke(task);
         }
         return retMatrix;
     }
 
+    /**
+     * Adds {@code matrix} to this DenseMatrix, storing the results in this matrix. If {@code matrix} shares storage
+     * with this matrix, such as a transpose or overlapping view of it, it is copied first so that no value is read
+     * after it has been overwritten.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if the matrices are not compatible.
+     *
+     * @param matrix DenseMatrix to add to this matrix
+     * @return this matrix
+     */
+    public DenseMatrix addInPlace(DenseMatrix matrix) {
+        if (matrix == null) {
+            throw new IllegalArgumentException("matrix must not be null");
+        }
+        if (matrix.numOfRows() != numOfRows() || matrix.numOfColumns() != numOfColumns()) {
+            throw new IllegalArgumentException("matrix must have same number of rows AND columns");
+        }
+        if (matrix.storage() == storage()) {
+            matrix = matrix.copy();
+        }
+        modifications[0]++;
+        if (elements == null || matrix.elements == null) {
+            DenseKernels.add(this, matrix, this);
+            return this;
+        }
+        DenseKernels.add(rows, columns,
+                elements, offset, rowStride, columnStride,
+                matrix.elements, matrix.offset, matrix.rowStride, matrix.columnStride,
+                elements, offset, rowStride, columnStride);
+        return this;
+    }
+
+    /**
+     * Multiplies every value of this DenseMatrix by {@code factor}, storing the results in this matrix.
+     *
+     * @param factor factor to scale by
+     * @return this matrix
+     */
+    public DenseMatrix scaleInPlace(double factor) {
+        modifications[0]++;
+        if (elements == null) {
+            DenseKernels.scale(factor, this);
+            return this;
+        }
+        DenseKernels.scale(rows, columns, factor, elements, offset, rowStride, columnStride);
+        return this;
+    }
+
+    /**
+     * Adds {@code matrix} to this DenseMatrix. A sparse matrix is added by copying this matrix and adding only its
+     * stored values on top, and any other {@link Matrix} goes through {@link Matrix#toDense()}. Returns a new
+     * DenseMatrix with the results.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if the matrices are not compatible.
+     *
+     * @param matrix Matrix to add to this matrix
+     * @return new DenseMatrix with the results
+     */
+    @Override
+    public DenseMatrix add(Matrix matrix) {
+        if (matrix instanceof DenseMatrix || matrix == null) {
+            return add((DenseMatrix) matrix);
+        }
+        CompressedSparseMatrix sparse = SparseKernels.asCompressed(matrix);
+        if (sparse == null) {
+            return add(matrix.toDense());
+        }
+        if (sparse.numOfRows() != rows || sparse.numOfColumns() != columns) {
+            throw new IllegalArgumentException("matrix must have same number of rows AND columns");
+        }
+        return SparseKernels.addDense(sparse, SparseKernels.onHeap(this));
+    }
+
     /**
      * Multiplies two {@code DenseMatrix}s together. Returns a new DenseMatrix with the results.
      * <p>
@@ -136,30 +727,386 @@ public class DenseMatrix {
      * @return new DenseMatrix with the results
      */
     public DenseMatrix multiply(DenseMatrix matrix) {
+        return multiply(matrix, DenseKernels.getTileSize());
+    }
+
+    /**
+     * Multiplies this DenseMatrix by {@code matrix}. A sparse matrix is multiplied by scattering its stored rows into
+     * the result, so the work grows with its number of stored values rather than its size, and any other
+     * {@link Matrix} goes through {@link Matrix#toDense()}. Returns a new DenseMatrix with the results.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if the matrices are not compatible.
+     *
+     * @param matrix Matrix to multiply with
+     * @return new DenseMatrix with the results
+     */
+    @Override
+    public DenseMatrix multiply(Matrix matrix) {
+        if (matrix instanceof DenseMatrix || matrix == null) {
+            return multiply((DenseMatrix) matrix);
+        }
+        CompressedSparseMatrix sparse = SparseKernels.asCompressed(matrix);
+        if (sparse == null) {
+            return multiply(matrix.toDense());
+        }
+        if (columns != sparse.numOfRows()) {
+            throw new IllegalArgumentException("matrix dimensions are not equal");
+        }
+        return SparseKernels.denseMultiply(SparseKernels.onHeap(this),
+                sparse.toOrientation(CompressedSparseMatrix.Orientation.ROW));
+    }
+
+    /**
+     * Multiplies two {@code DenseMatrix}s together using the given tile size for the blocked kernel. Returns a new
+     * DenseMatrix with the results.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null, if the matrices are not compatible, or
+     * if {@code tileSize} is less than {@code 1}.
+     *
+     * @param matrix   DenseMatrix to multiply with
+     * @param tileSize edge length of the square blocks the product is computed in
+     * @return new DenseMatrix with the results
+     */
+    public DenseMatrix multiply(DenseMatrix matrix, int tileSize) {
+        if (matrix == null) {
+            throw new IllegalArgumentException("matrix must not be null");
+        }
+        if (numOfRows() != matrix.numOfColumns() && numOfColumns() != matrix.numOfRows()) {
+            throw new IllegalArgumentException("matrix dimensions are not equal");
+        }
+        if (numOfColumns() > matrix.numOfRows()) {
+            throw new IllegalArgumentException("matrix dimensions are not equal");
+        }
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("tile size must be greater than 0");
+        }
+        DenseMatrix retMatrix = new DenseMatrix(rows, matrix.columns);
+        if (elements == null || matrix.elements == null) {
+            DenseKernels.gemm(1D, this, matrix, retMatrix, tileSize);
+            return retMatrix;
+        }
+        DenseKernels.gemm(rows, matrix.columns, columns,
+                elements, offset, rowStride, columnStride,
+                matrix.elements, matrix.offset, matrix.rowStride, matrix.columnStride,
+                retMatrix.elements, retMatrix.offset, retMatrix.rowStride, retMatrix.columnStride,
+                tileSize);
+        return retMatrix;
+    }
+
+    /**
+     * Multiplies two {@code DenseMatrix}s together, splitting the result into blocks that are computed across the
+     * given {@link ForkJoinPool}. Returns a new DenseMatrix with the results.
+     * <p>
+     * Small products are computed on the calling thread. Throws an {@link IllegalArgumentException} if
+     * {@code matrix} or {@code pool} is null or if the matrices are not compatible.
+     *
+     * @param matrix DenseMatrix to multiply with
+     * @param pool   pool to run the multiplication in
+     * @return new DenseMatrix with the results
+     */
+    public DenseMatrix multiplyParallel(DenseMatrix matrix, ForkJoinPool pool) {
+        if (matrix == null) {
+            throw new IllegalArgumentException("matrix must not be null");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        if (numOfRows() != matrix.numOfColumns() && numOfColumns() != matrix.numOfRows()) {
+            throw new IllegalArgumentException("matrix dimensions are not equal");
+        }
+        if (numOfColumns() > matrix.numOfRows()) {
+            throw new IllegalArgumentException("matrix dimensions are not equal");
+        }
+        DenseMatrix retMatrix = new DenseMatrix(rows, matrix.columns);
+        if (elements == null || matrix.elements == null) {
+            DenseKernels.gemm(1D, this, matrix, retMatrix, DenseKernels.getTileSize());
+            return retMatrix;
+        }
+        DenseKernels.GemmTask task = new DenseKernels.GemmTask(rows, matrix.columns, columns,
+                elements, offset, rowStride, columnStride,
+                matrix.elements, matrix.offset, matrix.rowStride, matrix.columnStride,
+                retMatrix.elements, retMatrix.offset, retMatrix.rowStride, retMatrix.columnStride,
+                DenseKernels.getTileSize());
+        if ((long) rows * matrix.columns * columns <= DenseKernels.GEMM_SEQUENTIAL_CUTOFF) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+        return retMatrix;
+    }
+
+    /**
+     * Multiplies two {@code DenseMatrix}s together using Strassen's algorithm with the default crossover size.
+     * Returns a new DenseMatrix with the results.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if the matrices are not compatible.
+     *
+     * @param matrix DenseMatrix to multiply with
+     * @return new DenseMatrix with the results
+     * @see #multiplyStrassen(DenseMatrix, int)
+     */
+    public DenseMatrix multiplyStrassen(DenseMatrix matrix) {
+        return multiplyStrassen(matrix, Strassen.DEFAULT_CROSSOVER);
+    }
+
+    /**
+     * Multiplies two {@code DenseMatrix}s together using Strassen's algorithm. Returns a new DenseMatrix with the
+     * results.
+     * <p>
+     * The operands are padded with zeros to a common square size, split into quadrants recursively, and multiplied
+     * with the blocked classical kernel once a quadrant is no larger than {@code crossover}. Products that already
+     * fit under the crossover are multiplied classically, as are products with a dimension less than half of the
+     * largest one, where the padding would cost more than the recursion saves, and products too large to pad into
+     * one array. The result can differ from {@link #multiply(DenseMatrix)} by rounding error that grows with the
+     * recursion depth.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null, if the matrices are not compatible, or
+     * if {@code crossover} is less than {@code 1}.
+     *
+     * @param matrix    DenseMatrix to multiply with
+     * @param crossover largest size multiplied with the classical kernel
+     * @return new DenseMatrix with the results
+     */
+    public DenseMatrix multiplyStrassen(DenseMatrix matrix, int crossover) {
         if (matrix == null) {
             throw new IllegalArgumentException("matrix must not be null");
         }
         if (numOfRows() != matrix.numOfColumns() && numOfColumns() != matrix.numOfRows()) {
             throw new IllegalArgumentException("matrix dimensions are not equal");
         }
-        int retRows = numOfRows();
-        int retCols = matrix.numOfColumns();
-        DenseMatrix retMatrix = new DenseMatrix(retRows, retCols);
-        for (int i = 0; i < retRows; i++) {
-            for (int j = 0; j < retCols; j++) {
-                retMatrix.set(i, j, 0D);
+        if (numOfColumns() > matrix.numOfRows()) {
+            throw new IllegalArgumentException("matrix dimensions are not equal");
+        }
+        if (crossover < 1) {
+            throw new IllegalArgumentException("crossover must be greater than 0");
+        }
+        int largest = Math.max(rows, Math.max(columns, matrix.columns));
+        if (largest <= crossover || !Strassen.isWorthPadding(rows, columns, matrix.columns, crossover)) {
+            return multiply(matrix);
+        }
+        int size = (int) Strassen.paddedSize(largest, crossover);
+        double[] product = Strassen.multiply(padded(size), matrix.padded(size), size, crossover);
+        DenseMatrix retMatrix = new DenseMatrix(rows, matrix.columns);
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(product, i * size, retMatrix.elements, i * retMatrix.rowStride, matrix.columns);
+        }
+        return retMatrix;
+    }
+
+    /**
+     * Multiplies {@code a} by {@code b} and stores the results in {@code out}, overwriting its previous contents.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if any matrix is null, if {@code a} and {@code b} are not compatible,
+     * if {@code out} does not have as many rows as {@code a} and as many columns as {@code b}, or if {@code out}
+     * shares its backing array with {@code a} or {@code b}.
+     *
+     * @param a   left operand
+     * @param b   right operand
+     * @param out DenseMatrix to store the results in
+     * @return {@code out}
+     */
+    public static DenseMatrix multiplyInto(DenseMatrix a, DenseMatrix b, DenseMatrix out) {
+        return gemm(1D, a, b, 0D, out);
+    }
+
+    /**
+     * Computes {@code c = alpha * a * b + beta * c}, storing the results in {@code c}. When {@code beta} is zero the
+     * previous contents of {@code c} are ignored.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if any matrix is null, if {@code a} and {@code b} are not compatible,
+     * if {@code c} does not have as many rows as {@code a} and as many columns as {@code b}, or if {@code c} shares
+     * its backing array with {@code a} or {@code b}.
+     *
+     * @param alpha factor applied to the product
+     * @param a     left operand
+     * @param b     right operand
+     * @param beta  factor applied to the previous contents of {@code c}
+     * @param c     DenseMatrix to accumulate into
+     * @return {@code c}
+     */
+    public static DenseMatrix gemm(double alpha, DenseMatrix a, DenseMatrix b, double beta, DenseMatrix c) {
+        if (a == null || b == null || c == null) {
+            throw new IllegalArgumentException("matrix must not be null");
+        }
+        if (a.numOfRows() != b.numOfColumns() && a.numOfColumns() != b.numOfRows()) {
+            throw new IllegalArgumentException("matrix dimensions are not equal");
+        }
+        if (a.numOfColumns() > b.numOfRows()) {
+            throw new IllegalArgumentException("matrix dimensions are not equal");
+        }
+        if (c.numOfRows() != a.numOfRows() || c.numOfColumns() != b.numOfColumns()) {
+            throw new IllegalArgumentException("output matrix must have the dimensions of the product");
+        }
+        if (c.storage() == a.storage() || c.storage() == b.storage()) {
+            throw new IllegalArgumentException("output matrix must not share storage with an operand");
+        }
+        c.modifications[0]++;
+        if (a.elements == null || b.elements == null || c.elements == null) {
+            if (beta != 1D) {
+                DenseKernels.scale(beta, c);
+            }
+            if (alpha != 0D) {
+                DenseKernels.gemm(alpha, a, b, c, DenseKernels.getTileSize());
             }
+            return c;
         }
-        for (int i = 0; i < numOfRows(); i++) {
-            for (int j = 0; j < matrix.numOfColumns(); j++) {
-                for (int k = 0; k < numOfColumns(); k++) {
-                    double curVal = retMatrix.get(i, j);
-                    double adding = get(i, k) * matrix.get(k, j);
-                    retMatrix.set(i, j, curVal + adding);
-                }
+        if (beta != 1D) {
+            DenseKernels.scale(c.rows, c.columns, beta, c.elements, c.offset, c.rowStride, c.columnStride);
+        }
+        if (alpha != 0D) {
+            DenseKernels.gemm(a.rows, b.columns, a.columns, alpha,
+                    a.elements, a.offset, a.rowStride, a.columnStride,
+                    b.elements, b.offset, b.rowStride, b.columnStride,
+                    c.elements, c.offset, c.rowStride, c.columnStride,
+                    DenseKernels.getTileSize());
+        }
+        return c;
+    }
+
+    /**
+     * Multiplies this DenseMatrix by the vector {@code x}, storing the results in {@code y}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code x} or {@code y} is null, if {@code x} is not as long as
+     * this matrix has columns, if {@code y} is not as long as this matrix has rows, or if {@code x} and {@code y} are
+     * the same array.
+     *
+     * @param x vector to multiply
+     * @param y vector to store the results in
+     * @return {@code y}
+     */
+    public double[] multiply(double[] x, double[] y) {
+        checkVectors(x, y);
+        if (elements == null) {
+            DenseKernels.gemv(this, x, y);
+        } else {
+            DenseKernels.gemv(rows, columns, elements, offset, rowStride, columnStride, x, y);
+        }
+        return y;
+    }
+
+    /**
+     * Multiplies this DenseMatrix by every vector in {@code xs}, storing the result for {@code xs[v]} in
+     * {@code ys[v]}. The matrix is walked in blocks of rows that stay in cache while all of the vectors are applied to
+     * them, so this is faster than calling {@link #multiply(double[], double[])} once per vector.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code xs} or {@code ys} is null, if they do not hold the same
+     * number of vectors, or if any pair of vectors would be rejected by {@link #multiply(double[], double[])}.
+     *
+     * @param xs vectors to multiply
+     * @param ys vectors to store the results in
+     * @return {@code ys}
+     */
+    public double[][] multiply(double[][] xs, double[][] ys) {
+        if (xs == null || ys == null) {
+            throw new IllegalArgumentException("vectors must not be null");
+        }
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("must have as many result vectors as input vectors");
+        }
+        for (int v = 0; v < xs.length; v++) {
+            checkVectors(xs[v], ys[v]);
+        }
+        if (elements == null) {
+            for (int v = 0; v < xs.length; v++) {
+                DenseKernels.gemv(this, xs[v], ys[v]);
             }
+        } else {
+            DenseKernels.gemvBatch(rows, columns, elements, offset, rowStride, columnStride, xs, ys);
         }
-        return retMatrix;
+        return ys;
+    }
+
+    private void checkVectors(double[] x, double[] y) {
+        if (x == null || y == null) {
+            throw new IllegalArgumentException("vector must not be null");
+        }
+        if (x.length != columns) {
+            throw new IllegalArgumentException("x must have as many values as the matrix has columns");
+        }
+        if (y.length != rows) {
+            throw new IllegalArgumentException("y must have as many values as the matrix has rows");
+        }
+        if (x == y) {
+            throw new IllegalArgumentException("x and y must not be the same array");
+        }
+    }
+
+    /**
+     * Gets and returns the tile size used by {@link #multiply(DenseMatrix)}.
+     *
+     * @return tile size
+     */
+    public static int getTileSize() {
+        return DenseKernels.getTileSize();
+    }
+
+    /**
+     * Sets the tile size used by {@link #multiply(DenseMatrix)}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code tileSize} is less than {@code 1}.
+     *
+     * @param tileSize new tile size
+     */
+    public static void setTileSize(int tileSize) {
+        DenseKernels.setTileSize(tileSize);
+    }
+
+    /**
+     * Runs a short warm-up multiplication with several tile sizes, makes the fastest one the tile size used by
+     * {@link #multiply(DenseMatrix)} and returns it.
+     *
+     * @return the chosen tile size
+     */
+    public static int calibrateTileSize() {
+        return DenseKernels.calibrateTileSize();
+    }
+
+    /**
+     * Writes this DenseMatrix to {@code path} in the binary DenseMatrix format, replacing any existing file. The file
+     * holds a small header with the dimensions, layout and a CRC-32 checksum followed by the values as raw
+     * little-endian doubles in this matrix's layout. Such a file can be loaded with {@link #read(Path)}, streamed with
+     * {@link DenseMatrixReader}, or mapped with {@link OffHeapDenseMatrix#open(Path)}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code path} is null.
+     *
+     * @param path file to write to
+     * @throws IOException if the file could not be written
+     */
+    public void write(Path path) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("path must not be null");
+        }
+        DenseMatrixFile.save(this, path);
+    }
+
+    /**
+     * Reads a DenseMatrix written by {@link #write(Path)} into a new matrix on the heap, using the layout recorded in
+     * the file.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code path} is null.
+     *
+     * @param path file to read
+     * @return new DenseMatrix holding the file's values
+     * @throws IOException if the file could not be read, is not a DenseMatrix file or fails its checksum
+     */
+    public static DenseMatrix read(Path path) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("path must not be null");
+        }
+        return DenseMatrixFile.load(path);
+    }
+
+    /**
+     * Copies this matrix into the top-left corner of a zeroed {@code size x size} row-major array.
+     */
+    private double[] padded(int size) {
+        double[] result = new double[size * size];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                result[i * size + j] = getQuick(i, j);
+            }
+        }
+        return result;
     }
 
     @Override
@@ -177,9 +1124,14 @@ public class DenseMatrix {
             return false;
         }
 
+        if (layout == other.layout && isContiguous() && other.isContiguous()) {
+            return VectorOps.get().allClose(elements, offset, other.elements, other.offset, rows * columns,
+                    EQUALS_TOLERANCE);
+        }
+
         for (int i = 0; i < numOfRows(); i++) {
             for (int j = 0; j < numOfColumns(); j++) {
-                if (Math.abs(get(i, j) - other.get(i, j)) > 0.00005) {
+                if (Math.abs(get(i, j) - other.get(i, j)) > EQUALS_TOLERANCE) {
                     return false;
                 }
             }
@@ -190,9 +1142,15 @@ public class DenseMatrix {
 
     @Override
     public int hashCode() {
+        // sum of the Arrays.hashCode of each row, independent of the layout
         int hash = 0;
-        for (double[] element : elements) {
-            hash += Arrays.hashCode(element);
+        for (int i = 0; i < rows; i++) {
+            int rowHash = 1;
+            for (int j = 0; j < columns; j++) {
+                long bits = Double.doubleToLongBits(getQuick(i, j));
+                rowHash = 31 * rowHash + (int) (bits ^ (bits >>> 32));
+            }
+            hash += rowHash;
         }
         return hash;
     }
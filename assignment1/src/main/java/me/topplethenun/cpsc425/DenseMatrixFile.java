@@ -0,0 +1,252 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The on-disk format of a {@link DenseMatrix}: a fixed-size little-endian header followed by the values as raw
+ * little-endian doubles in the order given by the layout.
+ * <p>
+ * The header is laid out as follows.
+ * <pre>
+ * offset  size  field
+ *      0     4  magic, the ASCII bytes "DMAT"
+ *      4     4  format version
+ *      8     4  number of rows
+ *     12     4  number of columns
+ *     16     4  layout, the ordinal of {@link DenseMatrix.Layout}
+ *     20     4  flags; bit 0 is set when the checksum field is valid
+ *     24     8  CRC-32 of the value bytes
+ * </pre>
+ * Files written by {@link #save(DenseMatrix, Path)} always carry a checksum. Files created for memory mapping do not,
+ * since their values change after the header is written.
+ *
+ * @author Richard Harrah
+ */
+final class DenseMatrixFile {
+
+    static final int MAGIC = 0x54414D44;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int FLAG_CHECKSUM = 1;
+
+    private static final int TRANSFER_SIZE = 1 << 16;
+
+    final int rows;
+    final int columns;
+    final DenseMatrix.Layout layout;
+    final int flags;
+    final long checksum;
+
+    DenseMatrixFile(int rows, int columns, DenseMatrix.Layout layout) {
+        this(rows, columns, layout, 0, 0L);
+    }
+
+    DenseMatrixFile(int rows, int columns, DenseMatrix.Layout layout, int flags, long checksum) {
+        this.rows = rows;
+        this.columns = columns;
+        this.layout = layout;
+        this.flags = flags;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Returns the size in bytes of a file holding this header and its values.
+     *
+     * @return size of the file
+     */
+    long fileSize() {
+        return HEADER_SIZE + (long) rows * columns * Double.BYTES;
+    }
+
+    /**
+     * Writes this header at the start of the channel.
+     *
+     * @param channel channel to write to
+     * @throws IOException if the header could not be written
+     */
+    void write(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(columns).putInt(layout.ordinal());
+        buffer.putInt(flags).putLong(checksum);
+        buffer.clear();
+        long position = 0;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Reads and validates the header at the start of the channel.
+     *
+     * @param channel channel to read from
+     * @return the header
+     * @throws IOException if the header could not be read or is not a valid DenseMatrix header
+     */
+    static DenseMatrixFile read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long position = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("file is too short to be a DenseMatrix");
+            }
+            position += read;
+        }
+        buffer.flip();
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("file is not a DenseMatrix");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported DenseMatrix format version " + version);
+        }
+        int rows = buffer.getInt();
+        int columns = buffer.getInt();
+        int layout = buffer.getInt();
+        int flags = buffer.getInt();
+        long checksum = buffer.getLong();
+        if (rows < 1 || columns < 1 || layout < 0 || layout >= DenseMatrix.Layout.values().length) {
+            throw new IOException("corrupt DenseMatrix header");
+        }
+        DenseMatrixFile header = new DenseMatrixFile(rows, columns, DenseMatrix.Layout.values()[layout], flags,
+                checksum);
+        if (channel.size() < header.fileSize()) {
+            throw new IOException("file is too short for a " + rows + "x" + columns + " DenseMatrix");
+        }
+        return header;
+    }
+
+    /**
+     * Writes {@code matrix} to {@code path} in its own layout, replacing any existing file. Values are copied into a
+     * reusable buffer in bulk and written through a channel; the header is written last, once the checksum is known.
+     *
+     * @param matrix matrix to write
+     * @param path   file to write to
+     * @throws IOException if the file could not be written
+     */
+    static void save(DenseMatrix matrix, Path path) throws IOException {
+        int rows = matrix.numOfRows();
+        int columns = matrix.numOfColumns();
+        DenseMatrix.Layout layout = matrix.getLayout();
+        int outer = layout == DenseMatrix.Layout.ROW_MAJOR ? rows : columns;
+        int inner = layout == DenseMatrix.Layout.ROW_MAJOR ? columns : rows;
+        ByteBuffer bytes = ByteBuffer.allocateDirect(TRANSFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        DoubleBuffer doubles = bytes.asDoubleBuffer();
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(HEADER_SIZE);
+            if (matrix.isContiguous()) {
+                double[] elements = matrix.getElements();
+                int start = matrix.getOffset();
+                int size = rows * columns;
+                for (int done = 0; done < size; done += doubles.capacity()) {
+                    int length = Math.min(doubles.capacity(), size - done);
+                    doubles.clear();
+                    doubles.put(elements, start + done, length);
+                    flush(channel, bytes, length, crc);
+                }
+            } else {
+                doubles.clear();
+                for (int o = 0; o < outer; o++) {
+                    for (int i = 0; i < inner; i++) {
+                        if (!doubles.hasRemaining()) {
+                            flush(channel, bytes, doubles.position(), crc);
+                            doubles.clear();
+                        }
+                        doubles.put(layout == DenseMatrix.Layout.ROW_MAJOR ? matrix.getQuick(o, i) :
+                                matrix.getQuick(i, o));
+                    }
+                }
+                flush(channel, bytes, doubles.position(), crc);
+            }
+            new DenseMatrixFile(rows, columns, layout, FLAG_CHECKSUM, crc.getValue()).write(channel);
+        }
+    }
+
+    /**
+     * Reads the DenseMatrix stored at {@code path} into a new heap matrix with the layout recorded in the file,
+     * verifying the checksum when the file carries one.
+     *
+     * @param path file to read
+     * @return new DenseMatrix holding the file's values
+     * @throws IOException if the file could not be read, is not a DenseMatrix file or fails its checksum
+     */
+    static DenseMatrix load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            DenseMatrixFile header = read(channel);
+            if ((long) header.rows * header.columns > Integer.MAX_VALUE) {
+                throw new IOException("matrix is too large for the heap; map it with OffHeapDenseMatrix instead");
+            }
+            DenseMatrix matrix = new DenseMatrix(header.rows, header.columns, header.layout);
+            double[] elements = matrix.getElements();
+            ByteBuffer bytes = ByteBuffer.allocateDirect(TRANSFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            DoubleBuffer doubles = bytes.asDoubleBuffer();
+            CRC32 crc = new CRC32();
+            long position = HEADER_SIZE;
+            for (int offset = 0; offset < elements.length; offset += doubles.capacity()) {
+                int length = Math.min(doubles.capacity(), elements.length - offset);
+                position += fill(channel, bytes, length, position);
+                crc.update(bytes);
+                doubles.clear();
+                doubles.get(elements, offset, length);
+            }
+            if ((header.flags & FLAG_CHECKSUM) != 0 && crc.getValue() != header.checksum) {
+                throw new IOException("DenseMatrix checksum mismatch");
+            }
+            return matrix;
+        }
+    }
+
+    /**
+     * Reads exactly {@code count} doubles starting at byte {@code position} of the channel into the start of
+     * {@code bytes}, leaving the buffer positioned at zero with its limit after the last byte read.
+     *
+     * @param channel  channel to read from
+     * @param bytes    buffer to read into
+     * @param count    number of doubles to read
+     * @param position byte position in the channel
+     * @return number of bytes read
+     * @throws IOException if the channel ends before {@code count} doubles were read
+     */
+    static int fill(FileChannel channel, ByteBuffer bytes, int count, long position) throws IOException {
+        bytes.clear();
+        bytes.limit(count * Double.BYTES);
+        while (bytes.hasRemaining()) {
+            int read = channel.read(bytes, position + bytes.position());
+            if (read < 0) {
+                throw new IOException("unexpected end of DenseMatrix file");
+            }
+        }
+        bytes.flip();
+        return count * Double.BYTES;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer bytes, int count, CRC32 crc) throws IOException {
+        bytes.clear();
+        bytes.limit(count * Double.BYTES);
+        crc.update(bytes);
+        bytes.position(0);
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+}
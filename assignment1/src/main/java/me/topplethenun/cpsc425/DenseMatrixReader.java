@@ -0,0 +1,146 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads ranges of rows from a file written by {@link DenseMatrix#write(Path)} without loading the rest of the file.
+ * Opening a reader only reads the header. Partial reads cannot be checked against the file's checksum; use
+ * {@link DenseMatrix#read(Path)} to load and verify a whole matrix.
+ *
+ * @author Richard Harrah
+ */
+public class DenseMatrixReader implements Closeable {
+
+    private static final int TRANSFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final DenseMatrixFile header;
+    private final ByteBuffer bytes;
+    private final DoubleBuffer doubles;
+
+    private DenseMatrixReader(FileChannel channel, DenseMatrixFile header) {
+        this.channel = channel;
+        this.header = header;
+        this.bytes = ByteBuffer.allocateDirect(TRANSFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.doubles = bytes.asDoubleBuffer();
+    }
+
+    /**
+     * Opens a reader over the DenseMatrix file at {@code path}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code path} is null.
+     *
+     * @param path file to read
+     * @return new DenseMatrixReader
+     * @throws IOException if the file could not be opened or is not a DenseMatrix file
+     */
+    public static DenseMatrixReader open(Path path) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("path must not be null");
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new DenseMatrixReader(channel, DenseMatrixFile.read(channel));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of rows of the stored matrix.
+     *
+     * @return number of rows
+     */
+    public int numOfRows() {
+        return header.rows;
+    }
+
+    /**
+     * Returns the number of columns of the stored matrix.
+     *
+     * @return number of columns
+     */
+    public int numOfColumns() {
+        return header.columns;
+    }
+
+    /**
+     * Returns the layout of the stored matrix.
+     *
+     * @return layout of the stored matrix
+     */
+    public DenseMatrix.Layout getLayout() {
+        return header.layout;
+    }
+
+    /**
+     * Reads {@code count} rows starting at {@code firstRow} into a new row-major DenseMatrix. Rows of a row-major
+     * file are read in one contiguous run; rows of a column-major file are gathered with one read per column.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code count} is less than {@code 1} or if the range does not
+     * lie within the stored matrix.
+     *
+     * @param firstRow first row to read
+     * @param count    number of rows to read
+     * @return new DenseMatrix holding the rows
+     * @throws IOException if the rows could not be read
+     */
+    public DenseMatrix readRows(int firstRow, int count) throws IOException {
+        if (count < 1) {
+            throw new IllegalArgumentException("must read at least one row");
+        }
+        if (firstRow < 0 || (long) firstRow + count > header.rows) {
+            throw new IllegalArgumentException("rows must lie within the stored matrix");
+        }
+        int columns = header.columns;
+        DenseMatrix matrix = new DenseMatrix(count, columns);
+        double[] elements = matrix.getElements();
+        if (header.layout == DenseMatrix.Layout.ROW_MAJOR) {
+            read((long) firstRow * columns, elements, 0, elements.length);
+        } else {
+            double[] column = new double[count];
+            for (int j = 0; j < columns; j++) {
+                read((long) j * header.rows + firstRow, column, 0, count);
+                for (int i = 0; i < count; i++) {
+                    elements[i * columns + j] = column[i];
+                }
+            }
+        }
+        return matrix;
+    }
+
+    private void read(long firstValue, double[] target, int offset, int length) throws IOException {
+        long position = DenseMatrixFile.HEADER_SIZE + firstValue * Double.BYTES;
+        for (int done = 0; done < length; ) {
+            int chunk = Math.min(doubles.capacity(), length - done);
+            position += DenseMatrixFile.fill(channel, bytes, chunk, position);
+            doubles.clear();
+            doubles.get(target, offset + done, chunk);
+            done += chunk;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
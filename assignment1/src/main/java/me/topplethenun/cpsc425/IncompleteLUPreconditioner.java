@@ -0,0 +1,95 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import java.util.Arrays;
+
+/**
+ * The ILU(0) preconditioner: an LU factorization of a square matrix that only keeps values at positions stored in the
+ * matrix itself. Both factors are stored in one set of compressed sparse row arrays, with the unit diagonal of
+ * {@code L} left implicit, and are computed row by row with the IKJ variant of Gaussian elimination.
+ *
+ * @author Richard Harrah
+ * @see Preconditioner#incompleteLU(CompressedSparseMatrix)
+ */
+final class IncompleteLUPreconditioner implements Preconditioner {
+
+    private final int size;
+    private final int[] pointers;
+    private final int[] indices;
+    private final double[] values;
+    private final int[] diagonalPositions;
+
+    IncompleteLUPreconditioner(CompressedSparseMatrix matrix) {
+        if (matrix == null) {
+            throw new IllegalArgumentException("matrix must not be null");
+        }
+        if (matrix.numOfRows() != matrix.numOfColumns()) {
+            throw new IllegalArgumentException("matrix must be square");
+        }
+        CompressedSparseMatrix csr = matrix.toDiagonalMode(SparseMatrix.DiagonalMode.GENERAL)
+                .toOrientation(CompressedSparseMatrix.Orientation.ROW);
+        size = csr.rows;
+        pointers = csr.pointers;
+        indices = csr.indices;
+        values = csr.values.clone();
+        diagonalPositions = new int[size];
+        for (int i = 0; i < size; i++) {
+            diagonalPositions[i] = csr.find(i, i);
+            if (diagonalPositions[i] < 0) {
+                throw new ArithmeticException("diagonal value of row " + i + " is zero");
+            }
+        }
+        int[] positions = new int[size];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < size; i++) {
+            for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+                positions[indices[p]] = p;
+            }
+            for (int p = pointers[i]; p < diagonalPositions[i]; p++) {
+                int k = indices[p];
+                double factor = values[p] / values[diagonalPositions[k]];
+                values[p] = factor;
+                for (int q = diagonalPositions[k] + 1; q < pointers[k + 1]; q++) {
+                    int position = positions[indices[q]];
+                    if (position >= 0) {
+                        values[position] -= factor * values[q];
+                    }
+                }
+            }
+            if (values[diagonalPositions[i]] == 0D) {
+                throw new ArithmeticException("pivot of row " + i + " is zero");
+            }
+            for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+                positions[indices[p]] = -1;
+            }
+        }
+    }
+
+    @Override
+    public void apply(double[] r, double[] z) {
+        for (int i = 0; i < size; i++) {
+            double sum = r[i];
+            for (int p = pointers[i]; p < diagonalPositions[i]; p++) {
+                sum -= values[p] * z[indices[p]];
+            }
+            z[i] = sum;
+        }
+        for (int i = size - 1; i >= 0; i--) {
+            double sum = z[i];
+            for (int p = diagonalPositions[i] + 1; p < pointers[i + 1]; p++) {
+                sum -= values[p] * z[indices[p]];
+            }
+            z[i] = sum / values[diagonalPositions[i]];
+        }
+    }
+
+}
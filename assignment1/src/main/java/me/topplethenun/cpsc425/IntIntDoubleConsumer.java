@@ -0,0 +1,31 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+/**
+ * An operation that accepts a row, a column and the value at that position, without boxing any of them.
+ *
+ * @author Richard Harrah
+ * @see CompressedSparseMatrix#forEachNonZero(IntIntDoubleConsumer)
+ */
+@FunctionalInterface
+public interface IntIntDoubleConsumer {
+
+    /**
+     * Performs this operation on the given position and value.
+     *
+     * @param row    row of the value
+     * @param column column of the value
+     * @param value  the value
+     */
+    void accept(int row, int column, double value);
+
+}
@@ -0,0 +1,351 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import java.util.Arrays;
+
+/**
+ * Solves {@code A * x = b} for a large square sparse matrix {@code A} with a preconditioned Krylov method, touching
+ * only the stored values of {@code A} through matrix-vector products. Use {@link Method#CONJUGATE_GRADIENT} for
+ * symmetric positive definite matrices and {@link Method#BICGSTAB} for everything else.
+ * <p>
+ * All work vectors are allocated when the solver is created and reused by every call to
+ * {@link #solve(double[], double[])}, so iterations do not allocate. A solver is therefore not safe for use by several
+ * threads at once; create one per thread instead.
+ * <pre>
+ * IterativeSolver solver = new IterativeSolver(matrix, IterativeSolver.Method.CONJUGATE_GRADIENT)
+ *         .preconditioner(Preconditioner.incompleteLU(matrix.compress()))
+ *         .tolerance(1e-10);
+ * boolean converged = solver.solve(b, x);
+ * </pre>
+ *
+ * @author Richard Harrah
+ */
+public final class IterativeSolver {
+
+    /**
+     * The Krylov method a solver runs.
+     */
+    public enum Method {
+        /**
+         * Preconditioned conjugate gradient, for symmetric positive definite matrices. One matrix-vector product per
+         * iteration.
+         */
+        CONJUGATE_GRADIENT,
+        /**
+         * Preconditioned biconjugate gradient stabilized, for general square matrices. Two matrix-vector products per
+         * iteration.
+         */
+        BICGSTAB
+    }
+
+    /**
+     * Relative residual a solver stops at when none is given.
+     */
+    public static final double DEFAULT_TOLERANCE = 1e-8;
+
+    /**
+     * Number of iterations a solver gives up after when none is given.
+     */
+    public static final int DEFAULT_MAX_ITERATIONS = 1000;
+
+    private final CompressedSparseMatrix matrix;
+    private final Method method;
+    private final VectorOps ops = VectorOps.get();
+    private final double[] r;
+    private final double[] z;
+    private final double[] p;
+    private final double[] q;
+    private final double[] rHat;
+    private final double[] s;
+    private final double[] t;
+    private final double[] sHat;
+    private double tolerance = DEFAULT_TOLERANCE;
+    private int maxIterations = DEFAULT_MAX_ITERATIONS;
+    private Preconditioner preconditioner = Preconditioner.NONE;
+    private ResidualListener residualListener;
+    private int iterations;
+    private double residual;
+
+    /**
+     * Constructs a solver for the compressed form of {@code matrix}. Later changes to {@code matrix} are not seen by
+     * the solver.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} or {@code method} is null or if {@code matrix} is
+     * not square.
+     *
+     * @param matrix square matrix to solve with
+     * @param method Krylov method to run
+     */
+    public IterativeSolver(SparseMatrix matrix, Method method) {
+        this(matrix == null ? null : matrix.compress(), method);
+    }
+
+    /**
+     * Constructs a solver for {@code matrix}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} or {@code method} is null or if {@code matrix} is
+     * not square.
+     *
+     * @param matrix square matrix to solve with
+     * @param method Krylov method to run
+     */
+    public IterativeSolver(CompressedSparseMatrix matrix, Method method) {
+        if (matrix == null) {
+            throw new IllegalArgumentException("matrix must not be null");
+        }
+        if (method == null) {
+            throw new IllegalArgumentException("method must not be null");
+        }
+        if (matrix.numOfRows() != matrix.numOfColumns()) {
+            throw new IllegalArgumentException("matrix must be square");
+        }
+        int n = matrix.numOfRows();
+        this.matrix = matrix.toOrientation(CompressedSparseMatrix.Orientation.ROW);
+        this.method = method;
+        this.r = new double[n];
+        this.z = new double[n];
+        this.p = new double[n];
+        this.q = new double[n];
+        boolean bicgstab = method == Method.BICGSTAB;
+        this.rHat = bicgstab ? new double[n] : null;
+        this.s = bicgstab ? new double[n] : null;
+        this.t = bicgstab ? new double[n] : null;
+        this.sHat = bicgstab ? new double[n] : null;
+    }
+
+    /**
+     * Sets the relative residual {@code ||b - A * x|| / ||b||} at which {@link #solve(double[], double[])} stops.
+     * Returns this solver.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code tolerance} is not greater than 0.
+     *
+     * @param tolerance relative residual to stop at
+     * @return this solver
+     */
+    public IterativeSolver tolerance(double tolerance) {
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("tolerance must be greater than 0");
+        }
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    /**
+     * Sets the number of iterations after which {@link #solve(double[], double[])} gives up. Returns this solver.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code maxIterations} is less than 1.
+     *
+     * @param maxIterations largest number of iterations to run
+     * @return this solver
+     */
+    public IterativeSolver maxIterations(int maxIterations) {
+        if (maxIterations < 1) {
+            throw new IllegalArgumentException("max iterations must be greater than 0");
+        }
+        this.maxIterations = maxIterations;
+        return this;
+    }
+
+    /**
+     * Sets the preconditioner applied to every residual, or {@link Preconditioner#NONE} for none. Returns this
+     * solver.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code preconditioner} is null.
+     *
+     * @param preconditioner preconditioner to apply
+     * @return this solver
+     * @see Preconditioner#jacobi(CompressedSparseMatrix)
+     * @see Preconditioner#incompleteLU(CompressedSparseMatrix)
+     */
+    public IterativeSolver preconditioner(Preconditioner preconditioner) {
+        if (preconditioner == null) {
+            throw new IllegalArgumentException("preconditioner must not be null");
+        }
+        this.preconditioner = preconditioner;
+        return this;
+    }
+
+    /**
+     * Sets the listener told the residual after every iteration, or null for none. Returns this solver.
+     *
+     * @param residualListener listener to tell, or null
+     * @return this solver
+     */
+    public IterativeSolver residualListener(ResidualListener residualListener) {
+        this.residualListener = residualListener;
+        return this;
+    }
+
+    /**
+     * Returns the number of iterations run by the last call to {@link #solve(double[], double[])}.
+     *
+     * @return number of iterations
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns the relative residual {@code ||b - A * x|| / ||b||} reached by the last call to
+     * {@link #solve(double[], double[])}.
+     *
+     * @return relative residual
+     */
+    public double getResidual() {
+        return residual;
+    }
+
+    /**
+     * Solves {@code A * x = b}, starting from the values already in {@code x} and replacing them with the solution.
+     * Returns true if the relative residual reached the tolerance within the iteration limit, and false if the limit
+     * was reached or the method broke down first, in which case {@code x} holds the last approximation.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code b} or {@code x} is null, if either is not as long as the
+     * matrix has rows, or if they are the same array.
+     *
+     * @param b right-hand side
+     * @param x initial guess, replaced by the solution
+     * @return true if the solver converged
+     */
+    public boolean solve(double[] b, double[] x) {
+        if (b == null || x == null) {
+            throw new IllegalArgumentException("vector must not be null");
+        }
+        if (b.length != r.length || x.length != r.length) {
+            throw new IllegalArgumentException("vectors must have as many values as the matrix has rows");
+        }
+        if (b == x) {
+            throw new IllegalArgumentException("b and x must not be the same array");
+        }
+        iterations = 0;
+        double normB = norm(b);
+        if (normB == 0D) {
+            Arrays.fill(x, 0D);
+            residual = 0D;
+            report();
+            return true;
+        }
+        matrix.multiply(x, q);
+        for (int i = 0; i < r.length; i++) {
+            r[i] = b[i] - q[i];
+        }
+        residual = norm(r) / normB;
+        report();
+        if (residual <= tolerance) {
+            return true;
+        }
+        return method == Method.CONJUGATE_GRADIENT ? conjugateGradient(x, normB) : bicgstab(x, normB);
+    }
+
+    private boolean conjugateGradient(double[] x, double normB) {
+        int n = r.length;
+        preconditioner.apply(r, z);
+        System.arraycopy(z, 0, p, 0, n);
+        double rz = ops.dot(r, 0, z, 0, n);
+        while (iterations < maxIterations) {
+            matrix.multiply(p, q);
+            double pq = ops.dot(p, 0, q, 0, n);
+            if (pq == 0D) {
+                return false;
+            }
+            double alpha = rz / pq;
+            ops.axpy(alpha, p, 0, x, 0, n);
+            ops.axpy(-alpha, q, 0, r, 0, n);
+            iterations++;
+            residual = norm(r) / normB;
+            report();
+            if (residual <= tolerance) {
+                return true;
+            }
+            preconditioner.apply(r, z);
+            double nextRz = ops.dot(r, 0, z, 0, n);
+            double beta = nextRz / rz;
+            rz = nextRz;
+            for (int i = 0; i < n; i++) {
+                p[i] = z[i] + beta * p[i];
+            }
+        }
+        return false;
+    }
+
+    private boolean bicgstab(double[] x, double normB) {
+        int n = r.length;
+        double[] v = q;
+        double[] pHat = z;
+        System.arraycopy(r, 0, rHat, 0, n);
+        double rho = 1D;
+        double alpha = 1D;
+        double omega = 1D;
+        while (iterations < maxIterations) {
+            double nextRho = ops.dot(rHat, 0, r, 0, n);
+            if (nextRho == 0D) {
+                return false;
+            }
+            if (iterations == 0) {
+                System.arraycopy(r, 0, p, 0, n);
+            } else {
+                double beta = (nextRho / rho) * (alpha / omega);
+                for (int i = 0; i < n; i++) {
+                    p[i] = r[i] + beta * (p[i] - omega * v[i]);
+                }
+            }
+            rho = nextRho;
+            preconditioner.apply(p, pHat);
+            matrix.multiply(pHat, v);
+            double rHatV = ops.dot(rHat, 0, v, 0, n);
+            if (rHatV == 0D) {
+                return false;
+            }
+            alpha = rho / rHatV;
+            for (int i = 0; i < n; i++) {
+                s[i] = r[i] - alpha * v[i];
+            }
+            ops.axpy(alpha, pHat, 0, x, 0, n);
+            iterations++;
+            double normS = norm(s) / normB;
+            if (normS <= tolerance) {
+                System.arraycopy(s, 0, r, 0, n);
+                residual = normS;
+                report();
+                return true;
+            }
+            preconditioner.apply(s, sHat);
+            matrix.multiply(sHat, t);
+            double tt = ops.dot(t, 0, t, 0, n);
+            omega = tt == 0D ? 0D : ops.dot(t, 0, s, 0, n) / tt;
+            ops.axpy(omega, sHat, 0, x, 0, n);
+            for (int i = 0; i < n; i++) {
+                r[i] = s[i] - omega * t[i];
+            }
+            residual = norm(r) / normB;
+            report();
+            if (residual <= tolerance) {
+                return true;
+            }
+            if (omega == 0D) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private double norm(double[] vector) {
+        return Math.sqrt(ops.dot(vector, 0, vector, 0, vector.length));
+    }
+
+    private void report() {
+        if (residualListener != null) {
+            residualListener.onIteration(iterations, residual);
+        }
+    }
+
+}
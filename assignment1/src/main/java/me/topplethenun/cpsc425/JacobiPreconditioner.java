@@ -0,0 +1,47 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+/**
+ * The Jacobi preconditioner {@code M = diag(A)}, kept as the inverses of the diagonal values so applying it is one
+ * multiplication per row.
+ *
+ * @author Richard Harrah
+ * @see Preconditioner#jacobi(CompressedSparseMatrix)
+ */
+final class JacobiPreconditioner implements Preconditioner {
+
+    private final double[] inverseDiagonal;
+
+    JacobiPreconditioner(CompressedSparseMatrix matrix) {
+        if (matrix == null) {
+            throw new IllegalArgumentException("matrix must not be null");
+        }
+        if (matrix.numOfRows() != matrix.numOfColumns()) {
+            throw new IllegalArgumentException("matrix must be square");
+        }
+        inverseDiagonal = matrix.getDiagonal();
+        for (int i = 0; i < inverseDiagonal.length; i++) {
+            if (inverseDiagonal[i] == 0D) {
+                throw new ArithmeticException("diagonal value of row " + i + " is zero");
+            }
+            inverseDiagonal[i] = 1D / inverseDiagonal[i];
+        }
+    }
+
+    @Override
+    public void apply(double[] r, double[] z) {
+        for (int i = 0; i < inverseDiagonal.length; i++) {
+            z[i] = r[i] * inverseDiagonal[i];
+        }
+    }
+
+}
@@ -0,0 +1,378 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The LU factorization {@code P * A = L * U} of a square {@link DenseMatrix} with partial pivoting, where {@code L} is
+ * unit lower triangular and {@code U} is upper triangular. Both are kept in one row-major array, so a factorization
+ * costs {@code O(n^3)} once and every {@link #solve(double[])} after it costs {@code O(n^2)}.
+ * <p>
+ * The matrix is factored in panels of {@link #DEFAULT_BLOCK_SIZE} columns. Each panel is factored column by column,
+ * the rows to its right are solved against it, and the trailing submatrix is updated with one blocked product, which
+ * is split across a {@link ForkJoinPool} when it is large. A zero pivot does not stop the factorization; the matrix
+ * is marked singular instead, and solving with it throws an {@link ArithmeticException}.
+ *
+ * @author Richard Harrah
+ * @see DenseMatrix#lu()
+ */
+public final class LUDecomposition {
+
+    /**
+     * Number of columns in each panel when none is given.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 64;
+
+    private final int size;
+    private final double[] lu;
+    private final int[] swaps;
+    private final boolean evenSwaps;
+    private final boolean singular;
+
+    /**
+     * Factors {@code matrix}, which is not changed.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} or {@code pool} is null, if {@code matrix} is not
+     * square, or if {@code blockSize} is less than {@code 1}.
+     *
+     * @param matrix    DenseMatrix to factor
+     * @param blockSize number of columns in each panel
+     * @param pool      pool to run large trailing updates in
+     */
+    public LUDecomposition(DenseMatrix matrix, int blockSize, ForkJoinPool pool) {
+        if (matrix == null) {
+            throw new IllegalArgumentException("matrix must not be null");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        if (matrix.numOfRows() != matrix.numOfColumns()) {
+            throw new IllegalArgumentException("matrix must be square");
+        }
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("block size must be greater than 0");
+        }
+        int n = matrix.numOfRows();
+        this.size = n;
+        this.lu = new double[n * n];
+        this.swaps = new int[n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                lu[i * n + j] = matrix.getQuick(i, j);
+            }
+        }
+        boolean even = true;
+        boolean zeroPivot = false;
+        for (int k0 = 0; k0 < n; k0 += blockSize) {
+            int k1 = Math.min(k0 + blockSize, n);
+            for (int j = k0; j < k1; j++) {
+                int pivot = j;
+                for (int i = j + 1; i < n; i++) {
+                    if (Math.abs(lu[i * n + j]) > Math.abs(lu[pivot * n + j])) {
+                        pivot = i;
+                    }
+                }
+                swaps[j] = pivot;
+                if (pivot != j) {
+                    swapRows(lu, n, n, j, pivot);
+                    even = !even;
+                }
+                double diagonal = lu[j * n + j];
+                if (diagonal == 0D) {
+                    zeroPivot = true;
+                    continue;
+                }
+                for (int i = j + 1; i < n; i++) {
+                    double factor = lu[i * n + j] / diagonal;
+                    lu[i * n + j] = factor;
+                    for (int c = j + 1; c < k1; c++) {
+                        lu[i * n + c] -= factor * lu[j * n + c];
+                    }
+                }
+            }
+            if (k1 == n) {
+                break;
+            }
+            for (int j = k0; j < k1; j++) {
+                for (int i = j + 1; i < k1; i++) {
+                    double factor = lu[i * n + j];
+                    if (factor != 0D) {
+                        for (int c = k1; c < n; c++) {
+                            lu[i * n + c] -= factor * lu[j * n + c];
+                        }
+                    }
+                }
+            }
+            int trailing = n - k1;
+            int panel = k1 - k0;
+            DenseKernels.GemmTask task = new DenseKernels.GemmTask(trailing, trailing, panel, -1D,
+                    lu, k1 * n + k0, n, 1,
+                    lu, k0 * n + k1, n, 1,
+                    lu, k1 * n + k1, n, 1,
+                    DenseKernels.getTileSize());
+            if ((long) trailing * trailing * panel <= DenseKernels.GEMM_SEQUENTIAL_CUTOFF) {
+                task.compute();
+            } else {
+                pool.invoke(task);
+            }
+        }
+        this.evenSwaps = even;
+        this.singular = zeroPivot;
+    }
+
+    private static void swapRows(double[] a, int columns, int width, int rowOne, int rowTwo) {
+        int one = rowOne * columns;
+        int two = rowTwo * columns;
+        for (int c = 0; c < width; c++) {
+            double temp = a[one + c];
+            a[one + c] = a[two + c];
+            a[two + c] = temp;
+        }
+    }
+
+    /**
+     * Returns the number of rows and columns of the factored matrix.
+     *
+     * @return size of the matrix
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if a pivot was zero, in which case the factored matrix has no inverse.
+     *
+     * @return true if the matrix is singular
+     */
+    public boolean isSingular() {
+        return singular;
+    }
+
+    /**
+     * Returns the determinant of the factored matrix: the product of the diagonal of {@code U}, negated if the rows
+     * were swapped an odd number of times.
+     *
+     * @return the determinant
+     */
+    public double determinant() {
+        double determinant = evenSwaps ? 1D : -1D;
+        for (int k = 0; k < size; k++) {
+            determinant *= lu[k * size + k];
+        }
+        return determinant;
+    }
+
+    /**
+     * Returns the row permutation as an array in which entry {@code i} is the row of the factored matrix that became
+     * row {@code i} of {@code P * A}.
+     *
+     * @return the row permutation
+     */
+    public int[] getPivots() {
+        int[] pivots = new int[size];
+        for (int i = 0; i < size; i++) {
+            pivots[i] = i;
+        }
+        for (int i = 0; i < size; i++) {
+            int temp = pivots[i];
+            pivots[i] = pivots[swaps[i]];
+            pivots[swaps[i]] = temp;
+        }
+        return pivots;
+    }
+
+    /**
+     * Returns a new DenseMatrix holding the unit lower triangular factor {@code L}.
+     *
+     * @return the lower factor
+     */
+    public DenseMatrix getLower() {
+        DenseMatrix retMatrix = new DenseMatrix(size, size);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < i; j++) {
+                retMatrix.setQuick(i, j, lu[i * size + j]);
+            }
+            retMatrix.setQuick(i, i, 1D);
+        }
+        return retMatrix;
+    }
+
+    /**
+     * Returns a new DenseMatrix holding the upper triangular factor {@code U}.
+     *
+     * @return the upper factor
+     */
+    public DenseMatrix getUpper() {
+        DenseMatrix retMatrix = new DenseMatrix(size, size);
+        for (int i = 0; i < size; i++) {
+            for (int j = i; j < size; j++) {
+                retMatrix.setQuick(i, j, lu[i * size + j]);
+            }
+        }
+        return retMatrix;
+    }
+
+    /**
+     * Solves {@code A * x = b} for {@code x}, returning {@code x} in a new array.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code b} is null or not as long as the matrix has rows. Throws an
+     * {@link ArithmeticException} if the matrix is singular.
+     *
+     * @param b right-hand side
+     * @return new array holding the solution
+     */
+    public double[] solve(double[] b) {
+        if (b == null) {
+            throw new IllegalArgumentException("vector must not be null");
+        }
+        return solve(b, new double[b.length]);
+    }
+
+    /**
+     * Solves {@code A * x = b} for {@code x}, storing it in {@code x}. {@code b} and {@code x} may be the same array,
+     * so a right-hand side can be solved in place.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code b} or {@code x} is null or if either is not as long as the
+     * matrix has rows. Throws an {@link ArithmeticException} if the matrix is singular.
+     *
+     * @param b right-hand side
+     * @param x vector to store the solution in
+     * @return {@code x}
+     */
+    public double[] solve(double[] b, double[] x) {
+        if (b == null || x == null) {
+            throw new IllegalArgumentException("vector must not be null");
+        }
+        if (b.length != size || x.length != size) {
+            throw new IllegalArgumentException("vectors must have as many values as the matrix has rows");
+        }
+        checkSingular();
+        if (x != b) {
+            System.arraycopy(b, 0, x, 0, size);
+        }
+        for (int i = 0; i < size; i++) {
+            double temp = x[i];
+            x[i] = x[swaps[i]];
+            x[swaps[i]] = temp;
+        }
+        for (int i = 0; i < size; i++) {
+            double sum = x[i];
+            int row = i * size;
+            for (int j = 0; j < i; j++) {
+                sum -= lu[row + j] * x[j];
+            }
+            x[i] = sum;
+        }
+        for (int i = size - 1; i >= 0; i--) {
+            double sum = x[i];
+            int row = i * size;
+            for (int j = i + 1; j < size; j++) {
+                sum -= lu[row + j] * x[j];
+            }
+            x[i] = sum / lu[row + i];
+        }
+        return x;
+    }
+
+    /**
+     * Solves {@code A * X = B} for every column of {@code B} at once, returning {@code X} in a new row-major
+     * DenseMatrix. The substitutions run along the rows of {@code X}, so each entry of the factors is read once for
+     * all of the columns.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code b} is null or does not have as many rows as the matrix.
+     * Throws an {@link ArithmeticException} if the matrix is singular.
+     *
+     * @param b right-hand sides, one per column
+     * @return new DenseMatrix holding the solutions
+     */
+    public DenseMatrix solve(DenseMatrix b) {
+        if (b == null) {
+            throw new IllegalArgumentException("matrix must not be null");
+        }
+        if (b.numOfRows() != size) {
+            throw new IllegalArgumentException("matrix must have as many rows as the factored matrix");
+        }
+        checkSingular();
+        int columns = b.numOfColumns();
+        DenseMatrix retMatrix = new DenseMatrix(size, columns);
+        double[] x = retMatrix.getElements();
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < columns; j++) {
+                x[i * columns + j] = b.getQuick(i, j);
+            }
+        }
+        substitute(x, columns);
+        return retMatrix;
+    }
+
+    /**
+     * Returns the inverse of the factored matrix in a new row-major DenseMatrix, found by solving against the columns
+     * of the identity.
+     * <p>
+     * Throws an {@link ArithmeticException} if the matrix is singular.
+     *
+     * @return new DenseMatrix holding the inverse
+     */
+    public DenseMatrix inverse() {
+        checkSingular();
+        DenseMatrix retMatrix = new DenseMatrix(size, size);
+        double[] x = retMatrix.getElements();
+        for (int k = 0; k < size; k++) {
+            x[k * size + k] = 1D;
+        }
+        substitute(x, size);
+        return retMatrix;
+    }
+
+    private void substitute(double[] x, int columns) {
+        for (int i = 0; i < size; i++) {
+            if (swaps[i] != i) {
+                swapRows(x, columns, columns, i, swaps[i]);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            int row = i * size;
+            for (int j = 0; j < i; j++) {
+                double factor = lu[row + j];
+                if (factor != 0D) {
+                    axpy(-factor, x, j * columns, x, i * columns, columns);
+                }
+            }
+        }
+        for (int i = size - 1; i >= 0; i--) {
+            int row = i * size;
+            for (int j = i + 1; j < size; j++) {
+                double factor = lu[row + j];
+                if (factor != 0D) {
+                    axpy(-factor, x, j * columns, x, i * columns, columns);
+                }
+            }
+            double diagonal = lu[row + i];
+            for (int c = i * columns; c < (i + 1) * columns; c++) {
+                x[c] /= diagonal;
+            }
+        }
+    }
+
+    private static void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int length) {
+        for (int c = 0; c < length; c++) {
+            y[yOff + c] += alpha * x[xOff + c];
+        }
+    }
+
+    private void checkSingular() {
+        if (singular) {
+            throw new ArithmeticException("matrix is singular");
+        }
+    }
+
+}
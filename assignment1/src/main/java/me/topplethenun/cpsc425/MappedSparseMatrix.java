@@ -0,0 +1,310 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only sparse matrix mapped from a file written by {@link CompressedSparseMatrix#write(Path)}. The arrays are
+ * used where they lie in the file, so opening a matrix reads only its header and values are paged in by the operating
+ * system as they are touched.
+ * <p>
+ * Each array is split across buffers of at most {@code 2^27} values. The diagonal is read as given by the
+ * {@link SparseMatrix.DiagonalMode} the matrix was written with.
+ *
+ * @author Richard Harrah
+ */
+public class MappedSparseMatrix implements Closeable {
+
+    private static final int CHUNK_SHIFT = 27;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final FileChannel channel;
+    private final SparseMatrixFile header;
+    private final IntBuffer[] pointers;
+    private final IntBuffer[] indices;
+    private final DoubleBuffer[] values;
+    private final DoubleBuffer[] diagonal;
+
+    private MappedSparseMatrix(FileChannel channel, SparseMatrixFile header) throws IOException {
+        this.channel = channel;
+        this.header = header;
+        int pointerCount = header.pointerCount();
+        this.pointers = new IntBuffer[chunkCount(pointerCount)];
+        for (int i = 0; i < pointers.length; i++) {
+            pointers[i] = map(header.pointersPosition(), i, chunkLength(pointerCount, i), Integer.BYTES)
+                    .asIntBuffer();
+        }
+        this.indices = new IntBuffer[chunkCount(header.nonZeros)];
+        this.values = new DoubleBuffer[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            int length = chunkLength(header.nonZeros, i);
+            indices[i] = map(header.indicesPosition(), i, length, Integer.BYTES).asIntBuffer();
+            values[i] = map(header.valuesPosition(), i, length, Double.BYTES).asDoubleBuffer();
+        }
+        int diagonalCount = header.diagonalCount();
+        this.diagonal = new DoubleBuffer[chunkCount(diagonalCount)];
+        for (int i = 0; i < diagonal.length; i++) {
+            diagonal[i] = map(header.diagonalPosition(), i, chunkLength(diagonalCount, i), Double.BYTES)
+                    .asDoubleBuffer();
+        }
+    }
+
+    /**
+     * Maps the sparse matrix file at {@code path}. Only the header is read; the file's checksum is not verified.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code path} is null.
+     *
+     * @param path file to map
+     * @return MappedSparseMatrix backed by the file
+     * @throws IOException if the file could not be opened or mapped or is not a sparse matrix file
+     */
+    public static MappedSparseMatrix open(Path path) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("path must not be null");
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new MappedSparseMatrix(channel, SparseMatrixFile.read(channel));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private MappedByteBuffer map(long start, int chunk, int length, int width) throws IOException {
+        long position = start + ((long) chunk << CHUNK_SHIFT) * width;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) length * width);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static int chunkCount(int size) {
+        return (int) (((long) size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+    }
+
+    private static int chunkLength(int size, int chunk) {
+        return (int) Math.min(CHUNK_SIZE, size - ((long) chunk << CHUNK_SHIFT));
+    }
+
+    /**
+     * Returns the number of rows in this MappedSparseMatrix.
+     *
+     * @return number of rows
+     */
+    public int numOfRows() {
+        return header.rows;
+    }
+
+    /**
+     * Returns the number of columns in this MappedSparseMatrix.
+     *
+     * @return number of columns
+     */
+    public int numOfColumns() {
+        return header.columns;
+    }
+
+    /**
+     * Returns the dimension the stored matrix is compressed along.
+     *
+     * @return orientation of this matrix
+     */
+    public CompressedSparseMatrix.Orientation getOrientation() {
+        return header.orientation;
+    }
+
+    /**
+     * Returns how the diagonal of the stored matrix is stored.
+     *
+     * @return diagonal mode of this matrix
+     */
+    public SparseMatrix.DiagonalMode getDiagonalMode() {
+        return header.diagonalMode;
+    }
+
+    /**
+     * Returns the number of values stored in the three arrays. An implicit or separate diagonal is not counted.
+     *
+     * @return number of stored values
+     */
+    public int numOfNonZeros() {
+        return header.nonZeros;
+    }
+
+    /**
+     * Gets and returns the value at the given row and column, found by a binary search of its row (or column).
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code row} is less than 0 or equal to or greater than
+     * {@link #numOfRows()} or if {@code column} is less than 0 or equal to or greater than {@link #numOfColumns()}.
+     *
+     * @param row    row to query
+     * @param column column to query
+     * @return value at the given row and column
+     */
+    public double get(int row, int column) {
+        if (row < 0 || row >= header.rows) {
+            throw new IllegalArgumentException("row must be greater than -1 and less than number of rows");
+        }
+        if (column < 0 || column >= header.columns) {
+            throw new IllegalArgumentException("column must be greater than -1 and less than number of columns");
+        }
+        if (row == column && header.diagonalMode != SparseMatrix.DiagonalMode.GENERAL) {
+            return implicitDiagonal(row);
+        }
+        boolean byRow = header.orientation == CompressedSparseMatrix.Orientation.ROW;
+        int outer = byRow ? row : column;
+        int inner = byRow ? column : row;
+        int low = pointer(outer);
+        int high = pointer(outer + 1) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int index = index(middle);
+            if (index < inner) {
+                low = middle + 1;
+            } else if (index > inner) {
+                high = middle - 1;
+            } else {
+                return value(middle);
+            }
+        }
+        return 0D;
+    }
+
+    /**
+     * Multiplies this MappedSparseMatrix by the vector {@code x}, storing the results in {@code y}. The arrays are
+     * read once, front to back.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code x} or {@code y} is null, if {@code x} is not as long as
+     * this matrix has columns, if {@code y} is not as long as this matrix has rows, or if {@code x} and {@code y} are
+     * the same array.
+     *
+     * @param x vector to multiply
+     * @param y vector to store the results in
+     * @return {@code y}
+     */
+    public double[] multiply(double[] x, double[] y) {
+        if (x == null || y == null) {
+            throw new IllegalArgumentException("vector must not be null");
+        }
+        if (x.length != header.columns) {
+            throw new IllegalArgumentException("x must have as many values as the matrix has columns");
+        }
+        if (y.length != header.rows) {
+            throw new IllegalArgumentException("y must have as many values as the matrix has rows");
+        }
+        if (x == y) {
+            throw new IllegalArgumentException("x and y must not be the same array");
+        }
+        int diagonalSize = Math.min(header.rows, header.columns);
+        if (header.orientation == CompressedSparseMatrix.Orientation.ROW) {
+            int end = pointer(0);
+            for (int i = 0; i < header.rows; i++) {
+                int start = end;
+                end = pointer(i + 1);
+                double sum = i < diagonalSize ? implicitDiagonal(i) * x[i] : 0D;
+                for (int p = start; p < end; p++) {
+                    sum += value(p) * x[index(p)];
+                }
+                y[i] = sum;
+            }
+        } else {
+            for (int i = 0; i < diagonalSize; i++) {
+                y[i] = implicitDiagonal(i) * x[i];
+            }
+            for (int i = diagonalSize; i < y.length; i++) {
+                y[i] = 0D;
+            }
+            int end = pointer(0);
+            for (int j = 0; j < header.columns; j++) {
+                int start = end;
+                end = pointer(j + 1);
+                double scale = x[j];
+                for (int p = start; p < end; p++) {
+                    y[index(p)] += value(p) * scale;
+                }
+            }
+        }
+        return y;
+    }
+
+    /**
+     * Copies the mapped arrays into a new {@link CompressedSparseMatrix} on the heap.
+     *
+     * @return new CompressedSparseMatrix with the same values
+     * @throws IOException if the mapped arrays are not consistent
+     */
+    public CompressedSparseMatrix load() throws IOException {
+        int[] heapPointers = new int[header.pointerCount()];
+        int[] heapIndices = new int[header.nonZeros];
+        double[] heapValues = new double[header.nonZeros];
+        for (int i = 0; i < pointers.length; i++) {
+            pointers[i].duplicate().get(heapPointers, i << CHUNK_SHIFT, pointers[i].capacity());
+        }
+        for (int i = 0; i < indices.length; i++) {
+            indices[i].duplicate().get(heapIndices, i << CHUNK_SHIFT, indices[i].capacity());
+            values[i].duplicate().get(heapValues, i << CHUNK_SHIFT, values[i].capacity());
+        }
+        double[] heapDiagonal = null;
+        if (header.diagonalMode == SparseMatrix.DiagonalMode.SEPARATE) {
+            heapDiagonal = new double[header.diagonalCount()];
+            for (int i = 0; i < diagonal.length; i++) {
+                diagonal[i].duplicate().get(heapDiagonal, i << CHUNK_SHIFT, diagonal[i].capacity());
+            }
+        }
+        CompressedSparseMatrix matrix = new CompressedSparseMatrix(header.rows, header.columns, header.orientation,
+                heapPointers, heapIndices, heapValues, header.diagonalMode, heapDiagonal);
+        SparseMatrixFile.check(matrix);
+        return matrix;
+    }
+
+    /**
+     * Closes the file behind this matrix. The mapping itself stays valid until the matrix is garbage collected.
+     *
+     * @throws IOException if the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int pointer(int k) {
+        return pointers[k >>> CHUNK_SHIFT].get(k & CHUNK_MASK);
+    }
+
+    private int index(int p) {
+        return indices[p >>> CHUNK_SHIFT].get(p & CHUNK_MASK);
+    }
+
+    private double value(int p) {
+        return values[p >>> CHUNK_SHIFT].get(p & CHUNK_MASK);
+    }
+
+    private double implicitDiagonal(int k) {
+        if (header.diagonalMode == SparseMatrix.DiagonalMode.UNIT) {
+            return 1D;
+        }
+        if (header.diagonalMode == SparseMatrix.DiagonalMode.SEPARATE) {
+            return diagonal[k >>> CHUNK_SHIFT].get(k & CHUNK_MASK);
+        }
+        return 0D;
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+/**
+ * The operations shared by dense and sparse matrices, so code can work with either and let the operands pick the
+ * kernel.
+ * <p>
+ * {@link #add(Matrix)} and {@link #multiply(Matrix)} look at the types of both operands: two sparse matrices give a
+ * sparse result computed from their stored values, and a sparse and a dense matrix give a dense result computed by
+ * walking only the stored values of the sparse one, so neither operand is made dense first.
+ *
+ * @author Richard Harrah
+ * @see DenseMatrix
+ * @see SparseMatrix
+ * @see CompressedSparseMatrix
+ */
+public interface Matrix {
+
+    /**
+     * Returns the number of rows in this Matrix.
+     *
+     * @return number of rows
+     */
+    int numOfRows();
+
+    /**
+     * Returns the number of columns in this Matrix.
+     *
+     * @return number of columns
+     */
+    int numOfColumns();
+
+    /**
+     * Gets and returns the value at the given row and column.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code row} is less than 0 or equal to or greater than
+     * {@link #numOfRows()} or if {@code column} is less than 0 or equal to or greater than {@link #numOfColumns()}.
+     *
+     * @param row    row to query
+     * @param column column to query
+     * @return value at the given row and column
+     */
+    double get(int row, int column);
+
+    /**
+     * Multiplies this Matrix by the vector {@code x}, storing the results in {@code y}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code x} or {@code y} is null, if {@code x} is not as long as
+     * this matrix has columns, if {@code y} is not as long as this matrix has rows, or if {@code x} and {@code y} are
+     * the same array.
+     *
+     * @param x vector to multiply
+     * @param y vector to store the results in
+     * @return {@code y}
+     */
+    double[] multiply(double[] x, double[] y);
+
+    /**
+     * Adds two matrices together. Returns a new matrix with the results, which is sparse only if both operands are.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if the matrices are not compatible.
+     *
+     * @param matrix Matrix to add to this matrix
+     * @return new Matrix with the results
+     */
+    Matrix add(Matrix matrix);
+
+    /**
+     * Multiplies two matrices together. Returns a new matrix with the results, which is sparse only if both operands
+     * are.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if the matrices are not compatible.
+     *
+     * @param matrix Matrix to multiply with
+     * @return new Matrix with the results
+     */
+    Matrix multiply(Matrix matrix);
+
+    /**
+     * Returns the values of this Matrix as a {@link DenseMatrix}. A DenseMatrix returns itself; other matrices are
+     * copied into a new one.
+     *
+     * @return DenseMatrix with the same values
+     */
+    DenseMatrix toDense();
+
+}
@@ -0,0 +1,465 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A lazily evaluated expression over {@link Matrix} operands. {@link #add}, {@link #scale(double)},
+ * {@link #transpose()} and {@link #multiply} only record a node; nothing is computed until {@link #evaluate()}.
+ * <pre>
+ * Matrix result = MatrixExpression.of(a).add(b).add(c).multiply(d).evaluate();
+ * </pre>
+ * Evaluation rewrites the tree before running any kernel:
+ * <ul>
+ * <li>transposes are pushed down to the operands, where they are free views that swap strides or orientation;</li>
+ * <li>scale factors are folded into the terms of a sum and the scalar of a product;</li>
+ * <li>a sum of any number of terms is computed in one pass into a single result, adding the dense terms row by row
+ * and scattering only the stored values of the sparse terms, instead of creating a matrix per {@code add};</li>
+ * <li>a chain of products is multiplied in the order that needs the fewest multiply-adds, found with the classic
+ * matrix-chain dynamic program over the dimensions of its factors.</li>
+ * </ul>
+ * A sum whose terms are all sparse evaluates to a {@link CompressedSparseMatrix}; any other sum evaluates to a
+ * {@link DenseMatrix}. Products use the kernels chosen by {@link Matrix#multiply(Matrix)}. An expression holds
+ * references to its operands, so changing an operand before evaluation changes the result.
+ *
+ * @author Richard Harrah
+ */
+public abstract class MatrixExpression {
+
+    private final int rows;
+    private final int columns;
+
+    MatrixExpression(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * Returns an expression holding only {@code matrix}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null.
+     *
+     * @param matrix operand
+     * @return new MatrixExpression
+     */
+    public static MatrixExpression of(Matrix matrix) {
+        if (matrix == null) {
+            throw new IllegalArgumentException("matrix must not be null");
+        }
+        return new Operand(matrix);
+    }
+
+    /**
+     * Returns the number of rows of the result of this expression.
+     *
+     * @return number of rows
+     */
+    public int numOfRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns of the result of this expression.
+     *
+     * @return number of columns
+     */
+    public int numOfColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns an expression adding {@code expression} to this one.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code expression} is null or if the results do not have the same
+     * number of rows and columns.
+     *
+     * @param expression expression to add
+     * @return new MatrixExpression
+     */
+    public MatrixExpression add(MatrixExpression expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression must not be null");
+        }
+        if (expression.rows != rows || expression.columns != columns) {
+            throw new IllegalArgumentException("expression must have same number of rows AND columns");
+        }
+        return new Sum(this, expression);
+    }
+
+    /**
+     * Returns an expression adding {@code matrix} to this one.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if it does not have the same number of
+     * rows and columns as the result of this expression.
+     *
+     * @param matrix Matrix to add
+     * @return new MatrixExpression
+     */
+    public MatrixExpression add(Matrix matrix) {
+        return add(of(matrix));
+    }
+
+    /**
+     * Returns an expression multiplying every value of this one by {@code factor}.
+     *
+     * @param factor factor to multiply by
+     * @return new MatrixExpression
+     */
+    public MatrixExpression scale(double factor) {
+        return new Scaled(this, factor);
+    }
+
+    /**
+     * Returns an expression transposing this one.
+     *
+     * @return new MatrixExpression
+     */
+    public MatrixExpression transpose() {
+        return new Transposed(this);
+    }
+
+    /**
+     * Returns an expression multiplying this one by {@code expression}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code expression} is null or if its result does not have as
+     * many rows as the result of this expression has columns.
+     *
+     * @param expression expression to multiply with
+     * @return new MatrixExpression
+     */
+    public MatrixExpression multiply(MatrixExpression expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression must not be null");
+        }
+        if (expression.rows != columns) {
+            throw new IllegalArgumentException("matrix dimensions are not equal");
+        }
+        return new Product(this, expression);
+    }
+
+    /**
+     * Returns an expression multiplying this one by {@code matrix}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if it does not have as many rows as the
+     * result of this expression has columns.
+     *
+     * @param matrix Matrix to multiply with
+     * @return new MatrixExpression
+     */
+    public MatrixExpression multiply(Matrix matrix) {
+        return multiply(of(matrix));
+    }
+
+    /**
+     * Evaluates this expression. An expression holding a single operand returns that operand; every other expression
+     * returns a new matrix.
+     *
+     * @return the result
+     */
+    public Matrix evaluate() {
+        return evaluate(1D, false);
+    }
+
+    /**
+     * Evaluates {@code factor} times this expression, or its transpose if {@code transposed} is true.
+     */
+    abstract Matrix evaluate(double factor, boolean transposed);
+
+    /**
+     * Adds the terms of {@code factor} times this expression (or its transpose) to {@code terms}. Anything but a sum
+     * is a single term.
+     */
+    void collectTerms(double factor, boolean transposed, List<Term> terms) {
+        terms.add(new Term(factor, evaluate(1D, transposed)));
+    }
+
+    /**
+     * Adds the factors of this expression (or its transpose) to {@code factors} from left to right and returns the
+     * scalar they are multiplied by. Anything but a product is a single factor.
+     */
+    double collectFactors(boolean transposed, List<Matrix> factors) {
+        factors.add(evaluate(1D, transposed));
+        return 1D;
+    }
+
+    /**
+     * Returns {@code matrix}, or its transpose as a view that shares its values if {@code transposed} is true.
+     */
+    static Matrix view(Matrix matrix, boolean transposed) {
+        if (!transposed) {
+            return matrix;
+        }
+        if (matrix instanceof DenseMatrix) {
+            return ((DenseMatrix) matrix).transpose();
+        }
+        CompressedSparseMatrix sparse = SparseKernels.asCompressed(matrix);
+        if (sparse != null) {
+            return sparse.transpose();
+        }
+        return matrix.toDense().transpose();
+    }
+
+    /**
+     * Computes the sum of {@code terms}, all of which have {@code rows} rows and {@code columns} columns, in one
+     * pass. The dense terms are added a row at a time so each row of the result is written while it is in cache,
+     * and then the stored values of the sparse terms are scattered into it. If every term is sparse their stored
+     * values are gathered into one {@link SparseMatrixBuilder} instead, which sums the values that share a position.
+     */
+    static Matrix sum(int rows, int columns, List<Term> terms) {
+        List<Term> dense = new ArrayList<>();
+        List<CompressedSparseMatrix> sparse = new ArrayList<>();
+        List<Double> sparseFactors = new ArrayList<>();
+        for (Term term : terms) {
+            CompressedSparseMatrix compressed = SparseKernels.asCompressed(term.matrix);
+            if (compressed != null) {
+                sparse.add(compressed);
+                sparseFactors.add(term.factor);
+            } else {
+                dense.add(new Term(term.factor, SparseKernels.onHeap(term.matrix.toDense())));
+            }
+        }
+        if (dense.isEmpty()) {
+            SparseMatrixBuilder builder = new SparseMatrixBuilder(rows, columns)
+                    .diagonalMode(SparseMatrix.DiagonalMode.GENERAL);
+            for (int t = 0; t < sparse.size(); t++) {
+                double factor = sparseFactors.get(t);
+                CompressedSparseMatrix matrix = sparse.get(t);
+                matrix.forEachNonZero((row, column, value) -> builder.add(row, column, factor * value));
+                if (matrix.getDiagonalMode() == SparseMatrix.DiagonalMode.UNIT) {
+                    for (int k = 0; k < Math.min(rows, columns); k++) {
+                        builder.add(k, k, factor);
+                    }
+                }
+            }
+            return builder.build();
+        }
+        DenseMatrix retMatrix = new DenseMatrix(rows, columns);
+        double[] c = retMatrix.getElements();
+        VectorOps ops = VectorOps.get();
+        for (int i = 0; i < rows; i++) {
+            int cRow = i * columns;
+            for (Term term : dense) {
+                DenseMatrix matrix = (DenseMatrix) term.matrix;
+                double[] elements = matrix.getElements();
+                int start = matrix.getOffset() + i * matrix.getRowStride();
+                int stride = matrix.getColumnStride();
+                if (stride == 1) {
+                    ops.axpy(term.factor, elements, start, c, cRow, columns);
+                } else {
+                    for (int j = 0; j < columns; j++) {
+                        c[cRow + j] += term.factor * elements[start + j * stride];
+                    }
+                }
+            }
+        }
+        for (int t = 0; t < sparse.size(); t++) {
+            SparseKernels.scatter(sparse.get(t), sparseFactors.get(t), c);
+        }
+        return retMatrix;
+    }
+
+    /**
+     * Multiplies {@code factors} together in the order that needs the fewest multiply-adds.
+     */
+    static Matrix chain(List<Matrix> factors) {
+        int n = factors.size();
+        long[] dimensions = new long[n + 1];
+        for (int i = 0; i < n; i++) {
+            dimensions[i] = factors.get(i).numOfRows();
+        }
+        dimensions[n] = factors.get(n - 1).numOfColumns();
+        return chain(factors, splits(dimensions), 0, n - 1);
+    }
+
+    /**
+     * Returns the table of best splits for a chain whose factor {@code i} has {@code dimensions[i]} rows and
+     * {@code dimensions[i + 1]} columns: the cheapest product of factors {@code i} through {@code j} multiplies
+     * {@code i} through {@code split[i][j]} by the rest. {@code cost[i][j]} holds the multiply-adds of that product,
+     * found by trying every split between {@code i} and {@code j}.
+     */
+    static int[][] splits(long[] dimensions) {
+        int n = dimensions.length - 1;
+        long[][] cost = new long[n][n];
+        int[][] split = new int[n][n];
+        for (int length = 2; length <= n; length++) {
+            for (int i = 0; i + length - 1 < n; i++) {
+                int j = i + length - 1;
+                cost[i][j] = Long.MAX_VALUE;
+                for (int k = i; k < j; k++) {
+                    long candidate = cost[i][k] + cost[k + 1][j] + dimensions[i] * dimensions[k + 1]
+                            * dimensions[j + 1];
+                    if (candidate < cost[i][j]) {
+                        cost[i][j] = candidate;
+                        split[i][j] = k;
+                    }
+                }
+            }
+        }
+        return split;
+    }
+
+    private static Matrix chain(List<Matrix> factors, int[][] split, int first, int last) {
+        if (first == last) {
+            return factors.get(first);
+        }
+        int k = split[first][last];
+        return chain(factors, split, first, k).multiply(chain(factors, split, k + 1, last));
+    }
+
+    /**
+     * A matrix and the factor it is multiplied by in a sum.
+     */
+    static final class Term {
+        final double factor;
+        final Matrix matrix;
+
+        Term(double factor, Matrix matrix) {
+            this.factor = factor;
+            this.matrix = matrix;
+        }
+    }
+
+    private static final class Operand extends MatrixExpression {
+        private final Matrix matrix;
+
+        Operand(Matrix matrix) {
+            super(matrix.numOfRows(), matrix.numOfColumns());
+            this.matrix = matrix;
+        }
+
+        @Override
+        Matrix evaluate(double factor, boolean transposed) {
+            Matrix viewed = view(matrix, transposed);
+            if (factor == 1D) {
+                return viewed;
+            }
+            List<Term> terms = new ArrayList<>(1);
+            terms.add(new Term(factor, viewed));
+            return sum(viewed.numOfRows(), viewed.numOfColumns(), terms);
+        }
+
+        @Override
+        void collectTerms(double factor, boolean transposed, List<Term> terms) {
+            terms.add(new Term(factor, view(matrix, transposed)));
+        }
+    }
+
+    private static final class Scaled extends MatrixExpression {
+        private final MatrixExpression expression;
+        private final double factor;
+
+        Scaled(MatrixExpression expression, double factor) {
+            super(expression.numOfRows(), expression.numOfColumns());
+            this.expression = expression;
+            this.factor = factor;
+        }
+
+        @Override
+        Matrix evaluate(double factor, boolean transposed) {
+            return expression.evaluate(factor * this.factor, transposed);
+        }
+
+        @Override
+        void collectTerms(double factor, boolean transposed, List<Term> terms) {
+            expression.collectTerms(factor * this.factor, transposed, terms);
+        }
+
+        @Override
+        double collectFactors(boolean transposed, List<Matrix> factors) {
+            return factor * expression.collectFactors(transposed, factors);
+        }
+    }
+
+    private static final class Transposed extends MatrixExpression {
+        private final MatrixExpression expression;
+
+        Transposed(MatrixExpression expression) {
+            super(expression.numOfColumns(), expression.numOfRows());
+            this.expression = expression;
+        }
+
+        @Override
+        Matrix evaluate(double factor, boolean transposed) {
+            return expression.evaluate(factor, !transposed);
+        }
+
+        @Override
+        void collectTerms(double factor, boolean transposed, List<Term> terms) {
+            expression.collectTerms(factor, !transposed, terms);
+        }
+
+        @Override
+        double collectFactors(boolean transposed, List<Matrix> factors) {
+            return expression.collectFactors(!transposed, factors);
+        }
+    }
+
+    private static final class Sum extends MatrixExpression {
+        private final MatrixExpression left;
+        private final MatrixExpression right;
+
+        Sum(MatrixExpression left, MatrixExpression right) {
+            super(left.numOfRows(), left.numOfColumns());
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Matrix evaluate(double factor, boolean transposed) {
+            List<Term> terms = new ArrayList<>();
+            collectTerms(factor, transposed, terms);
+            return transposed ? sum(numOfColumns(), numOfRows(), terms) : sum(numOfRows(), numOfColumns(), terms);
+        }
+
+        @Override
+        void collectTerms(double factor, boolean transposed, List<Term> terms) {
+            left.collectTerms(factor, transposed, terms);
+            right.collectTerms(factor, transposed, terms);
+        }
+    }
+
+    private static final class Product extends MatrixExpression {
+        private final MatrixExpression left;
+        private final MatrixExpression right;
+
+        Product(MatrixExpression left, MatrixExpression right) {
+            super(left.numOfRows(), right.numOfColumns());
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Matrix evaluate(double factor, boolean transposed) {
+            List<Matrix> factors = new ArrayList<>();
+            double scalar = factor * collectFactors(transposed, factors);
+            Matrix product = chain(factors);
+            if (scalar == 1D) {
+                return product;
+            }
+            List<Term> terms = new ArrayList<>(1);
+            terms.add(new Term(scalar, product));
+            return sum(product.numOfRows(), product.numOfColumns(), terms);
+        }
+
+        @Override
+        double collectFactors(boolean transposed, List<Matrix> factors) {
+            if (transposed) {
+                double scalar = right.collectFactors(true, factors);
+                return scalar * left.collectFactors(true, factors);
+            }
+            double scalar = left.collectFactors(false, factors);
+            return scalar * right.collectFactors(false, factors);
+        }
+    }
+
+}
@@ -0,0 +1,409 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Reads and writes sparse matrices in the coordinate Matrix Market ({@code .mtx}) text format.
+ * <p>
+ * Files are streamed through a channel and a fixed-size buffer. Numbers are parsed straight from the bytes and written
+ * through one reused {@link StringBuilder}, so no string is created per entry; the only exception is a value too long
+ * or too large to be parsed exactly by the fast path, which is handed to {@link Double#parseDouble(String)}.
+ * <p>
+ * Real, integer and pattern files with general, symmetric or skew-symmetric symmetry can be read. Diagonal entries are
+ * read as given by a {@link SparseMatrix.DiagonalMode}; by default the diagonal is implicitly one and diagonal entries
+ * in a file are ignored. A unit diagonal is not written. Duplicate entries are summed.
+ *
+ * @author Richard Harrah
+ */
+public final class MatrixMarket {
+
+    private static final String BANNER = "%%MatrixMarket";
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final int MAX_FAST_EXPONENT = 22;
+    private static final double[] POWERS_OF_TEN = new double[MAX_FAST_EXPONENT + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private MatrixMarket() {
+        // do nothing
+    }
+
+    /**
+     * Writes {@code matrix} to {@code path} as a real general coordinate Matrix Market file, replacing any existing
+     * file. Entries are written in the order they are stored, with one-based indices. A separate diagonal is written
+     * with the other entries of its row (or column); a unit diagonal is not written.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} or {@code path} is null.
+     *
+     * @param matrix matrix to write
+     * @param path   file to write to
+     * @throws IOException if the file could not be written
+     */
+    public static void write(CompressedSparseMatrix matrix, Path path) throws IOException {
+        if (matrix == null) {
+            throw new IllegalArgumentException("matrix must not be null");
+        }
+        if (path == null) {
+            throw new IllegalArgumentException("path must not be null");
+        }
+        if (matrix.diagonalMode == SparseMatrix.DiagonalMode.SEPARATE) {
+            matrix = matrix.toDiagonalMode(SparseMatrix.DiagonalMode.GENERAL);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        StringBuilder line = new StringBuilder(64);
+        boolean byRow = matrix.orientation == CompressedSparseMatrix.Orientation.ROW;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            line.append(BANNER).append(" matrix coordinate real general\n");
+            line.append(matrix.rows).append(' ').append(matrix.columns).append(' ').append(matrix.values.length)
+                    .append('\n');
+            put(channel, buffer, line);
+            for (int outer = 0; outer + 1 < matrix.pointers.length; outer++) {
+                for (int p = matrix.pointers[outer]; p < matrix.pointers[outer + 1]; p++) {
+                    int row = byRow ? outer : matrix.indices[p];
+                    int column = byRow ? matrix.indices[p] : outer;
+                    line.setLength(0);
+                    line.append(row + 1).append(' ').append(column + 1).append(' ').append(matrix.values[p])
+                            .append('\n');
+                    put(channel, buffer, line);
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Writes {@code matrix} to {@code path} as a real general coordinate Matrix Market file, replacing any existing
+     * file.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} or {@code path} is null.
+     *
+     * @param matrix matrix to write
+     * @param path   file to write to
+     * @throws IOException if the file could not be written
+     * @see #write(CompressedSparseMatrix, Path)
+     */
+    public static void write(SparseMatrix matrix, Path path) throws IOException {
+        if (matrix == null) {
+            throw new IllegalArgumentException("matrix must not be null");
+        }
+        write(matrix.compress(), path);
+    }
+
+    /**
+     * Reads the coordinate Matrix Market file at {@code path} into a new compressed sparse row matrix. Symmetric and
+     * skew-symmetric files are expanded to both triangles and entries of pattern files read as one. The diagonal of
+     * the result is implicitly one and diagonal entries in the file are ignored.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code path} is null.
+     *
+     * @param path file to read
+     * @return new CompressedSparseMatrix holding the file's values
+     * @throws IOException if the file could not be read or is not a supported Matrix Market file
+     * @see #read(Path, SparseMatrix.DiagonalMode)
+     */
+    public static CompressedSparseMatrix read(Path path) throws IOException {
+        return read(path, SparseMatrix.DiagonalMode.UNIT);
+    }
+
+    /**
+     * Reads the coordinate Matrix Market file at {@code path} into a new compressed sparse row matrix whose diagonal
+     * is stored as given by {@code diagonalMode}. Symmetric and skew-symmetric files are expanded to both triangles and
+     * entries of pattern files read as one.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code path} or {@code diagonalMode} is null.
+     *
+     * @param path         file to read
+     * @param diagonalMode diagonal mode of the result
+     * @return new CompressedSparseMatrix holding the file's values
+     * @throws IOException if the file could not be read or is not a supported Matrix Market file
+     */
+    public static CompressedSparseMatrix read(Path path, SparseMatrix.DiagonalMode diagonalMode) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("path must not be null");
+        }
+        if (diagonalMode == null) {
+            throw new IllegalArgumentException("diagonal mode must not be null");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Parser(channel, diagonalMode).parse();
+        }
+    }
+
+    private static void put(FileChannel channel, ByteBuffer buffer, StringBuilder line) throws IOException {
+        if (buffer.remaining() < line.length()) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+        for (int i = 0; i < line.length(); i++) {
+            buffer.put((byte) line.charAt(i));
+        }
+    }
+
+    /**
+     * Streaming parser over the bytes of a Matrix Market file.
+     */
+    private static final class Parser {
+        private final FileChannel channel;
+        private final SparseMatrix.DiagonalMode diagonalMode;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final StringBuilder token = new StringBuilder(32);
+        private int line = 1;
+
+        Parser(FileChannel channel, SparseMatrix.DiagonalMode diagonalMode) {
+            this.channel = channel;
+            this.diagonalMode = diagonalMode;
+            buffer.flip();
+        }
+
+        CompressedSparseMatrix parse() throws IOException {
+            String[] banner = readLine().trim().toLowerCase(Locale.ROOT).split("\\s+");
+            if (banner.length != 5 || !banner[0].equals(BANNER.toLowerCase(Locale.ROOT)) ||
+                    !banner[1].equals("matrix")) {
+                throw error("missing Matrix Market banner");
+            }
+            if (!banner[2].equals("coordinate")) {
+                throw error("only coordinate Matrix Market files are supported");
+            }
+            String field = banner[3];
+            boolean pattern = field.equals("pattern");
+            if (!pattern && !field.equals("real") && !field.equals("integer")) {
+                throw error("unsupported Matrix Market field " + field);
+            }
+            String symmetry = banner[4];
+            boolean symmetric = symmetry.equals("symmetric");
+            boolean skew = symmetry.equals("skew-symmetric");
+            if (!symmetric && !skew && !symmetry.equals("general")) {
+                throw error("unsupported Matrix Market symmetry " + symmetry);
+            }
+            line++;
+            skipComments();
+
+            int rows = readInt();
+            int columns = readInt();
+            int entries = readInt();
+            if (rows < 1 || columns < 1 || entries < 0) {
+                throw error("invalid Matrix Market size line");
+            }
+            int expected = symmetric || skew ? (int) Math.min(Integer.MAX_VALUE - 8, 2L * entries) : entries;
+            SparseMatrixBuilder builder = new SparseMatrixBuilder(rows, columns, expected).diagonalMode(diagonalMode);
+            for (int e = 0; e < entries; e++) {
+                int row = readInt() - 1;
+                int column = readInt() - 1;
+                double value = pattern ? 1 : readDouble();
+                if (row < 0 || row >= rows || column < 0 || column >= columns) {
+                    throw error("entry (" + (row + 1) + ", " + (column + 1) + ") lies outside the matrix");
+                }
+                builder.add(row, column, value);
+                if ((symmetric || skew) && row != column) {
+                    if (column >= rows || row >= columns) {
+                        throw error("symmetric matrix must be square");
+                    }
+                    builder.add(column, row, skew ? -value : value);
+                }
+            }
+            return builder.build();
+        }
+
+        private int next() throws IOException {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                int read;
+                do {
+                    read = channel.read(buffer);
+                } while (read == 0);
+                buffer.flip();
+                if (read < 0) {
+                    return -1;
+                }
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        private int peek() throws IOException {
+            int c = next();
+            if (c >= 0) {
+                buffer.position(buffer.position() - 1);
+            }
+            return c;
+        }
+
+        private String readLine() throws IOException {
+            token.setLength(0);
+            for (int c = next(); c >= 0 && c != '\n'; c = next()) {
+                token.append((char) c);
+            }
+            return token.toString();
+        }
+
+        private void skipComments() throws IOException {
+            for (int c = skipWhitespace(); c == '%'; c = skipWhitespace()) {
+                while (c >= 0 && c != '\n') {
+                    c = next();
+                }
+                line++;
+            }
+        }
+
+        private int skipWhitespace() throws IOException {
+            int c = peek();
+            while (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                if (c == '\n') {
+                    line++;
+                }
+                next();
+                c = peek();
+            }
+            return c;
+        }
+
+        private int readInt() throws IOException {
+            int c = skipWhitespace();
+            if (c < 0) {
+                throw error("unexpected end of file");
+            }
+            long value = 0;
+            int digits = 0;
+            for (c = peek(); c >= '0' && c <= '9'; c = peek()) {
+                next();
+                value = value * 10 + (c - '0');
+                if (value > Integer.MAX_VALUE) {
+                    throw error("integer is too large");
+                }
+                digits++;
+            }
+            if (digits == 0 || !endOfToken(c)) {
+                throw error("expected an integer");
+            }
+            return (int) value;
+        }
+
+        /**
+         * Parses a decimal number. Numbers with at most {@value #MAX_FAST_DIGITS} significant digits and a decimal
+         * exponent of at most {@value #MAX_FAST_EXPONENT} in magnitude are exact as a {@code long} and a power of
+         * ten, so one multiplication or division of the two gives the correctly rounded result. Anything else is
+         * collected in the reused token builder and parsed by {@link Double#parseDouble(String)}.
+         */
+        private double readDouble() throws IOException {
+            int c = skipWhitespace();
+            if (c < 0) {
+                throw error("unexpected end of file");
+            }
+            token.setLength(0);
+            boolean negative = false;
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                token.append((char) next());
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int exponent = 0;
+            boolean fast = true;
+            boolean seenDigit = false;
+            for (c = peek(); c >= '0' && c <= '9'; c = peek()) {
+                token.append((char) next());
+                seenDigit = true;
+                if (mantissa != 0 || c != '0') {
+                    if (++digits > MAX_FAST_DIGITS) {
+                        fast = false;
+                    } else {
+                        mantissa = mantissa * 10 + (c - '0');
+                    }
+                }
+            }
+            if (c == '.') {
+                token.append((char) next());
+                for (c = peek(); c >= '0' && c <= '9'; c = peek()) {
+                    token.append((char) next());
+                    seenDigit = true;
+                    if (mantissa != 0 || c != '0') {
+                        if (++digits > MAX_FAST_DIGITS) {
+                            fast = false;
+                        } else {
+                            mantissa = mantissa * 10 + (c - '0');
+                        }
+                    }
+                    exponent--;
+                }
+            }
+            if (seenDigit && (c == 'e' || c == 'E')) {
+                token.append((char) next());
+                c = peek();
+                boolean negativeExponent = false;
+                if (c == '-' || c == '+') {
+                    negativeExponent = c == '-';
+                    token.append((char) next());
+                }
+                int explicit = 0;
+                boolean exponentDigit = false;
+                for (c = peek(); c >= '0' && c <= '9'; c = peek()) {
+                    token.append((char) next());
+                    exponentDigit = true;
+                    if (explicit < 100000) {
+                        explicit = explicit * 10 + (c - '0');
+                    }
+                }
+                if (!exponentDigit) {
+                    throw error("malformed number " + token);
+                }
+                exponent += negativeExponent ? -explicit : explicit;
+            }
+            if (!seenDigit || !endOfToken(c)) {
+                while (!endOfToken(peek())) {
+                    token.append((char) next());
+                }
+                return parseSlow();
+            }
+            if (fast && exponent >= -MAX_FAST_EXPONENT && exponent <= MAX_FAST_EXPONENT) {
+                double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] :
+                        mantissa / POWERS_OF_TEN[-exponent];
+                return negative ? -value : value;
+            }
+            return parseSlow();
+        }
+
+        private double parseSlow() throws IOException {
+            try {
+                return Double.parseDouble(token.toString());
+            } catch (NumberFormatException e) {
+                throw error("malformed number " + token);
+            }
+        }
+
+        private boolean endOfToken(int c) {
+            return c < 0 || c == ' ' || c == '\t' || c == '\r' || c == '\n';
+        }
+
+        private IOException error(String message) {
+            return new IOException(message + " on line " + line);
+        }
+    }
+
+}
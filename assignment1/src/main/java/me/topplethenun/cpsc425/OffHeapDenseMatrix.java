@@ -0,0 +1,268 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link DenseMatrix} whose values live outside the Java heap, either in direct buffers or in a memory-mapped file.
+ * <p>
+ * Values are split across buffers of at most {@code 2^27} doubles each, so a matrix may hold more than
+ * {@link Integer#MAX_VALUE} values. A file-backed matrix is paged in by the operating system as it is touched, so
+ * opening one does not read the file. Instances work with every {@link DenseMatrix} operation, although operations
+ * that return a new matrix return one on the heap.
+ *
+ * @author Richard Harrah
+ */
+public class OffHeapDenseMatrix extends DenseMatrix implements Closeable {
+
+    private static final int CHUNK_SHIFT = 27;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final DoubleBuffer[] chunks;
+    private final MappedByteBuffer[] mappings;
+    private final FileChannel channel;
+    private final long offset;
+    private final long rowStride;
+    private final long columnStride;
+
+    private OffHeapDenseMatrix(int rows, int columns, Layout layout, DoubleBuffer[] chunks,
+                               MappedByteBuffer[] mappings, FileChannel channel) {
+        this(rows, columns, layout, chunks, mappings, channel, 0L, layout == Layout.ROW_MAJOR ? columns : 1,
+                layout == Layout.ROW_MAJOR ? 1 : rows, new long[1]);
+    }
+
+    private OffHeapDenseMatrix(int rows, int columns, Layout layout, DoubleBuffer[] chunks,
+                               MappedByteBuffer[] mappings, FileChannel channel, long offset, long rowStride,
+                               long columnStride, long[] modifications) {
+        super(rows, columns, layout, null, modifications);
+        this.chunks = chunks;
+        this.mappings = mappings;
+        this.channel = channel;
+        this.offset = offset;
+        this.rowStride = rowStride;
+        this.columnStride = columnStride;
+    }
+
+    /**
+     * Allocates a new row-major OffHeapDenseMatrix in direct memory. All values start at zero.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code rows} or {@code columns} is less than {@code 1}.
+     *
+     * @param rows    number of rows
+     * @param columns number of columns
+     * @return new OffHeapDenseMatrix
+     */
+    public static OffHeapDenseMatrix allocate(int rows, int columns) {
+        return allocate(rows, columns, Layout.ROW_MAJOR);
+    }
+
+    /**
+     * Allocates a new OffHeapDenseMatrix in direct memory. All values start at zero.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code rows} or {@code columns} is less than {@code 1} or if
+     * {@code layout} is null.
+     *
+     * @param rows    number of rows
+     * @param columns number of columns
+     * @param layout  layout of the values
+     * @return new OffHeapDenseMatrix
+     */
+    public static OffHeapDenseMatrix allocate(int rows, int columns, Layout layout) {
+        checkDimensions(rows, columns, layout);
+        long size = (long) rows * columns;
+        DoubleBuffer[] chunks = new DoubleBuffer[chunkCount(size)];
+        for (int i = 0; i < chunks.length; i++) {
+            int length = chunkLength(size, i);
+            chunks[i] = ByteBuffer.allocateDirect(length * Double.BYTES).order(ByteOrder.nativeOrder())
+                    .asDoubleBuffer();
+        }
+        return new OffHeapDenseMatrix(rows, columns, layout, chunks, null, null);
+    }
+
+    /**
+     * Creates a file of the right size at {@code path}, replacing any existing file, and returns an
+     * OffHeapDenseMatrix mapped onto it. All values start at zero.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code path} or {@code layout} is null or if {@code rows} or
+     * {@code columns} is less than {@code 1}.
+     *
+     * @param path    file to create
+     * @param rows    number of rows
+     * @param columns number of columns
+     * @param layout  layout of the values
+     * @return new OffHeapDenseMatrix backed by the file
+     * @throws IOException if the file could not be created or mapped
+     */
+    public static OffHeapDenseMatrix create(Path path, int rows, int columns, Layout layout) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("path must not be null");
+        }
+        checkDimensions(rows, columns, layout);
+        DenseMatrixFile header = new DenseMatrixFile(rows, columns, layout);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            header.write(channel);
+            if (channel.size() < header.fileSize()) {
+                channel.write(ByteBuffer.allocate(1), header.fileSize() - 1);
+            }
+            return map(channel, header, FileChannel.MapMode.READ_WRITE);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens an existing DenseMatrix file for reading and writing. Only the header is read; values are paged in as
+     * they are accessed.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code path} is null.
+     *
+     * @param path file to open
+     * @return OffHeapDenseMatrix backed by the file
+     * @throws IOException if the file could not be opened or mapped or is not a DenseMatrix file
+     */
+    public static OffHeapDenseMatrix open(Path path) throws IOException {
+        return open(path, false);
+    }
+
+    /**
+     * Opens an existing DenseMatrix file. Only the header is read; values are paged in as they are accessed. Setting
+     * a value of a read-only matrix throws a {@link java.nio.ReadOnlyBufferException}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code path} is null.
+     *
+     * @param path     file to open
+     * @param readOnly true to map the file read-only
+     * @return OffHeapDenseMatrix backed by the file
+     * @throws IOException if the file could not be opened or mapped or is not a DenseMatrix file
+     */
+    public static OffHeapDenseMatrix open(Path path, boolean readOnly) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("path must not be null");
+        }
+        FileChannel channel = readOnly ? FileChannel.open(path, StandardOpenOption.READ) :
+                FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            DenseMatrixFile header = DenseMatrixFile.read(channel);
+            return map(channel, header, readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static OffHeapDenseMatrix map(FileChannel channel, DenseMatrixFile header, FileChannel.MapMode mode)
+            throws IOException {
+        long size = (long) header.rows * header.columns;
+        DoubleBuffer[] chunks = new DoubleBuffer[chunkCount(size)];
+        MappedByteBuffer[] mappings = new MappedByteBuffer[chunks.length];
+        for (int i = 0; i < chunks.length; i++) {
+            long position = DenseMatrixFile.HEADER_SIZE + ((long) i << CHUNK_SHIFT) * Double.BYTES;
+            mappings[i] = channel.map(mode, position, (long) chunkLength(size, i) * Double.BYTES);
+            chunks[i] = mappings[i].order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+        return new OffHeapDenseMatrix(header.rows, header.columns, header.layout, chunks, mappings, channel);
+    }
+
+    private static void checkDimensions(int rows, int columns, Layout layout) {
+        if (rows < 1) {
+            throw new IllegalArgumentException("must have at least one row");
+        }
+        if (columns < 1) {
+            throw new IllegalArgumentException("must have at least one column");
+        }
+        if (layout == null) {
+            throw new IllegalArgumentException("layout must not be null");
+        }
+    }
+
+    private static int chunkCount(long size) {
+        return (int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+    }
+
+    private static int chunkLength(long size, int chunk) {
+        return (int) Math.min(CHUNK_SIZE, size - ((long) chunk << CHUNK_SHIFT));
+    }
+
+    /**
+     * Returns true if this matrix is backed by a file.
+     *
+     * @return true if this matrix is backed by a file
+     */
+    public boolean isMapped() {
+        return channel != null;
+    }
+
+    /**
+     * Writes any changes to a file-backed matrix through to the file. Does nothing for matrices in direct memory.
+     */
+    public void force() {
+        if (mappings == null) {
+            return;
+        }
+        for (MappedByteBuffer mapping : mappings) {
+            mapping.force();
+        }
+    }
+
+    /**
+     * Closes the file behind a file-backed matrix. Views share the file of the matrix they were taken from, so
+     * closing either closes it for both. The mapping itself stays valid until the matrix is garbage
+     * collected. Does nothing for matrices in direct memory.
+     *
+     * @throws IOException if the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    @Override
+    DenseMatrix view(int row, int column, int rows, int columns, boolean transpose) {
+        Layout layout = getLayout();
+        Layout viewLayout = transpose ? (layout == Layout.ROW_MAJOR ? Layout.COLUMN_MAJOR : Layout.ROW_MAJOR) : layout;
+        return new OffHeapDenseMatrix(rows, columns, viewLayout, chunks, mappings, channel,
+                offset + row * rowStride + column * columnStride, transpose ? columnStride : rowStride,
+                transpose ? rowStride : columnStride, modifications());
+    }
+
+    @Override
+    double getQuick(int row, int column) {
+        long index = offset + row * rowStride + column * columnStride;
+        return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+    }
+
+    @Override
+    void setQuick(int row, int column, double value) {
+        long index = offset + row * rowStride + column * columnStride;
+        chunks[(int) (index >>> CHUNK_SHIFT)].put((int) (index & CHUNK_MASK), value);
+    }
+
+    @Override
+    Object storage() {
+        return chunks;
+    }
+
+}
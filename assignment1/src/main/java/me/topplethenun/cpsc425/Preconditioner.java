@@ -0,0 +1,66 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+/**
+ * An approximate inverse {@code M^-1} of a matrix {@code A}, applied by an {@link IterativeSolver} to every residual so
+ * that the preconditioned system converges in fewer iterations. Implementations do all of their setup when they are
+ * created, so applying one does not allocate.
+ *
+ * @author Richard Harrah
+ * @see IterativeSolver#preconditioner(Preconditioner)
+ */
+@FunctionalInterface
+public interface Preconditioner {
+
+    /**
+     * The identity, which leaves the residual unchanged.
+     */
+    Preconditioner NONE = (r, z) -> System.arraycopy(r, 0, z, 0, r.length);
+
+    /**
+     * Computes {@code z = M^-1 * r}. {@code r} is not changed.
+     *
+     * @param r residual
+     * @param z vector to store the preconditioned residual in
+     */
+    void apply(double[] r, double[] z);
+
+    /**
+     * Returns the Jacobi preconditioner of {@code matrix}, which divides each value of the residual by the diagonal
+     * value of its row. Cheap to build and apply, and effective for diagonally dominant systems.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or not square. Throws an
+     * {@link ArithmeticException} if a value on the diagonal is zero.
+     *
+     * @param matrix square matrix to precondition
+     * @return the Jacobi preconditioner
+     */
+    static Preconditioner jacobi(CompressedSparseMatrix matrix) {
+        return new JacobiPreconditioner(matrix);
+    }
+
+    /**
+     * Returns the incomplete LU preconditioner of {@code matrix} with no fill-in, ILU(0): the factors {@code L} and
+     * {@code U} keep the non-zero pattern of {@code matrix}, and applying it runs one forward and one backward
+     * substitution over them.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or not square. Throws an
+     * {@link ArithmeticException} if a pivot of the factorization is zero.
+     *
+     * @param matrix square matrix to precondition
+     * @return the ILU(0) preconditioner
+     */
+    static Preconditioner incompleteLU(CompressedSparseMatrix matrix) {
+        return new IncompleteLUPreconditioner(matrix);
+    }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * An opt-in cache of {@link DenseMatrix} products for code that multiplies the same operands again and again.
+ * {@link #multiply(DenseMatrix, DenseMatrix)} returns the cached product when it was computed from the same two
+ * matrix objects at the same {@link DenseMatrix#getVersion() versions}, and computes and caches it otherwise. The
+ * cache keeps its own copy of each product and every call returns a new matrix, so changing a returned product does
+ * not change the cached one or the result of any other call.
+ * <p>
+ * The cache is bounded by the total number of elements of the products it holds, and evicts the least recently used
+ * product when a new one would not fit. Operands are compared by identity and only weakly referenced, so caching a
+ * product does not keep its operands alive; entries whose operands were garbage collected are dropped. Writes made
+ * directly to a backing array are not seen (see {@link DenseMatrix#getVersion()}).
+ * <p>
+ * A ProductCache is safe for use by several threads. Products are computed outside of its lock, so two threads
+ * missing on the same operands at once may both compute the product. The versions of the operands are read without
+ * the lock, so changes made to an operand by another thread must be visible to the calling thread before the call,
+ * just as they must be for the product to be computed from them.
+ *
+ * @author Richard Harrah
+ */
+public final class ProductCache {
+
+    private final long capacity;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReferenceQueue<DenseMatrix> collected = new ReferenceQueue<>();
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs a new ProductCache that holds products with at most {@code capacity} elements in total.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code capacity} is less than {@code 1}.
+     *
+     * @param capacity largest total number of elements of the cached products
+     */
+    public ProductCache(long capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns {@code a.multiply(b)} in a new DenseMatrix, copied from the cache if neither operand has changed since
+     * the product was computed. Products with more elements than the capacity of the cache are computed but not
+     * cached.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code a} or {@code b} is null or if the matrices are not
+     * compatible.
+     *
+     * @param a left operand
+     * @param b right operand
+     * @return new DenseMatrix holding the product
+     * @see DenseMatrix#multiply(DenseMatrix)
+     */
+    public DenseMatrix multiply(DenseMatrix a, DenseMatrix b) {
+        if (a == null || b == null) {
+            throw new IllegalArgumentException("matrix must not be null");
+        }
+        long aVersion = a.getVersion();
+        long bVersion = b.getVersion();
+        Key probe = new Key(a, b, null);
+        synchronized (this) {
+            expungeCollected();
+            Entry entry = entries.get(probe);
+            if (entry != null) {
+                if (entry.aVersion == aVersion && entry.bVersion == bVersion) {
+                    hits++;
+                    return entry.product.copy();
+                }
+                remove(probe);
+            }
+            misses++;
+        }
+        DenseMatrix product = a.multiply(b);
+        long productWeight = (long) product.numOfRows() * product.numOfColumns();
+        if (productWeight > capacity) {
+            return product;
+        }
+        DenseMatrix cached = product.copy();
+        synchronized (this) {
+            Key key = new Key(a, b, collected);
+            Entry previous = entries.put(key, new Entry(cached, aVersion, bVersion, productWeight));
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+            weight += productWeight;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (weight > capacity) {
+                weight -= eldest.next().weight;
+                eldest.remove();
+                evictions++;
+            }
+        }
+        return product;
+    }
+
+    /**
+     * Returns the number of products currently cached.
+     *
+     * @return number of cached products
+     */
+    public synchronized int size() {
+        expungeCollected();
+        return entries.size();
+    }
+
+    /**
+     * Returns the total number of elements of the products currently cached.
+     *
+     * @return total weight of the cache
+     */
+    public synchronized long getWeight() {
+        expungeCollected();
+        return weight;
+    }
+
+    /**
+     * Returns the number of calls to {@link #multiply(DenseMatrix, DenseMatrix)} answered from the cache.
+     *
+     * @return number of hits
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of calls to {@link #multiply(DenseMatrix, DenseMatrix)} that had to compute the product,
+     * including those whose cached product was out of date.
+     *
+     * @return number of misses
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of products dropped to make room for newer ones. Products dropped because they were out of
+     * date or their operands were garbage collected are not counted.
+     *
+     * @return number of evictions
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Removes every cached product. The hit, miss and eviction counts are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    private void expungeCollected() {
+        for (Reference<? extends DenseMatrix> reference = collected.poll(); reference != null;
+             reference = collected.poll()) {
+            remove(((Operand) reference).key);
+        }
+    }
+
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            weight -= entry.weight;
+        }
+    }
+
+    /**
+     * Identity of an ordered pair of operands. The hash codes are kept so that a key can still be found, and removed,
+     * after its operands are collected.
+     */
+    private static final class Key {
+        private final Operand a;
+        private final Operand b;
+        private final int hash;
+
+        Key(DenseMatrix a, DenseMatrix b, ReferenceQueue<DenseMatrix> queue) {
+            this.a = new Operand(a, this, queue);
+            this.b = new Operand(b, this, queue);
+            this.hash = 31 * System.identityHashCode(a) + System.identityHashCode(b);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            DenseMatrix a = this.a.get();
+            DenseMatrix b = this.b.get();
+            return hash == other.hash && a != null && b != null && a == other.a.get() && b == other.b.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Operand extends WeakReference<DenseMatrix> {
+        private final Key key;
+
+        Operand(DenseMatrix matrix, Key key, ReferenceQueue<DenseMatrix> queue) {
+            super(matrix, queue);
+            this.key = key;
+        }
+    }
+
+    private static final class Entry {
+        private final DenseMatrix product;
+        private final long aVersion;
+        private final long bVersion;
+        private final long weight;
+
+        Entry(DenseMatrix product, long aVersion, long bVersion, long weight) {
+            this.product = product;
+            this.aVersion = aVersion;
+            this.bVersion = bVersion;
+            this.weight = weight;
+        }
+    }
+
+}
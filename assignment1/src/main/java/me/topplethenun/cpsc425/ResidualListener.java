@@ -0,0 +1,32 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+/**
+ * Receives the residual of an {@link IterativeSolver} after every iteration, for example to log or chart how fast a
+ * system converges.
+ *
+ * @author Richard Harrah
+ * @see IterativeSolver#residualListener(ResidualListener)
+ */
+@FunctionalInterface
+public interface ResidualListener {
+
+    /**
+     * Called after each iteration with the relative residual {@code ||b - A * x|| / ||b||} of the current solution,
+     * which is the value compared against the tolerance. Iteration 0 is the initial guess.
+     *
+     * @param iteration number of the iteration just finished
+     * @param residual  relative residual after that iteration
+     */
+    void onIteration(int iteration, double residual);
+
+}
@@ -0,0 +1,388 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Kernels over the arrays of a {@link CompressedSparseMatrix}. Diagonal values that are not stored in the arrays are
+ * read through {@link CompressedSparseMatrix#implicitDiagonal(int)}.
+ *
+ * @author Richard Harrah
+ */
+final class SparseKernels {
+
+    /**
+     * Number of stored values below which {@link SpmvTask} stops splitting.
+     */
+    static final int SPMV_SEQUENTIAL_CUTOFF = 1 << 15;
+
+    private SparseKernels() {
+        // do nothing
+    }
+
+    /**
+     * Computes {@code y = A * x} for rows {@code from} up to {@code to} of the compressed sparse row matrix {@code A}.
+     *
+     * @param a    CSR matrix
+     * @param x    vector to multiply
+     * @param y    vector to store the results in
+     * @param from first row to compute
+     * @param to   row after the last row to compute
+     */
+    static void spmvRows(CompressedSparseMatrix a, double[] x, double[] y, int from, int to) {
+        int[] pointers = a.pointers;
+        int[] indices = a.indices;
+        double[] values = a.values;
+        int diagonalSize = Math.min(a.rows, a.columns);
+        for (int i = from; i < to; i++) {
+            double sum = i < diagonalSize ? a.implicitDiagonal(i) * x[i] : 0D;
+            for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+                sum += values[p] * x[indices[p]];
+            }
+            y[i] = sum;
+        }
+    }
+
+    /**
+     * Computes {@code y = A * x} for the compressed sparse column matrix {@code A} by scattering each column of
+     * {@code A} into {@code y}.
+     *
+     * @param a CSC matrix
+     * @param x vector to multiply
+     * @param y vector to store the results in
+     */
+    static void spmvColumns(CompressedSparseMatrix a, double[] x, double[] y) {
+        int[] pointers = a.pointers;
+        int[] indices = a.indices;
+        double[] values = a.values;
+        int diagonalSize = Math.min(a.rows, a.columns);
+        for (int i = 0; i < diagonalSize; i++) {
+            y[i] = a.implicitDiagonal(i) * x[i];
+        }
+        for (int i = diagonalSize; i < y.length; i++) {
+            y[i] = 0D;
+        }
+        for (int j = 0; j < a.columns; j++) {
+            double scale = x[j];
+            if (scale == 0D) {
+                continue;
+            }
+            for (int p = pointers[j]; p < pointers[j + 1]; p++) {
+                y[indices[p]] += values[p] * scale;
+            }
+        }
+    }
+
+    /**
+     * Computes one Jacobi sweep {@code next = D^-1 * (b - (A - D) * x)} for the square compressed sparse row matrix
+     * {@code A} with diagonal {@code D}.
+     *
+     * @param a    square CSR matrix
+     * @param b    right-hand side
+     * @param x    current approximation
+     * @param next vector to store the next approximation in
+     */
+    static void jacobiRows(CompressedSparseMatrix a, double[] b, double[] x, double[] next) {
+        int[] pointers = a.pointers;
+        int[] indices = a.indices;
+        double[] values = a.values;
+        for (int i = 0; i < a.rows; i++) {
+            double diagonal = a.implicitDiagonal(i);
+            double sum = b[i];
+            for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+                int j = indices[p];
+                if (j == i) {
+                    diagonal = values[p];
+                } else {
+                    sum -= values[p] * x[j];
+                }
+            }
+            next[i] = sum / checkDiagonal(diagonal, i);
+        }
+    }
+
+    /**
+     * Computes one forward Gauss-Seidel sweep for the square compressed sparse row matrix {@code A}, updating
+     * {@code x} in place row by row.
+     *
+     * @param a square CSR matrix
+     * @param b right-hand side
+     * @param x current approximation, replaced by the next one
+     */
+    static void gaussSeidelRows(CompressedSparseMatrix a, double[] b, double[] x) {
+        int[] pointers = a.pointers;
+        int[] indices = a.indices;
+        double[] values = a.values;
+        for (int i = 0; i < a.rows; i++) {
+            double diagonal = a.implicitDiagonal(i);
+            double sum = b[i];
+            for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+                int j = indices[p];
+                if (j == i) {
+                    diagonal = values[p];
+                } else {
+                    sum -= values[p] * x[j];
+                }
+            }
+            x[i] = sum / checkDiagonal(diagonal, i);
+        }
+    }
+
+    private static double checkDiagonal(double diagonal, int row) {
+        if (diagonal == 0D) {
+            throw new ArithmeticException("diagonal value of row " + row + " is zero");
+        }
+        return diagonal;
+    }
+
+    /**
+     * Returns the compressed form of a sparse {@link Matrix}, or null if {@code matrix} is not sparse.
+     *
+     * @param matrix matrix to look at
+     * @return the compressed matrix, or null
+     */
+    static CompressedSparseMatrix asCompressed(Matrix matrix) {
+        if (matrix instanceof CompressedSparseMatrix) {
+            return (CompressedSparseMatrix) matrix;
+        }
+        if (matrix instanceof SparseMatrix) {
+            return ((SparseMatrix) matrix).compress();
+        }
+        return null;
+    }
+
+    /**
+     * Returns {@code matrix} if it is backed by an array, or a row-major copy of it on the heap otherwise, so the
+     * kernels below can index its elements directly.
+     *
+     * @param matrix dense matrix
+     * @return array-backed matrix with the same values
+     */
+    static DenseMatrix onHeap(DenseMatrix matrix) {
+        if (matrix.hasArray()) {
+            return matrix;
+        }
+        DenseMatrix retMatrix = new DenseMatrix(matrix.numOfRows(), matrix.numOfColumns());
+        double[] elements = retMatrix.getElements();
+        int columns = matrix.numOfColumns();
+        for (int i = 0; i < matrix.numOfRows(); i++) {
+            for (int j = 0; j < columns; j++) {
+                elements[i * columns + j] = matrix.getQuick(i, j);
+            }
+        }
+        return retMatrix;
+    }
+
+    /**
+     * Adds every value of {@code a}, including any diagonal not stored in its arrays, into the row-major array
+     * {@code c} of a matrix with the same dimensions.
+     *
+     * @param a sparse matrix
+     * @param c row-major elements to add into
+     */
+    static void scatter(CompressedSparseMatrix a, double[] c) {
+        scatter(a, 1D, c);
+    }
+
+    /**
+     * Adds {@code alpha} times every value of {@code a}, including any diagonal not stored in its arrays, into the
+     * row-major array {@code c} of a matrix with the same dimensions.
+     *
+     * @param a     sparse matrix
+     * @param alpha factor applied to each value
+     * @param c     row-major elements to add into
+     */
+    static void scatter(CompressedSparseMatrix a, double alpha, double[] c) {
+        int columns = a.columns;
+        boolean byRow = a.orientation == CompressedSparseMatrix.Orientation.ROW;
+        for (int outer = 0; outer + 1 < a.pointers.length; outer++) {
+            for (int p = a.pointers[outer]; p < a.pointers[outer + 1]; p++) {
+                int row = byRow ? outer : a.indices[p];
+                int column = byRow ? a.indices[p] : outer;
+                c[row * columns + column] += alpha * a.values[p];
+            }
+        }
+        int diagonalSize = Math.min(a.rows, a.columns);
+        for (int k = 0; k < diagonalSize; k++) {
+            c[k * columns + k] += alpha * a.implicitDiagonal(k);
+        }
+    }
+
+    /**
+     * Computes {@code A + B} for the sparse matrix {@code A} and the array-backed dense matrix {@code B}, which have
+     * the same dimensions. {@code B} is copied into a new row-major matrix and the values of {@code A} are added on
+     * top, so only its stored values are visited.
+     *
+     * @param a sparse matrix
+     * @param b array-backed dense matrix
+     * @return new row-major DenseMatrix with the results
+     */
+    static DenseMatrix addDense(CompressedSparseMatrix a, DenseMatrix b) {
+        int columns = a.columns;
+        DenseMatrix retMatrix = new DenseMatrix(a.rows, columns);
+        double[] c = retMatrix.getElements();
+        double[] bElements = b.getElements();
+        int bRowStride = b.getRowStride();
+        int bColumnStride = b.getColumnStride();
+        for (int i = 0; i < a.rows; i++) {
+            int bRow = b.getOffset() + i * bRowStride;
+            if (bColumnStride == 1) {
+                System.arraycopy(bElements, bRow, c, i * columns, columns);
+            } else {
+                for (int j = 0; j < columns; j++) {
+                    c[i * columns + j] = bElements[bRow + j * bColumnStride];
+                }
+            }
+        }
+        scatter(a, c);
+        return retMatrix;
+    }
+
+    /**
+     * Computes {@code A * B} for the compressed sparse row matrix {@code A} and the array-backed dense matrix
+     * {@code B}. Each stored value {@code A[i][k]} adds a scaled row {@code k} of {@code B} into row {@code i} of the
+     * result, so both dense matrices are walked along their rows and the work grows with the number of stored values
+     * times the width of {@code B}.
+     *
+     * @param a CSR matrix
+     * @param b array-backed dense matrix with as many rows as {@code a} has columns
+     * @return new row-major DenseMatrix with the results
+     */
+    static DenseMatrix multiplyDense(CompressedSparseMatrix a, DenseMatrix b) {
+        int columns = b.numOfColumns();
+        DenseMatrix retMatrix = new DenseMatrix(a.rows, columns);
+        double[] c = retMatrix.getElements();
+        double[] bElements = b.getElements();
+        int bOffset = b.getOffset();
+        int bRowStride = b.getRowStride();
+        int bColumnStride = b.getColumnStride();
+        for (int i = 0; i < a.rows; i++) {
+            int cRow = i * columns;
+            double diagonal = a.implicitDiagonal(i);
+            if (diagonal != 0D) {
+                addRow(diagonal, bElements, bOffset + i * bRowStride, bColumnStride, c, cRow, columns);
+            }
+            for (int p = a.pointers[i]; p < a.pointers[i + 1]; p++) {
+                addRow(a.values[p], bElements, bOffset + a.indices[p] * bRowStride, bColumnStride, c, cRow, columns);
+            }
+        }
+        return retMatrix;
+    }
+
+    private static void addRow(double scale, double[] b, int bStart, int bStride, double[] c, int cStart, int length) {
+        if (bStride == 1) {
+            for (int j = 0; j < length; j++) {
+                c[cStart + j] += scale * b[bStart + j];
+            }
+        } else {
+            for (int j = 0; j < length; j++) {
+                c[cStart + j] += scale * b[bStart + j * bStride];
+            }
+        }
+    }
+
+    /**
+     * Computes {@code B * A} for the array-backed dense matrix {@code B} and the compressed sparse row matrix
+     * {@code A}. Each non-zero {@code B[r][k]} scatters a scaled row {@code k} of {@code A} into row {@code r} of the
+     * result, so the work grows with the number of rows of {@code B} times the number of values stored in {@code A}.
+     *
+     * @param b array-backed dense matrix with as many columns as {@code a} has rows
+     * @param a CSR matrix
+     * @return new row-major DenseMatrix with the results
+     */
+    static DenseMatrix denseMultiply(DenseMatrix b, CompressedSparseMatrix a) {
+        int rows = b.numOfRows();
+        int columns = a.columns;
+        DenseMatrix retMatrix = new DenseMatrix(rows, columns);
+        double[] c = retMatrix.getElements();
+        double[] bElements = b.getElements();
+        int bColumnStride = b.getColumnStride();
+        for (int r = 0; r < rows; r++) {
+            int bRow = b.getOffset() + r * b.getRowStride();
+            int cRow = r * columns;
+            for (int k = 0; k < a.rows; k++) {
+                double scale = bElements[bRow + k * bColumnStride];
+                if (scale == 0D) {
+                    continue;
+                }
+                double diagonal = a.implicitDiagonal(k);
+                if (diagonal != 0D) {
+                    c[cRow + k] += scale * diagonal;
+                }
+                for (int p = a.pointers[k]; p < a.pointers[k + 1]; p++) {
+                    c[cRow + a.indices[p]] += scale * a.values[p];
+                }
+            }
+        }
+        return retMatrix;
+    }
+
+    /**
+     * Returns the row (or column) strictly between {@code from} and {@code to} at which the values stored in the
+     * range are closest to being halved, counting each row as one extra value for its loop overhead. Splitting work
+     * here rather than at the middle row keeps a few very long rows from leaving one task with most of the work.
+     *
+     * @param pointers row pointers of a compressed matrix
+     * @param from     first row of the range
+     * @param to       row after the last row of the range; must be at least {@code from + 2}
+     * @return row to split the range at
+     */
+    static int splitPoint(int[] pointers, int from, int to) {
+        long target = ((long) pointers[from] + from + pointers[to] + to) / 2;
+        int low = from + 1;
+        int high = to - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if ((long) pointers[middle] + middle < target) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Fork-join task computing {@code y = A * x} over a range of rows of a compressed sparse row matrix. Ranges are
+     * split by {@link #splitPoint(int[], int, int)}, where they hold half of their stored values rather than half of
+     * their rows. A range is computed directly once it holds fewer than {@link #SPMV_SEQUENTIAL_CUTOFF} stored
+     * values or a single row.
+     */
+    static final class SpmvTask extends RecursiveAction {
+        private final CompressedSparseMatrix a;
+        private final double[] x;
+        private final double[] y;
+        private final int from;
+        private final int to;
+
+        SpmvTask(CompressedSparseMatrix a, double[] x, double[] y, int from, int to) {
+            this.a = a;
+            this.x = x;
+            this.y = y;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int[] pointers = a.pointers;
+            int work = pointers[to] - pointers[from] + (to - from);
+            if (work <= SPMV_SEQUENTIAL_CUTOFF || to - from == 1) {
+                spmvRows(a, x, y, from, to);
+                return;
+            }
+            int split = splitPoint(pointers, from, to);
+            invokeAll(new SpmvTask(a, x, y, from, split), new SpmvTask(a, x, y, split, to));
+        }
+    }
+
+}
@@ -10,17 +10,43 @@
  */
 package me.topplethenun.cpsc425;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
-public class SparseMatrix {
+public class SparseMatrix implements Matrix {
+
+    /**
+     * How the diagonal of a sparse matrix is stored.
+     */
+    public enum DiagonalMode {
+        /**
+         * The diagonal is implicitly one and is not stored; writes to it are ignored.
+         */
+        UNIT,
+        /**
+         * The diagonal is stored with the other values, so only its non-zero values take up space.
+         */
+        GENERAL,
+        /**
+         * The diagonal is stored in its own dense array and the other values are stored sparsely. Suits matrices with
+         * a full diagonal, such as the diagonally dominant systems solved by Jacobi or Gauss-Seidel sweeps.
+         */
+        SEPARATE
+    }
 
     private final Table<Integer, Integer, Double> innerTable;
+    private final DiagonalMode diagonalMode;
+    private final double[] diagonal;
+    private CompressedSparseMatrix compressed;
 
     /**
-     * Constructs a new SparseMatrix with a given amount of rows and columns.
+     * Constructs a new SparseMatrix with a given amount of rows and columns and a diagonal that is implicitly one.
      * <p>
      * This constructor will throw an {@link IllegalArgumentException} if {@code rows} or {@code columns} is less
      * than {@code 1}.
@@ -29,13 +55,33 @@ public class SparseMatrix {
      * @param columns number of columns
      */
     public SparseMatrix(int rows, int columns) {
+        this(rows, columns, DiagonalMode.UNIT);
+    }
+
+    /**
+     * Constructs a new SparseMatrix with a given amount of rows and columns, storing its diagonal as given by
+     * {@code diagonalMode}.
+     * <p>
+     * This constructor will throw an {@link IllegalArgumentException} if {@code rows} or {@code columns} is less
+     * than {@code 1} or if {@code diagonalMode} is null.
+     *
+     * @param rows         number of rows
+     * @param columns      number of columns
+     * @param diagonalMode how the diagonal is stored
+     */
+    public SparseMatrix(int rows, int columns, DiagonalMode diagonalMode) {
         if (rows < 1) {
             throw new IllegalArgumentException("must have at least one row");
         }
         if (columns < 1) {
             throw new IllegalArgumentException("must have at least one column");
         }
+        if (diagonalMode == null) {
+            throw new IllegalArgumentException("diagonal mode must not be null");
+        }
         innerTable = new Table<>(rows, columns);
+        this.diagonalMode = diagonalMode;
+        this.diagonal = diagonalMode == DiagonalMode.SEPARATE ? new double[Math.min(rows, columns)] : null;
     }
 
     /**
@@ -57,7 +103,75 @@ public class SparseMatrix {
     }
 
     /**
-     * Gets and returns the value at the given row and column.
+     * Returns how the diagonal of this SparseMatrix is stored.
+     *
+     * @return diagonal mode of this matrix
+     */
+    public DiagonalMode getDiagonalMode() {
+        return diagonalMode;
+    }
+
+    /**
+     * Returns the number of non-zero values stored in this SparseMatrix. The implicit diagonal of a
+     * {@link DiagonalMode#UNIT} matrix is not counted.
+     *
+     * @return number of stored values
+     * @see CompressedSparseMatrix#numOfNonZeros()
+     */
+    public int numOfNonZeros() {
+        return compress().numOfNonZeros();
+    }
+
+    /**
+     * Returns the number of non-zero values stored in the given row, counted as by {@link #numOfNonZeros()}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code row} is less than 0 or equal to or greater than
+     * {@link #numOfRows()}.
+     *
+     * @param row row to count
+     * @return number of stored values in the row
+     */
+    public int numOfNonZeros(int row) {
+        return compress().numOfNonZeros(row);
+    }
+
+    /**
+     * Returns a new array holding the number of non-zero values stored in each row, counted as by
+     * {@link #numOfNonZeros()}.
+     *
+     * @return number of stored values in each row
+     */
+    public int[] numOfNonZerosPerRow() {
+        return compress().numOfNonZerosPerRow();
+    }
+
+    /**
+     * Passes every non-zero value stored in this SparseMatrix to {@code action} along with its row and column, row by
+     * row in ascending order of column. The values are read from the compressed form of this matrix (see
+     * {@link #compress()}), so nothing is boxed and, once the matrix has been compressed, nothing is allocated.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code action} is null.
+     *
+     * @param action operation to perform on each value
+     * @see CompressedSparseMatrix#forEachNonZero(IntIntDoubleConsumer)
+     */
+    public void forEachNonZero(IntIntDoubleConsumer action) {
+        compress().forEachNonZero(action);
+    }
+
+    /**
+     * Returns a new {@link CompressedSparseMatrix.RowCursor} over the rows of this SparseMatrix. The cursor reads the
+     * values this matrix holds when it is created; later changes to this matrix are not seen by it.
+     *
+     * @return new RowCursor
+     */
+    public CompressedSparseMatrix.RowCursor rowCursor() {
+        return compress().rowCursor();
+    }
+
+    /**
+     * Gets and returns the value at the given row and column. The diagonal of a {@link DiagonalMode#UNIT} matrix is
+     * always one.
      * <p>
      * Throws an {@link IllegalArgumentException} if {@code row} is less than 0 or equal to or greater than
      * {@link #numOfRows()} or if {@code column} is less than 0 or equal to or greater than {@link #numOfColumns()}.
@@ -73,14 +187,15 @@ public class SparseMatrix {
         if (column < 0 || column >= numOfColumns()) {
             throw new IllegalArgumentException("column must be greater than -1 and less than number of columns");
         }
-        if (row == column) {
-            return 1;
+        if (row == column && diagonalMode != DiagonalMode.GENERAL) {
+            return diagonal == null ? 1 : diagonal[row];
         }
         return innerTable.has(row, column) ? innerTable.get(row, column) : 0D;
     }
 
     /**
-     * Sets the value at the given row and column.
+     * Sets the value at the given row and column. Setting a value to zero removes it, so only non-zero values are
+     * stored. Values set on the diagonal of a {@link DiagonalMode#UNIT} matrix are ignored.
      * <p>
      * Throws an {@link IllegalArgumentException} if {@code row} is less than 0 or equal to or greater than
      * {@link #numOfRows()} or if {@code column} is less than 0 or equal to or greater than {@link #numOfColumns()}.
@@ -96,15 +211,28 @@ public class SparseMatrix {
         if (column < 0 || column >= numOfColumns()) {
             throw new IllegalArgumentException("column must be greater than -1 and less than number of columns");
         }
-        if (row == column) {
+        if (row == column && diagonalMode != DiagonalMode.GENERAL) {
+            if (diagonal != null) {
+                diagonal[row] = value;
+                compressed = null;
+            }
             return;
         }
-        innerTable.put(row, column, value);
+        if (value == 0D) {
+            innerTable.remove(row, column);
+        } else {
+            innerTable.put(row, column, value);
+        }
+        compressed = null;
     }
 
     /**
      * Adds two {@code SparseMatrix}s together. Returns a new SparseMatrix with the results.
      * <p>
+     * The rows of both matrices are merged in their compressed forms (see
+     * {@link CompressedSparseMatrix#add(CompressedSparseMatrix)}), so only stored values are visited and values that
+     * cancel to zero are left out of the result.
+     * <p>
      * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if the matrices are not compatible.
      *
      * @param matrix SparseMatrix to add to this matrix
@@ -117,18 +245,103 @@ public class SparseMatrix {
         if (matrix.numOfRows() != numOfRows() || matrix.numOfColumns() != numOfColumns()) {
             throw new IllegalArgumentException("matrix must have same number of rows AND columns");
         }
-        SparseMatrix retMatrix = new SparseMatrix(numOfRows(), numOfColumns());
-        for (int i = 0; i < numOfRows(); i++) {
-            for (int j = 0; j < numOfColumns(); j++) {
-                retMatrix.set(i, j, get(i, j) + matrix.get(i, j));
-            }
+        return compress().add(matrix.compress()).toSparseMatrix();
+    }
+
+    /**
+     * Adds {@code matrix} to this SparseMatrix over the compressed form of this matrix (see
+     * {@link CompressedSparseMatrix#add(Matrix)}). Another sparse matrix gives a new SparseMatrix and a dense matrix
+     * gives a new {@link DenseMatrix}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if the matrices are not compatible.
+     *
+     * @param matrix Matrix to add to this matrix
+     * @return new Matrix with the results
+     */
+    @Override
+    public Matrix add(Matrix matrix) {
+        if (matrix instanceof SparseMatrix || matrix == null) {
+            return add((SparseMatrix) matrix);
+        }
+        Matrix retMatrix = compress().add(matrix);
+        if (retMatrix instanceof CompressedSparseMatrix) {
+            return ((CompressedSparseMatrix) retMatrix).toSparseMatrix();
         }
         return retMatrix;
     }
 
+    /**
+     * Adds {@code matrix} to this SparseMatrix, storing the results in this matrix. Returns this matrix.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if the matrices are not compatible.
+     *
+     * @param matrix SparseMatrix to add to this matrix
+     * @return this matrix
+     * @see #axpy(double, SparseMatrix)
+     */
+    public SparseMatrix addInPlace(SparseMatrix matrix) {
+        return axpy(1, matrix);
+    }
+
+    /**
+     * Adds {@code alpha} times {@code matrix} to this SparseMatrix, storing the results in this matrix. Returns this
+     * matrix. Only the values stored in {@code matrix} are visited, so the cost depends on its number of non-zeros
+     * rather than on the dimensions; values that cancel to zero are removed. The diagonal of a
+     * {@link DiagonalMode#UNIT} matrix stays one.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if the matrices are not compatible.
+     *
+     * @param alpha  factor to scale {@code matrix} by
+     * @param matrix SparseMatrix to add to this matrix
+     * @return this matrix
+     */
+    public SparseMatrix axpy(double alpha, SparseMatrix matrix) {
+        if (matrix == null) {
+            throw new IllegalArgumentException("matrix must not be null");
+        }
+        if (matrix.numOfRows() != numOfRows() || matrix.numOfColumns() != numOfColumns()) {
+            throw new IllegalArgumentException("matrix must have same number of rows AND columns");
+        }
+        if (alpha == 0D) {
+            return this;
+        }
+        CompressedSparseMatrix other = matrix.compress();
+        for (int i = 0; i < other.rows; i++) {
+            double otherDiagonal = other.implicitDiagonal(i);
+            if (otherDiagonal != 0D) {
+                addTo(i, i, alpha * otherDiagonal);
+            }
+            for (int p = other.pointers[i]; p < other.pointers[i + 1]; p++) {
+                addTo(i, other.indices[p], alpha * other.values[p]);
+            }
+        }
+        compressed = null;
+        return this;
+    }
+
+    private void addTo(int row, int column, double value) {
+        if (row == column && diagonalMode != DiagonalMode.GENERAL) {
+            if (diagonal != null) {
+                diagonal[row] += value;
+            }
+            return;
+        }
+        Double current = innerTable.get(row, column);
+        double sum = (current == null ? 0D : current) + value;
+        if (sum == 0D) {
+            innerTable.remove(row, column);
+        } else {
+            innerTable.put(row, column, sum);
+        }
+    }
+
     /**
      * Multiplies two {@code SparseMatrix}s together. Returns a new SparseMatrix with the results.
      * <p>
+     * The product is formed from the compressed forms of both matrices (see
+     * {@link CompressedSparseMatrix#multiply(CompressedSparseMatrix)}), so its cost depends on the number of stored
+     * values rather than on the dimensions, and the result holds no explicit zeros.
+     * <p>
      * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if the matrices are not compatible.
      *
      * @param matrix SparseMatrix to multiply with
@@ -141,28 +354,204 @@ public class SparseMatrix {
         if (numOfRows() != matrix.numOfColumns() && numOfColumns() != matrix.numOfRows()) {
             throw new IllegalArgumentException("matrix dimensions are not equal");
         }
-        int retRows = numOfRows();
-        int retCols = matrix.numOfColumns();
-        SparseMatrix retMatrix = new SparseMatrix(retRows, retCols);
-        for (int i = 0; i < retRows; i++) {
-            for (int j = 0; j < retCols; j++) {
-                retMatrix.set(i, j, 0D);
-            }
+        return compress().multiply(matrix.compress()).toSparseMatrix();
+    }
+
+    /**
+     * Multiplies this SparseMatrix by {@code matrix} over the compressed form of this matrix (see
+     * {@link CompressedSparseMatrix#multiply(Matrix)}). Another sparse matrix gives a new SparseMatrix and a dense
+     * matrix gives a new {@link DenseMatrix}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if the matrices are not compatible.
+     *
+     * @param matrix Matrix to multiply with
+     * @return new Matrix with the results
+     */
+    @Override
+    public Matrix multiply(Matrix matrix) {
+        if (matrix instanceof SparseMatrix || matrix == null) {
+            return multiply((SparseMatrix) matrix);
+        }
+        Matrix retMatrix = compress().multiply(matrix);
+        if (retMatrix instanceof CompressedSparseMatrix) {
+            return ((CompressedSparseMatrix) retMatrix).toSparseMatrix();
         }
-        for (int i = 0; i < numOfRows(); i++) {
-            for (int j = 0; j < matrix.numOfColumns(); j++) {
-                for (int k = 0; k < numOfColumns(); k++) {
-                    double curVal = retMatrix.get(i, j);
-                    double adding = get(i, k) * matrix.get(k, j);
-                    retMatrix.set(i, j, curVal + adding);
+        return retMatrix;
+    }
+
+    /**
+     * Multiplies this SparseMatrix by the vector {@code x}, storing the results in {@code y}. The product runs over
+     * the compressed form of this matrix (see {@link #compress()}), so only stored values are visited and repeated
+     * products with an unchanged matrix do not compress it again.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code x} or {@code y} is null, if {@code x} is not as long as
+     * this matrix has columns, if {@code y} is not as long as this matrix has rows, or if {@code x} and {@code y} are
+     * the same array.
+     *
+     * @param x vector to multiply
+     * @param y vector to store the results in
+     * @return {@code y}
+     */
+    public double[] multiply(double[] x, double[] y) {
+        return compress().multiply(x, y);
+    }
+
+    /**
+     * Multiplies this SparseMatrix by the vector {@code x} across the given {@link ForkJoinPool}, storing the results
+     * in {@code y}. Rows are divided between tasks by their number of stored values, so rows of very different
+     * lengths do not unbalance the work.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code pool} is null or if the vectors would be rejected by
+     * {@link #multiply(double[], double[])}.
+     *
+     * @param x    vector to multiply
+     * @param y    vector to store the results in
+     * @param pool pool to run the multiplication in
+     * @return {@code y}
+     * @see CompressedSparseMatrix#multiplyParallel(double[], double[], ForkJoinPool)
+     */
+    public double[] multiplyParallel(double[] x, double[] y, ForkJoinPool pool) {
+        return compress().multiplyParallel(x, y, pool);
+    }
+
+    /**
+     * Performs one Jacobi sweep for the system {@code A * x = b}, where {@code A} is this SparseMatrix, storing the
+     * next approximation in {@code next}. Returns {@code next}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if this matrix is not square or if the vectors would be rejected by
+     * {@link CompressedSparseMatrix#jacobiSweep(double[], double[], double[])}.
+     *
+     * @param b    right-hand side
+     * @param x    current approximation
+     * @param next vector to store the next approximation in
+     * @return {@code next}
+     * @see CompressedSparseMatrix#jacobiSweep(double[], double[], double[])
+     */
+    public double[] jacobiSweep(double[] b, double[] x, double[] next) {
+        return compress().jacobiSweep(b, x, next);
+    }
+
+    /**
+     * Performs one forward Gauss-Seidel sweep for the system {@code A * x = b}, where {@code A} is this SparseMatrix,
+     * updating {@code x} in place. Returns {@code x}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if this matrix is not square or if the vectors would be rejected by
+     * {@link CompressedSparseMatrix#gaussSeidelSweep(double[], double[])}.
+     *
+     * @param b right-hand side
+     * @param x current approximation, replaced by the next one
+     * @return {@code x}
+     * @see CompressedSparseMatrix#gaussSeidelSweep(double[], double[])
+     */
+    public double[] gaussSeidelSweep(double[] b, double[] x) {
+        return compress().gaussSeidelSweep(b, x);
+    }
+
+    /**
+     * Copies this matrix into a new row-major {@link DenseMatrix} through its compressed form.
+     *
+     * @return new DenseMatrix with the same values
+     */
+    @Override
+    public DenseMatrix toDense() {
+        return compress().toDense();
+    }
+
+    /**
+     * Copies the values of {@code matrix} whose magnitude is greater than {@code threshold} into a new SparseMatrix
+     * with a {@link DiagonalMode#GENERAL} diagonal (see {@link CompressedSparseMatrix#fromDense(DenseMatrix, double)}).
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code matrix} is null or if {@code threshold} is negative.
+     *
+     * @param matrix    DenseMatrix to copy
+     * @param threshold largest magnitude that is dropped
+     * @return new SparseMatrix with the kept values
+     */
+    public static SparseMatrix fromDense(DenseMatrix matrix, double threshold) {
+        return CompressedSparseMatrix.fromDense(matrix, threshold).toSparseMatrix();
+    }
+
+    /**
+     * Returns the non-zero values of this matrix as a compressed sparse row {@link CompressedSparseMatrix}. The result
+     * is kept until this matrix is next changed, so repeated calls on an unchanged matrix do not copy it again.
+     *
+     * @return CompressedSparseMatrix with the same values
+     */
+    public CompressedSparseMatrix compress() {
+        if (compressed == null) {
+            compressed = compress(CompressedSparseMatrix.Orientation.ROW);
+        }
+        return compressed;
+    }
+
+    /**
+     * Copies the non-zero values of this matrix into a new {@link CompressedSparseMatrix} with the given orientation
+     * and the diagonal mode of this matrix. Values set to zero are left out, so the result holds only true non-zeros.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code orientation} is null.
+     *
+     * @param orientation orientation of the result
+     * @return new CompressedSparseMatrix with the same values
+     */
+    public CompressedSparseMatrix compress(CompressedSparseMatrix.Orientation orientation) {
+        if (orientation == null) {
+            throw new IllegalArgumentException("orientation must not be null");
+        }
+        int count = 0;
+        for (Map<Integer, Double> row : innerTable.innerMap.values()) {
+            count += row.size();
+        }
+        int[] entryRows = new int[count];
+        int[] entryColumns = new int[count];
+        double[] entryValues = new double[count];
+        int entries = 0;
+        for (Map.Entry<Integer, Map<Integer, Double>> rowEntry : innerTable.innerMap.entrySet()) {
+            int row = rowEntry.getKey();
+            for (Map.Entry<Integer, Double> columnEntry : rowEntry.getValue().entrySet()) {
+                double value = columnEntry.getValue();
+                if (value != 0D) {
+                    entryRows[entries] = row;
+                    entryColumns[entries] = columnEntry.getKey();
+                    entryValues[entries] = value;
+                    entries++;
                 }
             }
         }
-        return retMatrix;
+        return CompressedSparseMatrix.fromCoordinates(numOfRows(), numOfColumns(), orientation, entryRows,
+                entryColumns, entryValues, entries, diagonalMode, diagonal == null ? null : diagonal.clone());
+    }
+
+    /**
+     * Writes this SparseMatrix to {@code path} in the binary sparse matrix format, replacing any existing file.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code path} is null.
+     *
+     * @param path file to write to
+     * @throws IOException if the file could not be written
+     * @see CompressedSparseMatrix#write(Path)
+     */
+    public void write(Path path) throws IOException {
+        compress().write(path);
+    }
+
+    /**
+     * Reads a sparse matrix written by {@link #write(Path)} into a new SparseMatrix.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code path} is null.
+     *
+     * @param path file to read
+     * @return new SparseMatrix holding the file's values
+     * @throws IOException if the file could not be read, is not a sparse matrix file or fails its checksum
+     */
+    public static SparseMatrix read(Path path) throws IOException {
+        return CompressedSparseMatrix.read(path).toSparseMatrix();
     }
 
     @Override
     public String toString() {
+        if (diagonal != null) {
+            return innerTable.toString() + " diagonal " + Arrays.toString(diagonal);
+        }
         return innerTable.toString();
     }
 
@@ -177,12 +566,15 @@ public class SparseMatrix {
 
         SparseMatrix that = (SparseMatrix) o;
 
-        return innerTable.equals(that.innerTable);
+        if (diagonalMode == that.diagonalMode) {
+            return innerTable.equals(that.innerTable) && Arrays.equals(diagonal, that.diagonal);
+        }
+        return compress().equals(that.compress());
     }
 
     @Override
     public int hashCode() {
-        return innerTable.hashCode();
+        return compress().hashCode();
     }
 
     /**
@@ -245,16 +637,15 @@ public class SparseMatrix {
          * @param value  value to place
          */
         public void put(R row, C column, V value) {
-            if (innerMap.containsKey(row)) {
-                Map<C, V> fromRow = innerMap.get(row);
-                if (maximumColumns > 0 && fromRow.keySet().size() > maximumColumns) {
+            Map<C, V> fromRow = innerMap.get(row);
+            if (fromRow != null) {
+                if (maximumColumns > 0 && fromRow.size() > maximumColumns) {
                     return;
                 }
                 fromRow.put(column, value);
-                innerMap.put(row, fromRow);
                 return;
             }
-            if (maximumRows > 0 && innerMap.keySet().size() > maximumRows) {
+            if (maximumRows > 0 && innerMap.size() > maximumRows) {
                 return;
             }
             Map<C, V> newMap = new HashMap<>();
@@ -262,6 +653,23 @@ public class SparseMatrix {
             innerMap.put(row, newMap);
         }
 
+        /**
+         * Removes the value at the given mapping, if there is one.
+         *
+         * @param row    row to remove from
+         * @param column column to remove from
+         */
+        public void remove(R row, C column) {
+            Map<C, V> fromRow = innerMap.get(row);
+            if (fromRow == null) {
+                return;
+            }
+            fromRow.remove(column);
+            if (fromRow.isEmpty()) {
+                innerMap.remove(row);
+            }
+        }
+
         /**
          * Gets and returns the maximum amount of rows this Table can hold
          * @return maximum rows
@@ -0,0 +1,385 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Collects the entries of a sparse matrix as a coordinate list and builds a {@link CompressedSparseMatrix} from them in
+ * one pass.
+ * <p>
+ * Entries are appended to primitive arrays, either one at a time with {@link #add(int, int, double)} as they are
+ * streamed in or in bulk with {@link #addAll(int[], int[], double[])}, and may arrive in any order. Entries that share
+ * a position are combined with the function given to {@link #combineWith(DoubleBinaryOperator)}, in the order they
+ * were added; by default they are summed. Values that combine to zero are left out. Entries on the diagonal are kept
+ * as given by {@link #diagonalMode(SparseMatrix.DiagonalMode)}; by default they are left out, since the diagonal is
+ * implicitly one.
+ * <p>
+ * Building does not consume the entries, so more may be added and the builder built again.
+ *
+ * @author Richard Harrah
+ */
+public final class SparseMatrixBuilder {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final DoubleBinaryOperator SUM = (a, b) -> a + b;
+
+    private final int rows;
+    private final int columns;
+    private DoubleBinaryOperator combiner = SUM;
+    private SparseMatrix.DiagonalMode diagonalMode = SparseMatrix.DiagonalMode.UNIT;
+    private int[] entryRows;
+    private int[] entryColumns;
+    private double[] entryValues;
+    private int size;
+
+    /**
+     * Constructs a new SparseMatrixBuilder for a matrix with a given amount of rows and columns.
+     * <p>
+     * This constructor will throw an {@link IllegalArgumentException} if {@code rows} or {@code columns} is less
+     * than {@code 1}.
+     *
+     * @param rows    number of rows
+     * @param columns number of columns
+     */
+    public SparseMatrixBuilder(int rows, int columns) {
+        this(rows, columns, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new SparseMatrixBuilder for a matrix with a given amount of rows and columns, with room for
+     * {@code expectedEntries} entries before its arrays have to grow.
+     * <p>
+     * This constructor will throw an {@link IllegalArgumentException} if {@code rows} or {@code columns} is less
+     * than {@code 1} or if {@code expectedEntries} is negative.
+     *
+     * @param rows            number of rows
+     * @param columns         number of columns
+     * @param expectedEntries number of entries to make room for
+     */
+    public SparseMatrixBuilder(int rows, int columns, int expectedEntries) {
+        if (rows < 1) {
+            throw new IllegalArgumentException("must have at least one row");
+        }
+        if (columns < 1) {
+            throw new IllegalArgumentException("must have at least one column");
+        }
+        if (expectedEntries < 0) {
+            throw new IllegalArgumentException("expected entries must not be negative");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.entryRows = new int[expectedEntries];
+        this.entryColumns = new int[expectedEntries];
+        this.entryValues = new double[expectedEntries];
+    }
+
+    /**
+     * Sets the function used to combine entries that share a position. It is called with the value combined so far
+     * and the next value, in the order the entries were added; for example {@code (a, b) -> b} keeps the last value.
+     * Entries are summed unless this is called.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code combiner} is null.
+     *
+     * @param combiner function combining two values at one position
+     * @return this builder
+     */
+    public SparseMatrixBuilder combineWith(DoubleBinaryOperator combiner) {
+        if (combiner == null) {
+            throw new IllegalArgumentException("combiner must not be null");
+        }
+        this.combiner = combiner;
+        return this;
+    }
+
+    /**
+     * Sets how the diagonal of the built matrix is stored. Entries on the diagonal are left out of a
+     * {@link SparseMatrix.DiagonalMode#UNIT} matrix, kept with the other values of a
+     * {@link SparseMatrix.DiagonalMode#GENERAL} matrix and gathered into the dense diagonal of a
+     * {@link SparseMatrix.DiagonalMode#SEPARATE} matrix. The diagonal is unit unless this is called.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code diagonalMode} is null.
+     *
+     * @param diagonalMode diagonal mode of the built matrix
+     * @return this builder
+     */
+    public SparseMatrixBuilder diagonalMode(SparseMatrix.DiagonalMode diagonalMode) {
+        if (diagonalMode == null) {
+            throw new IllegalArgumentException("diagonal mode must not be null");
+        }
+        this.diagonalMode = diagonalMode;
+        return this;
+    }
+
+    /**
+     * Returns the number of entries added so far, counting every duplicate.
+     *
+     * @return number of entries added
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds an entry.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code row} is less than 0 or equal to or greater than the number
+     * of rows or if {@code column} is less than 0 or equal to or greater than the number of columns.
+     *
+     * @param row    row of the entry
+     * @param column column of the entry
+     * @param value  value of the entry
+     * @return this builder
+     */
+    public SparseMatrixBuilder add(int row, int column, double value) {
+        checkPosition(row, column);
+        ensureCapacity(size + 1);
+        entryRows[size] = row;
+        entryColumns[size] = column;
+        entryValues[size] = value;
+        size++;
+        return this;
+    }
+
+    /**
+     * Adds one entry for each position of the given arrays, so entry {@code e} is {@code values[e]} at
+     * {@code (rows[e], columns[e])}.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if any array is null, if the arrays are not the same length, or if
+     * any entry lies outside the matrix. No entries are added if an exception is thrown.
+     *
+     * @param rows    row of each entry
+     * @param columns column of each entry
+     * @param values  value of each entry
+     * @return this builder
+     */
+    public SparseMatrixBuilder addAll(int[] rows, int[] columns, double[] values) {
+        if (rows == null || columns == null || values == null) {
+            throw new IllegalArgumentException("arrays must not be null");
+        }
+        if (rows.length != columns.length || rows.length != values.length) {
+            throw new IllegalArgumentException("arrays must have the same length");
+        }
+        for (int e = 0; e < rows.length; e++) {
+            checkPosition(rows[e], columns[e]);
+        }
+        ensureCapacity(size + rows.length);
+        System.arraycopy(rows, 0, entryRows, size, rows.length);
+        System.arraycopy(columns, 0, entryColumns, size, columns.length);
+        System.arraycopy(values, 0, entryValues, size, values.length);
+        size += rows.length;
+        return this;
+    }
+
+    /**
+     * Builds a compressed sparse row matrix from the entries added so far.
+     *
+     * @return new CompressedSparseMatrix
+     */
+    public CompressedSparseMatrix build() {
+        return build(CompressedSparseMatrix.Orientation.ROW);
+    }
+
+    /**
+     * Builds a CompressedSparseMatrix with the given orientation from the entries added so far.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code orientation} is null.
+     *
+     * @param orientation orientation of the result
+     * @return new CompressedSparseMatrix
+     */
+    public CompressedSparseMatrix build(CompressedSparseMatrix.Orientation orientation) {
+        return build(orientation, null);
+    }
+
+    /**
+     * Builds a CompressedSparseMatrix with the given orientation from the entries added so far, sorting and
+     * combining the rows (or columns) across the given {@link ForkJoinPool}. Rows are divided between tasks by their
+     * number of entries. Small matrices are built on the calling thread.
+     * <p>
+     * Throws an {@link IllegalArgumentException} if {@code orientation} or {@code pool} is null.
+     *
+     * @param orientation orientation of the result
+     * @param pool        pool to sort the entries in
+     * @return new CompressedSparseMatrix
+     */
+    public CompressedSparseMatrix buildParallel(CompressedSparseMatrix.Orientation orientation, ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        return build(orientation, pool);
+    }
+
+    /**
+     * Builds a new mutable {@link SparseMatrix} from the entries added so far.
+     *
+     * @return new SparseMatrix
+     */
+    public SparseMatrix buildSparseMatrix() {
+        return build().toSparseMatrix();
+    }
+
+    /**
+     * Builds the matrix in three steps. A counting sort groups the entries by row (or column) into packed keys holding
+     * the column (or row) in the high half and the entry's position in the low half. Each group is then sorted and
+     * its duplicates combined in place, which is the step run across {@code pool}; sorting by the packed key keeps
+     * duplicates in the order they were added. Finally the combined groups are copied into arrays of the exact size.
+     */
+    private CompressedSparseMatrix build(CompressedSparseMatrix.Orientation orientation, ForkJoinPool pool) {
+        if (orientation == null) {
+            throw new IllegalArgumentException("orientation must not be null");
+        }
+        boolean byRow = orientation == CompressedSparseMatrix.Orientation.ROW;
+        int[] outer = byRow ? entryRows : entryColumns;
+        int[] inner = byRow ? entryColumns : entryRows;
+        int outerSize = byRow ? rows : columns;
+
+        int[] starts = new int[outerSize + 1];
+        for (int e = 0; e < size; e++) {
+            starts[outer[e] + 1]++;
+        }
+        for (int k = 0; k < outerSize; k++) {
+            starts[k + 1] += starts[k];
+        }
+        int[] next = Arrays.copyOf(starts, outerSize);
+        long[] keys = new long[size];
+        for (int e = 0; e < size; e++) {
+            keys[next[outer[e]]++] = ((long) inner[e] << 32) | e;
+        }
+
+        double[] combined = new double[size];
+        int[] counts = new int[outerSize];
+        double[] diagonal = diagonalMode == SparseMatrix.DiagonalMode.SEPARATE ? new double[Math.min(rows, columns)] :
+                null;
+        CombineTask task = new CombineTask(keys, combined, counts, diagonal, starts, 0, outerSize);
+        if (pool == null || size + outerSize <= SparseKernels.SPMV_SEQUENTIAL_CUTOFF) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+
+        int[] pointers = new int[outerSize + 1];
+        for (int k = 0; k < outerSize; k++) {
+            pointers[k + 1] = pointers[k] + counts[k];
+        }
+        int[] indices = new int[pointers[outerSize]];
+        double[] values = new double[indices.length];
+        for (int k = 0; k < outerSize; k++) {
+            int from = starts[k];
+            int to = pointers[k];
+            for (int c = 0; c < counts[k]; c++) {
+                indices[to + c] = (int) (keys[from + c] >>> 32);
+            }
+            System.arraycopy(combined, from, values, to, counts[k]);
+        }
+        return new CompressedSparseMatrix(rows, columns, orientation, pointers, indices, values, diagonalMode,
+                diagonal);
+    }
+
+    private void checkPosition(int row, int column) {
+        if (row < 0 || row >= rows) {
+            throw new IllegalArgumentException("row must be greater than -1 and less than number of rows");
+        }
+        if (column < 0 || column >= columns) {
+            throw new IllegalArgumentException("column must be greater than -1 and less than number of columns");
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalStateException("too many entries");
+        }
+        if (capacity <= entryRows.length) {
+            return;
+        }
+        int newCapacity = (int) Math.min(Integer.MAX_VALUE - 8,
+                Math.max(capacity, Math.max(DEFAULT_CAPACITY, entryRows.length + ((long) entryRows.length >> 1))));
+        entryRows = Arrays.copyOf(entryRows, newCapacity);
+        entryColumns = Arrays.copyOf(entryColumns, newCapacity);
+        entryValues = Arrays.copyOf(entryValues, newCapacity);
+    }
+
+    /**
+     * Fork-join task sorting and combining the groups {@code from} up to {@code to}. Each group {@code k} starts at
+     * {@code starts[k]}; its combined entries are left at the front of the group, with their indices in the high half
+     * of {@code keys} and their values in {@code combined}, and their number in {@code counts[k]}. A combined diagonal
+     * entry is stored in {@code diagonal} instead when that is not null.
+     */
+    private final class CombineTask extends RecursiveAction {
+        private final long[] keys;
+        private final double[] combined;
+        private final int[] counts;
+        private final double[] diagonal;
+        private final int[] starts;
+        private final int from;
+        private final int to;
+
+        CombineTask(long[] keys, double[] combined, int[] counts, double[] diagonal, int[] starts, int from, int to) {
+            this.keys = keys;
+            this.combined = combined;
+            this.counts = counts;
+            this.diagonal = diagonal;
+            this.starts = starts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (starts[to] - starts[from] + (to - from) <= SparseKernels.SPMV_SEQUENTIAL_CUTOFF || to - from == 1) {
+                for (int k = from; k < to; k++) {
+                    counts[k] = combine(k);
+                }
+                return;
+            }
+            int split = SparseKernels.splitPoint(starts, from, to);
+            invokeAll(new CombineTask(keys, combined, counts, diagonal, starts, from, split),
+                    new CombineTask(keys, combined, counts, diagonal, starts, split, to));
+        }
+
+        private int combine(int k) {
+            int start = starts[k];
+            int end = starts[k + 1];
+            Arrays.sort(keys, start, end);
+            int count = 0;
+            int previous = -1;
+            for (int p = start; p < end; p++) {
+                int index = (int) (keys[p] >>> 32);
+                double value = entryValues[(int) keys[p]];
+                if (index == previous) {
+                    combined[start + count - 1] = combiner.applyAsDouble(combined[start + count - 1], value);
+                } else {
+                    keys[start + count] = (long) index << 32;
+                    combined[start + count] = value;
+                    count++;
+                    previous = index;
+                }
+            }
+            int kept = 0;
+            for (int c = 0; c < count; c++) {
+                if (keys[start + c] >>> 32 == k && diagonalMode != SparseMatrix.DiagonalMode.GENERAL) {
+                    if (diagonal != null) {
+                        diagonal[k] = combined[start + c];
+                    }
+                } else if (combined[start + c] != 0D) {
+                    keys[start + kept] = keys[start + c];
+                    combined[start + kept] = combined[start + c];
+                    kept++;
+                }
+            }
+            return kept;
+        }
+    }
+
+}
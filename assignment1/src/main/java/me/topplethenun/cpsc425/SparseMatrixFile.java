@@ -0,0 +1,385 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The on-disk format of a {@link CompressedSparseMatrix}: a fixed-size little-endian header followed by the arrays
+ * of the matrix, each starting on an 8-byte boundary so the file can be memory-mapped and read in place.
+ * <p>
+ * The header is laid out as follows.
+ * <pre>
+ * offset  size  field
+ *      0     4  magic, the ASCII bytes "SMAT"
+ *      4     4  format version
+ *      8     4  number of rows
+ *     12     4  number of columns
+ *     16     4  orientation, the ordinal of {@link CompressedSparseMatrix.Orientation}
+ *     20     4  number of stored values
+ *     24     4  flags; bit 0 is set when the checksum field is valid and bits 1 and 2 hold the ordinal of
+ *               the {@link SparseMatrix.DiagonalMode}
+ *     28     4  CRC-32 of the bytes after the header
+ * </pre>
+ * The header is followed by the pointers as little-endian ints, then the indices as little-endian ints, then the
+ * values as little-endian doubles and, for a {@link SparseMatrix.DiagonalMode#SEPARATE} diagonal, the diagonal as
+ * little-endian doubles.
+ *
+ * @author Richard Harrah
+ */
+final class SparseMatrixFile {
+
+    static final int MAGIC = 0x54414D53;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int FLAG_CHECKSUM = 1;
+    static final int DIAGONAL_SHIFT = 1;
+    static final int DIAGONAL_MASK = 3;
+
+    private static final int TRANSFER_SIZE = 1 << 16;
+
+    final int rows;
+    final int columns;
+    final CompressedSparseMatrix.Orientation orientation;
+    final int nonZeros;
+    final SparseMatrix.DiagonalMode diagonalMode;
+    final int flags;
+    final int checksum;
+
+    SparseMatrixFile(int rows, int columns, CompressedSparseMatrix.Orientation orientation, int nonZeros,
+                     SparseMatrix.DiagonalMode diagonalMode, int flags, int checksum) {
+        this.rows = rows;
+        this.columns = columns;
+        this.orientation = orientation;
+        this.nonZeros = nonZeros;
+        this.diagonalMode = diagonalMode;
+        this.flags = flags;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Returns the number of pointers stored in the file.
+     *
+     * @return number of pointers
+     */
+    int pointerCount() {
+        return (orientation == CompressedSparseMatrix.Orientation.ROW ? rows : columns) + 1;
+    }
+
+    /**
+     * Returns the byte position of the pointers.
+     *
+     * @return position of the pointers
+     */
+    long pointersPosition() {
+        return HEADER_SIZE;
+    }
+
+    /**
+     * Returns the byte position of the indices.
+     *
+     * @return position of the indices
+     */
+    long indicesPosition() {
+        return align(pointersPosition() + (long) pointerCount() * Integer.BYTES);
+    }
+
+    /**
+     * Returns the byte position of the values.
+     *
+     * @return position of the values
+     */
+    long valuesPosition() {
+        return align(indicesPosition() + (long) nonZeros * Integer.BYTES);
+    }
+
+    /**
+     * Returns the number of values in the separate diagonal stored in the file.
+     *
+     * @return number of diagonal values
+     */
+    int diagonalCount() {
+        return diagonalMode == SparseMatrix.DiagonalMode.SEPARATE ? Math.min(rows, columns) : 0;
+    }
+
+    /**
+     * Returns the byte position of the separate diagonal.
+     *
+     * @return position of the diagonal
+     */
+    long diagonalPosition() {
+        return valuesPosition() + (long) nonZeros * Double.BYTES;
+    }
+
+    /**
+     * Returns the size in bytes of a file holding this header and its arrays.
+     *
+     * @return size of the file
+     */
+    long fileSize() {
+        return diagonalPosition() + (long) diagonalCount() * Double.BYTES;
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    /**
+     * Reads and validates the header at the start of the channel.
+     *
+     * @param channel channel to read from
+     * @return the header
+     * @throws IOException if the header could not be read or is not a valid sparse matrix header
+     */
+    static SparseMatrixFile read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long position = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("file is too short to be a sparse matrix");
+            }
+            position += read;
+        }
+        buffer.flip();
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("file is not a sparse matrix");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported sparse matrix format version " + version);
+        }
+        int rows = buffer.getInt();
+        int columns = buffer.getInt();
+        int orientation = buffer.getInt();
+        int nonZeros = buffer.getInt();
+        int flags = buffer.getInt();
+        int checksum = buffer.getInt();
+        int diagonalMode = (flags >>> DIAGONAL_SHIFT) & DIAGONAL_MASK;
+        if (rows < 1 || columns < 1 || nonZeros < 0 || orientation < 0 ||
+                orientation >= CompressedSparseMatrix.Orientation.values().length ||
+                diagonalMode >= SparseMatrix.DiagonalMode.values().length) {
+            throw new IOException("corrupt sparse matrix header");
+        }
+        SparseMatrixFile header = new SparseMatrixFile(rows, columns,
+                CompressedSparseMatrix.Orientation.values()[orientation], nonZeros,
+                SparseMatrix.DiagonalMode.values()[diagonalMode], flags, checksum);
+        if (channel.size() < header.fileSize()) {
+            throw new IOException("file is too short for a " + rows + "x" + columns + " sparse matrix");
+        }
+        return header;
+    }
+
+    /**
+     * Writes {@code matrix} to {@code path}, replacing any existing file. The arrays are copied into a reusable buffer
+     * in bulk and written through a channel; the header is written last, once the checksum is known.
+     *
+     * @param matrix matrix to write
+     * @param path   file to write to
+     * @throws IOException if the file could not be written
+     */
+    static void save(CompressedSparseMatrix matrix, Path path) throws IOException {
+        SparseMatrixFile layout = new SparseMatrixFile(matrix.rows, matrix.columns, matrix.orientation,
+                matrix.values.length, matrix.diagonalMode, 0, 0);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(TRANSFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        IntBuffer ints = bytes.asIntBuffer();
+        DoubleBuffer doubles = bytes.asDoubleBuffer();
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(layout.pointersPosition());
+            writeInts(channel, bytes, ints, matrix.pointers, crc);
+            pad(channel, layout.indicesPosition(), crc);
+            writeInts(channel, bytes, ints, matrix.indices, crc);
+            pad(channel, layout.valuesPosition(), crc);
+            writeDoubles(channel, bytes, doubles, matrix.values, crc);
+            if (matrix.diagonal != null) {
+                writeDoubles(channel, bytes, doubles, matrix.diagonal, crc);
+            }
+            int flags = FLAG_CHECKSUM | matrix.diagonalMode.ordinal() << DIAGONAL_SHIFT;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(matrix.rows).putInt(matrix.columns)
+                    .putInt(matrix.orientation.ordinal()).putInt(matrix.values.length).putInt(flags)
+                    .putInt((int) crc.getValue());
+            header.flip();
+            long position = 0;
+            while (header.hasRemaining()) {
+                position += channel.write(header, position);
+            }
+        }
+    }
+
+    /**
+     * Reads the sparse matrix stored at {@code path} into a new heap matrix, verifying the checksum when the file
+     * carries one.
+     *
+     * @param path file to read
+     * @return new CompressedSparseMatrix holding the file's values
+     * @throws IOException if the file could not be read, is not a sparse matrix file or fails its checksum
+     */
+    static CompressedSparseMatrix load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            SparseMatrixFile header = read(channel);
+            ByteBuffer bytes = ByteBuffer.allocateDirect(TRANSFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            IntBuffer ints = bytes.asIntBuffer();
+            DoubleBuffer doubles = bytes.asDoubleBuffer();
+            CRC32 crc = new CRC32();
+            int[] pointers = new int[header.pointerCount()];
+            int[] indices = new int[header.nonZeros];
+            double[] values = new double[header.nonZeros];
+            long position = readInts(channel, bytes, ints, pointers, header.pointersPosition(), crc);
+            skip(channel, bytes, position, header.indicesPosition(), crc);
+            position = readInts(channel, bytes, ints, indices, header.indicesPosition(), crc);
+            skip(channel, bytes, position, header.valuesPosition(), crc);
+            position = readDoubles(channel, bytes, doubles, values, header.valuesPosition(), crc);
+            double[] diagonal = null;
+            if (header.diagonalMode == SparseMatrix.DiagonalMode.SEPARATE) {
+                diagonal = new double[header.diagonalCount()];
+                readDoubles(channel, bytes, doubles, diagonal, position, crc);
+            }
+            if ((header.flags & FLAG_CHECKSUM) != 0 && (int) crc.getValue() != header.checksum) {
+                throw new IOException("sparse matrix checksum mismatch");
+            }
+            CompressedSparseMatrix matrix = new CompressedSparseMatrix(header.rows, header.columns,
+                    header.orientation, pointers, indices, values, header.diagonalMode, diagonal);
+            check(matrix);
+            return matrix;
+        }
+    }
+
+    /**
+     * Checks that the arrays of a matrix read from a file are consistent, so a damaged file without a checksum is
+     * reported instead of failing later with an index out of bounds.
+     *
+     * @param matrix matrix to check
+     * @throws IOException if the arrays are not consistent
+     */
+    static void check(CompressedSparseMatrix matrix) throws IOException {
+        int innerSize = matrix.orientation == CompressedSparseMatrix.Orientation.ROW ? matrix.columns : matrix.rows;
+        int[] pointers = matrix.pointers;
+        if (pointers[0] != 0 || pointers[pointers.length - 1] != matrix.values.length) {
+            throw new IOException("corrupt sparse matrix pointers");
+        }
+        for (int k = 0; k + 1 < pointers.length; k++) {
+            if (pointers[k] > pointers[k + 1]) {
+                throw new IOException("corrupt sparse matrix pointers");
+            }
+        }
+        for (int index : matrix.indices) {
+            if (index < 0 || index >= innerSize) {
+                throw new IOException("corrupt sparse matrix indices");
+            }
+        }
+        if (matrix.diagonalMode != SparseMatrix.DiagonalMode.GENERAL) {
+            for (int k = 0; k + 1 < pointers.length; k++) {
+                if (matrix.find(k, k) >= 0) {
+                    throw new IOException("corrupt sparse matrix diagonal");
+                }
+            }
+        }
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer bytes, IntBuffer buffer, int[] ints, CRC32 crc)
+            throws IOException {
+        for (int done = 0; done < ints.length; done += buffer.capacity()) {
+            int length = Math.min(buffer.capacity(), ints.length - done);
+            buffer.clear();
+            buffer.put(ints, done, length);
+            flush(channel, bytes, length * Integer.BYTES, crc);
+        }
+    }
+
+    private static long readInts(FileChannel channel, ByteBuffer bytes, IntBuffer buffer, int[] ints, long position,
+                                 CRC32 crc) throws IOException {
+        for (int done = 0; done < ints.length; done += buffer.capacity()) {
+            int length = Math.min(buffer.capacity(), ints.length - done);
+            position += fill(channel, bytes, length * Integer.BYTES, position);
+            crc.update(bytes);
+            buffer.clear();
+            buffer.get(ints, done, length);
+        }
+        return position;
+    }
+
+    private static void writeDoubles(FileChannel channel, ByteBuffer bytes, DoubleBuffer buffer, double[] doubles,
+                                     CRC32 crc) throws IOException {
+        for (int done = 0; done < doubles.length; done += buffer.capacity()) {
+            int length = Math.min(buffer.capacity(), doubles.length - done);
+            buffer.clear();
+            buffer.put(doubles, done, length);
+            flush(channel, bytes, length * Double.BYTES, crc);
+        }
+    }
+
+    private static long readDoubles(FileChannel channel, ByteBuffer bytes, DoubleBuffer buffer, double[] doubles,
+                                    long position, CRC32 crc) throws IOException {
+        for (int done = 0; done < doubles.length; done += buffer.capacity()) {
+            int length = Math.min(buffer.capacity(), doubles.length - done);
+            position += fill(channel, bytes, length * Double.BYTES, position);
+            crc.update(bytes);
+            buffer.clear();
+            buffer.get(doubles, done, length);
+        }
+        return position;
+    }
+
+    private static void pad(FileChannel channel, long position, CRC32 crc) throws IOException {
+        int padding = (int) (position - channel.position());
+        if (padding > 0) {
+            ByteBuffer zeros = ByteBuffer.allocate(padding);
+            crc.update(zeros);
+            zeros.flip();
+            while (zeros.hasRemaining()) {
+                channel.write(zeros);
+            }
+        }
+    }
+
+    private static void skip(FileChannel channel, ByteBuffer bytes, long position, long target, CRC32 crc)
+            throws IOException {
+        if (target > position) {
+            fill(channel, bytes, (int) (target - position), position);
+            crc.update(bytes);
+        }
+    }
+
+    private static int fill(FileChannel channel, ByteBuffer bytes, int count, long position) throws IOException {
+        bytes.clear();
+        bytes.limit(count);
+        while (bytes.hasRemaining()) {
+            int read = channel.read(bytes, position + bytes.position());
+            if (read < 0) {
+                throw new IOException("unexpected end of sparse matrix file");
+            }
+        }
+        bytes.flip();
+        return count;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer bytes, int count, CRC32 crc) throws IOException {
+        bytes.clear();
+        bytes.limit(count);
+        crc.update(bytes);
+        bytes.position(0);
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+/**
+ * Strassen's recursive matrix multiplication over square, row-major arrays. Each level splits the operands into
+ * quadrants and forms the product from seven half-size products instead of eight; once the quadrants are no larger
+ * than the crossover size the blocked classical kernel in {@link DenseKernels} takes over.
+ *
+ * @author Richard Harrah
+ */
+final class Strassen {
+
+    /**
+     * Crossover used by {@link DenseMatrix#multiplyStrassen(DenseMatrix)}.
+     */
+    static final int DEFAULT_CROSSOVER = 128;
+
+    /**
+     * Largest number of elements in a padded operand, kept a little under {@link Integer#MAX_VALUE} because some
+     * virtual machines cannot allocate arrays quite that long.
+     */
+    static final long MAX_AREA = Integer.MAX_VALUE - 8;
+
+    private Strassen() {
+        // do nothing
+    }
+
+    /**
+     * Returns the padded edge length used for a product whose largest dimension is {@code size}: the smallest
+     * {@code leaf * 2^k} that is at least {@code size} where {@code leaf <= crossover}. Padding this way keeps the
+     * leaves close to the crossover instead of doubling up to the next power of two.
+     *
+     * @param size      largest dimension of the product
+     * @param crossover largest size multiplied classically
+     * @return padded edge length, which can be larger than an {@code int} when {@code size} is close to
+     * {@link Integer#MAX_VALUE}
+     */
+    static long paddedSize(int size, int crossover) {
+        int levels = 0;
+        int leaf = size;
+        while (leaf > crossover) {
+            leaf = (leaf + 1) / 2;
+            levels++;
+        }
+        return (long) leaf << levels;
+    }
+
+    /**
+     * Returns true if a product of a {@code rows x inner} matrix and an {@code inner x columns} matrix is worth padding
+     * to one square: no dimension is less than half of the largest, so the padding at most quadruples the work, and
+     * the padded operands fit in an array.
+     *
+     * @param rows      rows of the left operand
+     * @param inner     columns of the left operand and rows of the right operand
+     * @param columns   columns of the right operand
+     * @param crossover largest size multiplied classically
+     * @return true if the product should be computed with Strassen's algorithm
+     */
+    static boolean isWorthPadding(int rows, int inner, int columns, int crossover) {
+        int largest = Math.max(rows, Math.max(inner, columns));
+        int smallest = Math.min(rows, Math.min(inner, columns));
+        if ((long) smallest * 2 < largest) {
+            return false;
+        }
+        long size = paddedSize(largest, crossover);
+        return size * size <= MAX_AREA;
+    }
+
+    /**
+     * Multiplies two {@code n x n} row-major arrays.
+     *
+     * @param a         left operand
+     * @param b         right operand
+     * @param n         edge length of both operands
+     * @param crossover largest size multiplied classically
+     * @return new {@code n x n} row-major array holding the product
+     */
+    static double[] multiply(double[] a, double[] b, int n, int crossover) {
+        double[] c = new double[n * n];
+        if (n <= crossover || n % 2 != 0) {
+            DenseKernels.gemm(n, n, n, a, 0, n, 1, b, 0, n, 1, c, 0, n, 1, DenseKernels.getTileSize());
+            return c;
+        }
+        int h = n / 2;
+        double[] a11 = quadrant(a, n, 0, 0);
+        double[] a12 = quadrant(a, n, 0, h);
+        double[] a21 = quadrant(a, n, h, 0);
+        double[] a22 = quadrant(a, n, h, h);
+        double[] b11 = quadrant(b, n, 0, 0);
+        double[] b12 = quadrant(b, n, 0, h);
+        double[] b21 = quadrant(b, n, h, 0);
+        double[] b22 = quadrant(b, n, h, h);
+
+        double[] m1 = multiply(sum(a11, a22), sum(b11, b22), h, crossover);
+        double[] m2 = multiply(sum(a21, a22), b11, h, crossover);
+        double[] m3 = multiply(a11, difference(b12, b22), h, crossover);
+        double[] m4 = multiply(a22, difference(b21, b11), h, crossover);
+        double[] m5 = multiply(sum(a11, a12), b22, h, crossover);
+        double[] m6 = multiply(difference(a21, a11), sum(b11, b12), h, crossover);
+        double[] m7 = multiply(difference(a12, a22), sum(b21, b22), h, crossover);
+
+        for (int i = 0; i < h; i++) {
+            int top = i * n;
+            int bottom = (i + h) * n;
+            int row = i * h;
+            for (int j = 0; j < h; j++) {
+                int q = row + j;
+                c[top + j] = m1[q] + m4[q] - m5[q] + m7[q];
+                c[top + h + j] = m3[q] + m5[q];
+                c[bottom + j] = m2[q] + m4[q];
+                c[bottom + h + j] = m1[q] - m2[q] + m3[q] + m6[q];
+            }
+        }
+        return c;
+    }
+
+    private static double[] quadrant(double[] source, int n, int rowStart, int columnStart) {
+        int h = n / 2;
+        double[] result = new double[h * h];
+        for (int i = 0; i < h; i++) {
+            System.arraycopy(source, (rowStart + i) * n + columnStart, result, i * h, h);
+        }
+        return result;
+    }
+
+    private static double[] sum(double[] a, double[] b) {
+        double[] result = new double[a.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i] + b[i];
+        }
+        return result;
+    }
+
+    private static double[] difference(double[] a, double[] b) {
+        double[] result = new double[a.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i] - b[i];
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+/**
+ * Loops over contiguous runs of doubles used by the {@link DenseMatrix} kernels.
+ * <p>
+ * On a JDK with the {@code jdk.incubator.vector} module resolved ({@code --add-modules jdk.incubator.vector}), the
+ * SIMD implementation {@code VectorizedOps} from the {@code java17} source set is used. Everywhere else, or when the
+ * system property {@value #VECTOR_PROPERTY} is set to {@code false}, the scalar loops in this class are used.
+ *
+ * @author Richard Harrah
+ */
+abstract class VectorOps {
+
+    static final String VECTOR_PROPERTY = "cpsc425.vector";
+
+    private static final String VECTORIZED_CLASS = "me.topplethenun.cpsc425.VectorizedOps";
+    private static final VectorOps INSTANCE = load();
+
+    VectorOps() {
+        // do nothing
+    }
+
+    /**
+     * Returns the implementation chosen for this JVM.
+     *
+     * @return VectorOps to use
+     */
+    static VectorOps get() {
+        return INSTANCE;
+    }
+
+    private static VectorOps load() {
+        if ("false".equalsIgnoreCase(System.getProperty(VECTOR_PROPERTY))) {
+            return new Scalar();
+        }
+        try {
+            VectorOps ops = Class.forName(VECTORIZED_CLASS).asSubclass(VectorOps.class).getDeclaredConstructor()
+                    .newInstance();
+            // touch the vector classes now so a missing module falls back here rather than failing later
+            double[] probe = {1, 2, 3};
+            if (ops.dot(probe, 0, probe, 0, probe.length) != 14D) {
+                return new Scalar();
+            }
+            return ops;
+        } catch (Exception | LinkageError e) {
+            return new Scalar();
+        }
+    }
+
+    /**
+     * Returns true if this implementation uses SIMD instructions.
+     *
+     * @return true if accelerated
+     */
+    abstract boolean isAccelerated();
+
+    /**
+     * Computes {@code c[cOff + i] = a[aOff + i] + b[bOff + i]} for {@code i} in {@code [0, length)}.
+     *
+     * @param a      left operand
+     * @param aOff   first index of the left operand
+     * @param b      right operand
+     * @param bOff   first index of the right operand
+     * @param c      result
+     * @param cOff   first index of the result
+     * @param length number of values
+     */
+    abstract void add(double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int length);
+
+    /**
+     * Computes {@code y[yOff + i] += alpha * x[xOff + i]} for {@code i} in {@code [0, length)}.
+     *
+     * @param alpha  factor applied to x
+     * @param x      values to add
+     * @param xOff   first index of x
+     * @param y      values to add to
+     * @param yOff   first index of y
+     * @param length number of values
+     */
+    abstract void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int length);
+
+    /**
+     * Returns the sum of {@code x[xOff + i] * y[yOff + i]} for {@code i} in {@code [0, length)}.
+     *
+     * @param x      left operand
+     * @param xOff   first index of x
+     * @param y      right operand
+     * @param yOff   first index of y
+     * @param length number of values
+     * @return dot product
+     */
+    abstract double dot(double[] x, int xOff, double[] y, int yOff, int length);
+
+    /**
+     * Returns false if {@code Math.abs(a[aOff + i] - b[bOff + i]) > tolerance} for any {@code i} in
+     * {@code [0, length)}.
+     *
+     * @param a         left operand
+     * @param aOff      first index of a
+     * @param b         right operand
+     * @param bOff      first index of b
+     * @param length    number of values
+     * @param tolerance largest allowed difference
+     * @return true if no pair differs by more than the tolerance
+     */
+    abstract boolean allClose(double[] a, int aOff, double[] b, int bOff, int length, double tolerance);
+
+    /**
+     * Plain loops, used when the Vector API is unavailable.
+     */
+    static final class Scalar extends VectorOps {
+
+        @Override
+        boolean isAccelerated() {
+            return false;
+        }
+
+        @Override
+        void add(double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int length) {
+            for (int i = 0; i < length; i++) {
+                c[cOff + i] = a[aOff + i] + b[bOff + i];
+            }
+        }
+
+        @Override
+        void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int length) {
+            for (int i = 0; i < length; i++) {
+                y[yOff + i] += alpha * x[xOff + i];
+            }
+        }
+
+        @Override
+        double dot(double[] x, int xOff, double[] y, int yOff, int length) {
+            double sum = 0D;
+            for (int i = 0; i < length; i++) {
+                sum += x[xOff + i] * y[yOff + i];
+            }
+            return sum;
+        }
+
+        @Override
+        boolean allClose(double[] a, int aOff, double[] b, int bOff, int length, double tolerance) {
+            for (int i = 0; i < length; i++) {
+                if (Math.abs(a[aOff + i] - b[bOff + i]) > tolerance) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link VectorOps} implemented with the incubating Vector API, using the widest vector shape the CPU supports. Loaded
+ * reflectively by {@link VectorOps#get()}, so the Java 8 classes never refer to it directly.
+ *
+ * @author Richard Harrah
+ */
+final class VectorizedOps extends VectorOps {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    VectorizedOps() {
+        // do nothing
+    }
+
+    @Override
+    boolean isAccelerated() {
+        return true;
+    }
+
+    @Override
+    void add(double[] a, int aOff, double[] b, int bOff, double[] c, int cOff, int length) {
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector left = DoubleVector.fromArray(SPECIES, a, aOff + i);
+            DoubleVector right = DoubleVector.fromArray(SPECIES, b, bOff + i);
+            left.add(right).intoArray(c, cOff + i);
+        }
+        for (; i < length; i++) {
+            c[cOff + i] = a[aOff + i] + b[bOff + i];
+        }
+    }
+
+    @Override
+    void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int length) {
+        DoubleVector factor = DoubleVector.broadcast(SPECIES, alpha);
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector xs = DoubleVector.fromArray(SPECIES, x, xOff + i);
+            DoubleVector ys = DoubleVector.fromArray(SPECIES, y, yOff + i);
+            xs.fma(factor, ys).intoArray(y, yOff + i);
+        }
+        for (; i < length; i++) {
+            y[yOff + i] += alpha * x[xOff + i];
+        }
+    }
+
+    @Override
+    double dot(double[] x, int xOff, double[] y, int yOff, int length) {
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector xs = DoubleVector.fromArray(SPECIES, x, xOff + i);
+            DoubleVector ys = DoubleVector.fromArray(SPECIES, y, yOff + i);
+            sums = xs.fma(ys, sums);
+        }
+        double sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += x[xOff + i] * y[yOff + i];
+        }
+        return sum;
+    }
+
+    @Override
+    boolean allClose(double[] a, int aOff, double[] b, int bOff, int length, double tolerance) {
+        DoubleVector limit = DoubleVector.broadcast(SPECIES, tolerance);
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector left = DoubleVector.fromArray(SPECIES, a, aOff + i);
+            DoubleVector right = DoubleVector.fromArray(SPECIES, b, bOff + i);
+            if (left.sub(right).abs().compare(VectorOperators.GT, limit).anyTrue()) {
+                return false;
+            }
+        }
+        for (; i < length; i++) {
+            if (Math.abs(a[aOff + i] - b[bOff + i]) > tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
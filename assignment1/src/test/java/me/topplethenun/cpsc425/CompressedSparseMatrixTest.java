@@ -0,0 +1,479 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompressedSparseMatrixTest {
+
+    @Test
+    public void doesCompressKeepEveryValue() {
+        SparseMatrix matrix = randomSparseMatrix(40, 30, 0.1, 41L);
+
+        for (CompressedSparseMatrix.Orientation orientation : CompressedSparseMatrix.Orientation.values()) {
+            CompressedSparseMatrix compressed = matrix.compress(orientation);
+
+            assertEquals(orientation, compressed.getOrientation());
+            assertEquals(40, compressed.numOfRows());
+            assertEquals(30, compressed.numOfColumns());
+            for (int i = 0; i < 40; i++) {
+                for (int j = 0; j < 30; j++) {
+                    assertEquals(matrix.get(i, j), compressed.get(i, j), 0.000005);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void doesCompressSortIndicesAndLeaveOutZeros() {
+        SparseMatrix matrix = new SparseMatrix(3, 4);
+        matrix.set(0, 3, 2);
+        matrix.set(0, 1, 5);
+        matrix.set(2, 0, 0);
+        matrix.set(2, 1, -1);
+
+        CompressedSparseMatrix compressed = matrix.compress();
+
+        assertEquals(3, compressed.numOfNonZeros());
+        assertArrayEquals(new int[]{0, 2, 2, 3}, compressed.pointers);
+        assertArrayEquals(new int[]{1, 3, 1}, compressed.indices);
+        assertArrayEquals(new double[]{5, 2, -1}, compressed.values, 0.000005);
+    }
+
+    @Test
+    public void doesToOrientationMatchDirectCompression() {
+        SparseMatrix matrix = randomSparseMatrix(25, 35, 0.2, 42L);
+        CompressedSparseMatrix rows = matrix.compress(CompressedSparseMatrix.Orientation.ROW);
+        CompressedSparseMatrix columns = matrix.compress(CompressedSparseMatrix.Orientation.COLUMN);
+
+        CompressedSparseMatrix converted = rows.toOrientation(CompressedSparseMatrix.Orientation.COLUMN);
+
+        assertArrayEquals(columns.pointers, converted.pointers);
+        assertArrayEquals(columns.indices, converted.indices);
+        assertArrayEquals(columns.values, converted.values, 0.000005);
+        assertEquals(rows, columns);
+        assertEquals(rows.hashCode(), columns.hashCode());
+    }
+
+    @Test
+    public void doesToSparseMatrixReturnEqualMatrix() {
+        SparseMatrix matrix = randomSparseMatrix(20, 20, 0.15, 43L);
+
+        assertEquals(matrix, matrix.compress(CompressedSparseMatrix.Orientation.COLUMN).toSparseMatrix());
+    }
+
+    @Test
+    public void doesGetReturnOneOnDiagonal() {
+        CompressedSparseMatrix compressed = new SparseMatrix(4, 4).compress();
+
+        assertEquals(1, compressed.get(2, 2), 0.000005);
+        assertEquals(0, compressed.get(2, 3), 0.000005);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesGetThrowExceptionWithTooLargeColumn() {
+        CompressedSparseMatrix compressed = new SparseMatrix(4, 4).compress();
+
+        compressed.get(0, 4);
+    }
+
+    @Test
+    public void doesMultiplyWorkAcrossOrientations() {
+        SparseMatrix matrixOne = randomSparseMatrix(35, 25, 0.2, 44L);
+        SparseMatrix matrixTwo = randomSparseMatrix(25, 40, 0.2, 45L);
+        CompressedSparseMatrix expected = matrixOne.compress().multiply(matrixTwo.compress());
+
+        CompressedSparseMatrix actual = matrixOne.compress(CompressedSparseMatrix.Orientation.COLUMN)
+                .multiply(matrixTwo.compress(CompressedSparseMatrix.Orientation.COLUMN));
+
+        assertEquals(CompressedSparseMatrix.Orientation.ROW, actual.getOrientation());
+        assertEquals(expected, actual);
+        assertEquals(matrixOne.multiply(matrixTwo).compress(), actual);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesMultiplyThrowExceptionWhenInvalidMults() {
+        new SparseMatrix(2, 3).compress().multiply(new SparseMatrix(4, 3).compress());
+    }
+
+    @Test
+    public void doesMultiplyVectorMatchAcrossOrientations() {
+        SparseMatrix matrix = randomSparseMatrix(45, 30, 0.15, 46L);
+        double[] x = new double[30];
+        for (int j = 0; j < x.length; j++) {
+            x[j] = Math.sin(j);
+        }
+
+        double[] expected = matrix.compress(CompressedSparseMatrix.Orientation.ROW).multiply(x, new double[45]);
+        double[] actual = matrix.compress(CompressedSparseMatrix.Orientation.COLUMN).multiply(x, new double[45]);
+
+        assertArrayEquals(expected, actual, 0.000005);
+    }
+
+    @Test
+    public void doesReadReturnWrittenMatrix() throws IOException {
+        SparseMatrix matrix = randomSparseMatrix(70, 90, 0.05, 47L);
+        Path path = Files.createTempFile("sparse", ".smat");
+        try {
+            matrix.write(path);
+
+            assertEquals(matrix.compress(), CompressedSparseMatrix.read(path));
+            assertEquals(matrix, SparseMatrix.read(path));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void doesReadThrowExceptionWhenChecksumDoesNotMatch() throws IOException {
+        Path path = Files.createTempFile("sparse", ".smat");
+        try {
+            randomSparseMatrix(20, 20, 0.2, 48L).write(path);
+            byte[] bytes = Files.readAllBytes(path);
+            bytes[bytes.length - 3] ^= 0x10;
+            Files.write(path, bytes);
+
+            CompressedSparseMatrix.read(path);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void doesCompressKeepDiagonalInEachMode() {
+        for (SparseMatrix.DiagonalMode mode : SparseMatrix.DiagonalMode.values()) {
+            SparseMatrix matrix = randomSparseMatrix(30, 25, 0.1, 49L, mode);
+            CompressedSparseMatrix compressed = matrix.compress(CompressedSparseMatrix.Orientation.COLUMN);
+
+            assertEquals(mode, compressed.getDiagonalMode());
+            for (int i = 0; i < 30; i++) {
+                for (int j = 0; j < 25; j++) {
+                    assertEquals(matrix.get(i, j), compressed.get(i, j), 0.000005);
+                }
+            }
+            for (int k = 0; k < 25; k++) {
+                assertEquals(mode == SparseMatrix.DiagonalMode.UNIT ? 1 : 26, compressed.getDiagonal()[k], 0.000005);
+            }
+        }
+    }
+
+    @Test
+    public void doesToDiagonalModeMoveDiagonal() {
+        CompressedSparseMatrix general = randomSparseMatrix(20, 20, 0.2, 50L, SparseMatrix.DiagonalMode.GENERAL)
+                .compress();
+        CompressedSparseMatrix separate = general.toDiagonalMode(SparseMatrix.DiagonalMode.SEPARATE);
+        CompressedSparseMatrix unit = separate.toDiagonalMode(SparseMatrix.DiagonalMode.UNIT);
+
+        assertEquals(general.numOfNonZeros(), separate.numOfNonZeros());
+        assertEquals(general.values.length - 20, separate.values.length);
+        assertEquals(general, separate);
+        assertEquals(general.hashCode(), separate.hashCode());
+        assertArrayEquals(general.values, separate.toDiagonalMode(SparseMatrix.DiagonalMode.GENERAL).values, 0);
+        assertEquals(1, unit.get(4, 4), 0.000005);
+        assertEquals(general.get(4, 5), unit.get(4, 5), 0.000005);
+    }
+
+    @Test
+    public void doesAddAndMultiplyMatchDenseProductAcrossDiagonalModes() {
+        for (SparseMatrix.DiagonalMode modeOne : SparseMatrix.DiagonalMode.values()) {
+            for (SparseMatrix.DiagonalMode modeTwo : SparseMatrix.DiagonalMode.values()) {
+                CompressedSparseMatrix matrixOne = randomSparseMatrix(15, 15, 0.2, 51L, modeOne).compress();
+                CompressedSparseMatrix matrixTwo = randomSparseMatrix(15, 15, 0.2, 52L, modeTwo).compress();
+
+                CompressedSparseMatrix sum = matrixOne.add(matrixTwo);
+                CompressedSparseMatrix product = matrixOne.multiply(matrixTwo);
+
+                SparseMatrix.DiagonalMode expectedMode = modeOne == modeTwo ? modeOne :
+                        SparseMatrix.DiagonalMode.GENERAL;
+                assertEquals(expectedMode, sum.getDiagonalMode());
+                assertEquals(expectedMode, product.getDiagonalMode());
+                for (int i = 0; i < 15; i++) {
+                    for (int j = 0; j < 15; j++) {
+                        if (i == j && expectedMode == SparseMatrix.DiagonalMode.UNIT) {
+                            continue;
+                        }
+                        double expected = 0;
+                        for (int k = 0; k < 15; k++) {
+                            expected += matrixOne.get(i, k) * matrixTwo.get(k, j);
+                        }
+                        assertEquals(matrixOne.get(i, j) + matrixTwo.get(i, j), sum.get(i, j), 0.000005);
+                        assertEquals(expected, product.get(i, j), 0.000005);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void doesMultiplyVectorUseDiagonalOfEachMode() {
+        double[] x = new double[25];
+        for (int j = 0; j < x.length; j++) {
+            x[j] = Math.sin(j);
+        }
+        for (SparseMatrix.DiagonalMode mode : SparseMatrix.DiagonalMode.values()) {
+            SparseMatrix matrix = randomSparseMatrix(30, 25, 0.15, 53L, mode);
+            double[] expected = new double[30];
+            for (int i = 0; i < 30; i++) {
+                for (int j = 0; j < 25; j++) {
+                    expected[i] += matrix.get(i, j) * x[j];
+                }
+            }
+
+            for (CompressedSparseMatrix.Orientation orientation : CompressedSparseMatrix.Orientation.values()) {
+                assertArrayEquals(expected, matrix.compress(orientation).multiply(x, new double[30]), 0.000005);
+            }
+        }
+    }
+
+    @Test
+    public void doesJacobiSweepConverge() {
+        CompressedSparseMatrix matrix = randomSparseMatrix(50, 50, 0.1, 54L, SparseMatrix.DiagonalMode.SEPARATE)
+                .compress();
+        double[] solution = new double[50];
+        for (int i = 0; i < solution.length; i++) {
+            solution[i] = i % 7 - 3;
+        }
+        double[] b = matrix.multiply(solution, new double[50]);
+        double[] x = new double[50];
+        double[] next = new double[50];
+
+        for (int sweep = 0; sweep < 40; sweep++) {
+            matrix.jacobiSweep(b, x, next);
+            double[] swap = x;
+            x = next;
+            next = swap;
+        }
+
+        assertArrayEquals(solution, x, 0.000005);
+        assertArrayEquals(matrix.toDiagonalMode(SparseMatrix.DiagonalMode.GENERAL).jacobiSweep(b, solution, next),
+                matrix.jacobiSweep(b, solution, new double[50]), 0.000005);
+    }
+
+    @Test
+    public void doesGaussSeidelSweepConverge() {
+        SparseMatrix matrix = randomSparseMatrix(50, 50, 0.1, 55L, SparseMatrix.DiagonalMode.GENERAL);
+        double[] solution = new double[50];
+        for (int i = 0; i < solution.length; i++) {
+            solution[i] = Math.cos(i);
+        }
+        double[] b = matrix.multiply(solution, new double[50]);
+        double[] x = new double[50];
+
+        for (int sweep = 0; sweep < 20; sweep++) {
+            matrix.gaussSeidelSweep(b, x);
+        }
+
+        assertArrayEquals(solution, x, 0.000005);
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void doesJacobiSweepThrowExceptionWithZeroDiagonal() {
+        CompressedSparseMatrix matrix = new SparseMatrix(3, 3, SparseMatrix.DiagonalMode.GENERAL).compress();
+        matrix.jacobiSweep(new double[3], new double[3], new double[3]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesGaussSeidelSweepThrowExceptionWhenNotSquare() {
+        new SparseMatrix(3, 4).compress().gaussSeidelSweep(new double[3], new double[4]);
+    }
+
+    @Test
+    public void doesForEachNonZeroVisitEveryStoredValueInOrder() {
+        for (SparseMatrix.DiagonalMode mode : SparseMatrix.DiagonalMode.values()) {
+            SparseMatrix matrix = randomSparseMatrix(20, 30, 0.15, 56L, mode);
+            for (CompressedSparseMatrix.Orientation orientation : CompressedSparseMatrix.Orientation.values()) {
+                CompressedSparseMatrix compressed = matrix.compress(orientation);
+                double[][] visited = new double[20][30];
+                int[] count = new int[1];
+                int[] last = {-1};
+                compressed.forEachNonZero((row, column, value) -> {
+                    int position = orientation == CompressedSparseMatrix.Orientation.ROW ? row * 30 + column :
+                            column * 20 + row;
+                    assertTrue(position > last[0]);
+                    last[0] = position;
+                    visited[row][column] = value;
+                    count[0]++;
+                });
+
+                assertEquals(compressed.numOfNonZeros(), count[0]);
+                for (int i = 0; i < 20; i++) {
+                    for (int j = 0; j < 30; j++) {
+                        double expected = i == j && mode == SparseMatrix.DiagonalMode.UNIT ? 0 : matrix.get(i, j);
+                        assertEquals(expected, visited[i][j], 0);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void doesRowCursorVisitSameValuesAsForEachNonZero() {
+        CompressedSparseMatrix matrix = randomSparseMatrix(25, 20, 0.2, 57L, SparseMatrix.DiagonalMode.SEPARATE)
+                .compress(CompressedSparseMatrix.Orientation.COLUMN);
+        int[] counts = matrix.numOfNonZerosPerRow();
+        CompressedSparseMatrix.RowCursor cursor = matrix.rowCursor();
+        SparseMatrix visited = new SparseMatrix(25, 20, SparseMatrix.DiagonalMode.SEPARATE);
+
+        for (int i = 24; i >= 0; i--) {
+            cursor.moveTo(i);
+            int count = 0;
+            int previous = -1;
+            while (cursor.next()) {
+                assertEquals(i, cursor.row());
+                assertTrue(cursor.column() > previous);
+                previous = cursor.column();
+                visited.set(i, cursor.column(), cursor.value());
+                count++;
+            }
+            assertEquals(counts[i], count);
+            assertEquals(counts[i], matrix.numOfNonZeros(i));
+            assertFalse(cursor.next());
+        }
+
+        assertEquals(matrix, visited.compress());
+    }
+
+    @Test
+    public void doesMultiplyDenseMatchDenseProductAcrossDiagonalModes() {
+        Random random = new Random(81L);
+        DenseMatrix dense = new DenseMatrix(7, 9);
+        for (int i = 0; i < 7; i++) {
+            for (int j = 0; j < 9; j++) {
+                dense.set(i, j, random.nextDouble() * 2 - 1);
+            }
+        }
+        DenseMatrix strided = dense.transpose();
+        for (SparseMatrix.DiagonalMode mode : SparseMatrix.DiagonalMode.values()) {
+            CompressedSparseMatrix sparse = randomSparseMatrix(12, 9, 0.2, 82L, mode)
+                    .compress(CompressedSparseMatrix.Orientation.COLUMN);
+
+            Matrix product = sparse.multiply((Matrix) strided);
+
+            assertTrue(product instanceof DenseMatrix);
+            for (int i = 0; i < 12; i++) {
+                for (int j = 0; j < 7; j++) {
+                    double expected = 0;
+                    for (int k = 0; k < 9; k++) {
+                        expected += sparse.get(i, k) * strided.get(k, j);
+                    }
+                    assertEquals(expected, product.get(i, j), 0.000005);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void doesAddDenseMatchSumOfValues() {
+        DenseMatrix dense = new DenseMatrix(10, 8, DenseMatrix.Layout.COLUMN_MAJOR);
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 8; j++) {
+                dense.set(i, j, i - j * 0.5);
+            }
+        }
+        for (SparseMatrix.DiagonalMode mode : SparseMatrix.DiagonalMode.values()) {
+            CompressedSparseMatrix sparse = randomSparseMatrix(10, 8, 0.3, 83L, mode).compress();
+
+            Matrix sum = sparse.add(dense);
+
+            assertTrue(sum instanceof DenseMatrix);
+            for (int i = 0; i < 10; i++) {
+                for (int j = 0; j < 8; j++) {
+                    assertEquals(sparse.get(i, j) + dense.get(i, j), sum.get(i, j), 0.000005);
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesMultiplyDenseThrowExceptionWhenInvalidMults() {
+        randomSparseMatrix(5, 4, 0.5, 84L).compress().multiply((Matrix) new DenseMatrix(5, 4));
+    }
+
+    @Test
+    public void doesToDenseAndFromDenseKeepValues() {
+        for (SparseMatrix.DiagonalMode mode : SparseMatrix.DiagonalMode.values()) {
+            CompressedSparseMatrix sparse = randomSparseMatrix(14, 11, 0.2, 85L, mode).compress();
+
+            DenseMatrix dense = sparse.toDense();
+            CompressedSparseMatrix back = CompressedSparseMatrix.fromDense(dense, 0, mode);
+
+            for (int i = 0; i < 14; i++) {
+                for (int j = 0; j < 11; j++) {
+                    assertEquals(sparse.get(i, j), dense.get(i, j), 0);
+                }
+            }
+            assertEquals(mode, back.getDiagonalMode());
+            assertEquals(sparse, back);
+            assertEquals(sparse, CompressedSparseMatrix.fromDense(dense, 0));
+        }
+    }
+
+    @Test
+    public void doesFromDenseDropValuesWithinThreshold() {
+        DenseMatrix dense = new DenseMatrix(3, 4);
+        dense.set(0, 0, 2);
+        dense.set(0, 3, 0.001);
+        dense.set(1, 2, -0.5);
+        dense.set(2, 1, -0.01);
+
+        CompressedSparseMatrix sparse = CompressedSparseMatrix.fromDense(dense.transpose().transpose(), 0.01);
+
+        assertEquals(2, sparse.numOfNonZeros());
+        assertEquals(2, sparse.get(0, 0), 0);
+        assertEquals(-0.5, sparse.get(1, 2), 0);
+        assertEquals(0, sparse.get(2, 1), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesFromDenseThrowExceptionWithNegativeThreshold() {
+        CompressedSparseMatrix.fromDense(new DenseMatrix(2, 2), -1);
+    }
+
+    static SparseMatrix randomSparseMatrix(int rows, int columns, double density, long seed) {
+        Random random = new Random(seed);
+        SparseMatrix matrix = new SparseMatrix(rows, columns);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                if (i != j && random.nextDouble() < density) {
+                    matrix.set(i, j, random.nextDouble() * 2 - 1);
+                }
+            }
+        }
+        return matrix;
+    }
+
+    static SparseMatrix randomSparseMatrix(int rows, int columns, double density, long seed,
+                                           SparseMatrix.DiagonalMode diagonalMode) {
+        Random random = new Random(seed);
+        SparseMatrix matrix = new SparseMatrix(rows, columns, diagonalMode);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                if (i == j) {
+                    matrix.set(i, j, columns + 1);
+                } else if (random.nextDouble() < density) {
+                    matrix.set(i, j, random.nextDouble() * 2 - 1);
+                }
+            }
+        }
+        return matrix;
+    }
+
+}
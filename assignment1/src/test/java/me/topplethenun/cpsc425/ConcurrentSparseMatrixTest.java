@@ -0,0 +1,104 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ConcurrentSparseMatrixTest {
+
+    @Test
+    public void doesConcurrentAddCountEveryValue() throws InterruptedException {
+        ConcurrentSparseMatrix matrix = new ConcurrentSparseMatrix(300, 200, SparseMatrix.DiagonalMode.GENERAL, 4);
+        SparseMatrixBuilder builder = new SparseMatrixBuilder(300, 200).diagonalMode(SparseMatrix.DiagonalMode.GENERAL);
+        int[][] rows = new int[4][20000];
+        int[][] columns = new int[4][20000];
+        double[][] values = new double[4][20000];
+        Random random = new Random(91L);
+        for (int t = 0; t < 4; t++) {
+            for (int e = 0; e < 20000; e++) {
+                rows[t][e] = random.nextInt(300);
+                columns[t][e] = random.nextInt(200);
+                values[t][e] = random.nextInt(9) + 1;
+            }
+            builder.addAll(rows[t], columns[t], values[t]);
+        }
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                for (int e = 0; e < 20000; e++) {
+                    matrix.add(rows[thread][e], columns[thread][e], values[thread][e]);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        CompressedSparseMatrix expected = builder.build();
+        assertEquals(expected, matrix.freeze());
+        assertEquals(expected.numOfNonZeros(), matrix.numOfNonZeros());
+        assertEquals(expected, matrix.freeze(CompressedSparseMatrix.Orientation.COLUMN));
+    }
+
+    @Test
+    public void doesSetZeroRemoveValue() {
+        ConcurrentSparseMatrix matrix = new ConcurrentSparseMatrix(50, 50, SparseMatrix.DiagonalMode.UNIT, 1);
+        for (int j = 0; j < 50; j++) {
+            matrix.set(3, j, j + 1);
+        }
+        for (int j = 0; j < 50; j += 2) {
+            matrix.set(3, j, 0);
+        }
+        matrix.add(3, 1, -2);
+
+        assertEquals(23, matrix.numOfNonZeros());
+        assertEquals(0, matrix.get(3, 0), 0.000005);
+        assertEquals(0, matrix.get(3, 1), 0.000005);
+        assertEquals(1, matrix.get(3, 3), 0.000005);
+        for (int j = 5; j < 50; j += 2) {
+            assertEquals(j + 1, matrix.get(3, j), 0.000005);
+        }
+    }
+
+    @Test
+    public void doesFreezeKeepSeparateDiagonal() {
+        ConcurrentSparseMatrix matrix = new ConcurrentSparseMatrix(4, 3, SparseMatrix.DiagonalMode.SEPARATE);
+        matrix.set(1, 1, 5);
+        matrix.add(1, 1, 2);
+        matrix.set(3, 0, -1);
+
+        CompressedSparseMatrix frozen = matrix.freeze();
+
+        assertEquals(SparseMatrix.DiagonalMode.SEPARATE, frozen.getDiagonalMode());
+        assertEquals(7, frozen.get(1, 1), 0.000005);
+        assertEquals(0, frozen.get(2, 2), 0.000005);
+        assertEquals(-1, frozen.get(3, 0), 0.000005);
+        assertEquals(2, frozen.numOfNonZeros());
+        assertEquals(2, matrix.numOfNonZeros());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesSetThrowExceptionWithTooLargeColumn() {
+        new ConcurrentSparseMatrix(3, 3).set(0, 3, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesConstructorThrowExceptionWithNoConcurrency() {
+        new ConcurrentSparseMatrix(3, 3, SparseMatrix.DiagonalMode.UNIT, 0);
+    }
+
+}
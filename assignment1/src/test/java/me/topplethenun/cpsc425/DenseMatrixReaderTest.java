@@ -0,0 +1,78 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class DenseMatrixReaderTest {
+
+    @Test
+    public void doesReadRowsReturnRowsOfRowMajorFile() throws IOException {
+        assertReadRowsMatches(DenseMatrix.Layout.ROW_MAJOR);
+    }
+
+    @Test
+    public void doesReadRowsReturnRowsOfColumnMajorFile() throws IOException {
+        assertReadRowsMatches(DenseMatrix.Layout.COLUMN_MAJOR);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesReadRowsThrowExceptionWhenRangeTooLarge() throws IOException {
+        Path path = Files.createTempFile("reader", ".dmat");
+        try {
+            new DenseMatrix(4, 4).write(path);
+            try (DenseMatrixReader reader = DenseMatrixReader.open(path)) {
+                reader.readRows(2, 3);
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static void assertReadRowsMatches(DenseMatrix.Layout layout) throws IOException {
+        int rows = 160;
+        int columns = 110;
+        DenseMatrix matrix = new DenseMatrix(rows, columns, layout);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                matrix.set(i, j, i * 1000 + j);
+            }
+        }
+        Path path = Files.createTempFile("reader", ".dmat");
+        try {
+            matrix.write(path);
+            try (DenseMatrixReader reader = DenseMatrixReader.open(path)) {
+                assertEquals(rows, reader.numOfRows());
+                assertEquals(columns, reader.numOfColumns());
+                assertEquals(layout, reader.getLayout());
+
+                DenseMatrix slice = reader.readRows(30, 95);
+
+                assertEquals(95, slice.numOfRows());
+                assertEquals(columns, slice.numOfColumns());
+                for (int i = 0; i < 95; i++) {
+                    for (int j = 0; j < columns; j++) {
+                        assertEquals(matrix.get(30 + i, j), slice.get(i, j), 0.000005);
+                    }
+                }
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+}
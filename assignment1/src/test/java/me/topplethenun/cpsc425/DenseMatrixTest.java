@@ -12,6 +12,13 @@ package me.topplethenun.cpsc425;
 
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
 import static org.junit.Assert.*;
 
 public class DenseMatrixTest {
@@ -435,4 +442,517 @@ public class DenseMatrixTest {
         assertEquals(matrixTwo.numOfColumns(), actual.numOfColumns());
     }
 
+    @Test
+    public void doesGetElementsExposeRowMajorBackingArray() {
+        DenseMatrix matrix = new DenseMatrix(2, 3);
+        matrix.set(0, 2, 3);
+        matrix.set(1, 0, 4);
+
+        double[] elements = matrix.getElements();
+
+        assertEquals(6, elements.length);
+        assertEquals(3, elements[2], 0.000005);
+        assertEquals(4, elements[3], 0.000005);
+
+        elements[5] = 6;
+        assertEquals(6, matrix.get(1, 2), 0.000005);
+    }
+
+    @Test
+    public void doesGetElementsExposeColumnMajorBackingArray() {
+        DenseMatrix matrix = new DenseMatrix(2, 3, DenseMatrix.Layout.COLUMN_MAJOR);
+        matrix.set(0, 2, 3);
+        matrix.set(1, 0, 4);
+
+        double[] elements = matrix.getElements();
+
+        assertEquals(DenseMatrix.Layout.COLUMN_MAJOR, matrix.getLayout());
+        assertEquals(3, elements[4], 0.000005);
+        assertEquals(4, elements[1], 0.000005);
+    }
+
+    @Test
+    public void doesAddWorkAcrossLayouts() {
+        DenseMatrix matrixOne = new DenseMatrix(2, 3);
+        DenseMatrix matrixTwo = new DenseMatrix(2, 3, DenseMatrix.Layout.COLUMN_MAJOR);
+        DenseMatrix expected = new DenseMatrix(2, 3);
+
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 3; j++) {
+                matrixOne.set(i, j, i);
+                matrixTwo.set(i, j, j);
+                expected.set(i, j, i + j);
+            }
+        }
+
+        assertEquals(expected, matrixOne.add(matrixTwo));
+        assertEquals(expected, matrixTwo.add(matrixOne));
+    }
+
+    @Test
+    public void doesHashCodeIgnoreLayout() {
+        DenseMatrix matrixOne = new DenseMatrix(2, 3);
+        DenseMatrix matrixTwo = new DenseMatrix(2, 3, DenseMatrix.Layout.COLUMN_MAJOR);
+
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 3; j++) {
+                matrixOne.set(i, j, i * 3 + j);
+                matrixTwo.set(i, j, i * 3 + j);
+            }
+        }
+
+        assertEquals(matrixOne, matrixTwo);
+        assertEquals(matrixOne.hashCode(), matrixTwo.hashCode());
+    }
+
+    @Test
+    public void doesBlockedMultiplyMatchNaiveProduct() {
+        DenseMatrix matrixOne = randomMatrix(37, 53, DenseMatrix.Layout.ROW_MAJOR, 1L);
+        DenseMatrix matrixTwo = randomMatrix(53, 29, DenseMatrix.Layout.ROW_MAJOR, 2L);
+
+        DenseMatrix expected = naiveMultiply(matrixOne, matrixTwo);
+
+        for (int tileSize : new int[]{1, 3, 8, 16, 64}) {
+            assertEquals(expected, matrixOne.multiply(matrixTwo, tileSize));
+        }
+    }
+
+    @Test
+    public void doesBlockedMultiplyWorkAcrossLayouts() {
+        DenseMatrix matrixOne = randomMatrix(19, 23, DenseMatrix.Layout.COLUMN_MAJOR, 3L);
+        DenseMatrix matrixTwo = randomMatrix(23, 17, DenseMatrix.Layout.COLUMN_MAJOR, 4L);
+
+        assertEquals(naiveMultiply(matrixOne, matrixTwo), matrixOne.multiply(matrixTwo, 4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesMultiplyThrowExceptionWithInvalidTileSize() {
+        DenseMatrix matrixOne = new DenseMatrix(2, 2);
+        DenseMatrix matrixTwo = new DenseMatrix(2, 2);
+
+        matrixOne.multiply(matrixTwo, 0);
+    }
+
+    @Test
+    public void doesSetTileSizeChangeTileSize() {
+        int previous = DenseMatrix.getTileSize();
+        try {
+            DenseMatrix.setTileSize(24);
+            assertEquals(24, DenseMatrix.getTileSize());
+        } finally {
+            DenseMatrix.setTileSize(previous);
+        }
+    }
+
+    @Test
+    public void doesMultiplyParallelMatchSerialProduct() {
+        DenseMatrix matrixOne = randomMatrix(150, 90, DenseMatrix.Layout.ROW_MAJOR, 5L);
+        DenseMatrix matrixTwo = randomMatrix(90, 130, DenseMatrix.Layout.COLUMN_MAJOR, 6L);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(matrixOne.multiply(matrixTwo), matrixOne.multiplyParallel(matrixTwo, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void doesAddParallelMatchSerialSum() {
+        DenseMatrix matrixOne = randomMatrix(300, 250, DenseMatrix.Layout.ROW_MAJOR, 7L);
+        DenseMatrix matrixTwo = randomMatrix(300, 250, DenseMatrix.Layout.COLUMN_MAJOR, 8L);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(matrixOne.add(matrixTwo), matrixOne.addParallel(matrixTwo, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesMultiplyParallelThrowExceptionWithNullPool() {
+        DenseMatrix matrixOne = new DenseMatrix(2, 2);
+        DenseMatrix matrixTwo = new DenseMatrix(2, 2);
+
+        matrixOne.multiplyParallel(matrixTwo, null);
+    }
+
+    @Test
+    public void doesStrassenMultiplyStayWithinEqualsToleranceOfClassicalProduct() {
+        DenseMatrix matrixOne = randomMatrix(200, 200, DenseMatrix.Layout.ROW_MAJOR, 9L);
+        DenseMatrix matrixTwo = randomMatrix(200, 200, DenseMatrix.Layout.ROW_MAJOR, 10L);
+
+        DenseMatrix expected = matrixOne.multiply(matrixTwo);
+        DenseMatrix actual = matrixOne.multiplyStrassen(matrixTwo, 16);
+
+        double error = maxAbsoluteDifference(expected, actual);
+        assertTrue("strassen error " + error + " exceeds equals tolerance", error <= 0.00005);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void doesStrassenMultiplyPadNonSquareMatrices() {
+        DenseMatrix matrixOne = randomMatrix(45, 70, DenseMatrix.Layout.COLUMN_MAJOR, 11L);
+        DenseMatrix matrixTwo = randomMatrix(70, 40, DenseMatrix.Layout.ROW_MAJOR, 12L);
+
+        DenseMatrix actual = matrixOne.multiplyStrassen(matrixTwo, 8);
+
+        assertEquals(45, actual.numOfRows());
+        assertEquals(40, actual.numOfColumns());
+        assertEquals(naiveMultiply(matrixOne, matrixTwo), actual);
+    }
+
+    @Test
+    public void doesStrassenMultiplyHandleSkinnyMatrices() {
+        DenseMatrix matrixOne = randomMatrix(90, 12, DenseMatrix.Layout.ROW_MAJOR, 16L);
+        DenseMatrix matrixTwo = randomMatrix(12, 70, DenseMatrix.Layout.COLUMN_MAJOR, 17L);
+
+        DenseMatrix actual = matrixOne.multiplyStrassen(matrixTwo, 8);
+
+        assertEquals(90, actual.numOfRows());
+        assertEquals(70, actual.numOfColumns());
+        assertEquals(naiveMultiply(matrixOne, matrixTwo), actual);
+    }
+
+    @Test
+    public void doesStrassenMultiplyHandleProductTooLargeToPad() {
+        double[] ones = new double[50000];
+        Arrays.fill(ones, 1D);
+        DenseMatrix row = DenseMatrix.wrap(1, 50000, DenseMatrix.Layout.ROW_MAJOR, ones);
+        DenseMatrix column = DenseMatrix.wrap(50000, 1, DenseMatrix.Layout.ROW_MAJOR, ones);
+
+        DenseMatrix actual = row.multiplyStrassen(column);
+
+        assertEquals(1, actual.numOfRows());
+        assertEquals(1, actual.numOfColumns());
+        assertEquals(50000D, actual.get(0, 0), 0.000005);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesStrassenMultiplyThrowExceptionWithInvalidCrossover() {
+        DenseMatrix matrixOne = new DenseMatrix(2, 2);
+        DenseMatrix matrixTwo = new DenseMatrix(2, 2);
+
+        matrixOne.multiplyStrassen(matrixTwo, 0);
+    }
+
+    @Test
+    public void doesAddInPlaceStoreResultsInMatrix() {
+        DenseMatrix matrixOne = randomMatrix(6, 4, DenseMatrix.Layout.ROW_MAJOR, 13L);
+        DenseMatrix matrixTwo = randomMatrix(6, 4, DenseMatrix.Layout.COLUMN_MAJOR, 14L);
+        DenseMatrix expected = matrixOne.add(matrixTwo);
+
+        DenseMatrix actual = matrixOne.addInPlace(matrixTwo);
+
+        assertSame(matrixOne, actual);
+        assertEquals(expected, matrixOne);
+    }
+
+    @Test
+    public void doesAddInPlaceHandleTransposeOfItself() {
+        DenseMatrix matrix = DenseMatrix.wrap(2, 2, DenseMatrix.Layout.ROW_MAJOR, new double[]{1, 2, 3, 4});
+
+        matrix.addInPlace(matrix.transpose());
+
+        assertEquals(DenseMatrix.wrap(2, 2, DenseMatrix.Layout.ROW_MAJOR, new double[]{2, 5, 5, 8}), matrix);
+    }
+
+    @Test
+    public void doesAddInPlaceHandleOverlappingView() {
+        DenseMatrix matrix = randomMatrix(5, 5, DenseMatrix.Layout.COLUMN_MAJOR, 15L);
+        DenseMatrix target = matrix.subMatrix(0, 0, 4, 4);
+        DenseMatrix source = matrix.subMatrix(1, 1, 4, 4);
+        DenseMatrix expected = target.add(source);
+
+        target.addInPlace(source);
+
+        assertEquals(expected, target);
+    }
+
+    @Test
+    public void doesScaleInPlaceScaleEveryValue() {
+        DenseMatrix matrix = new DenseMatrix(2, 2);
+        matrix.set(0, 0, 1);
+        matrix.set(0, 1, 2);
+        matrix.set(1, 0, 3);
+        matrix.set(1, 1, 4);
+
+        matrix.scaleInPlace(-2);
+
+        assertEquals(-2, matrix.get(0, 0), 0.000005);
+        assertEquals(-4, matrix.get(0, 1), 0.000005);
+        assertEquals(-6, matrix.get(1, 0), 0.000005);
+        assertEquals(-8, matrix.get(1, 1), 0.000005);
+    }
+
+    @Test
+    public void doesMultiplyIntoOverwriteOutput() {
+        DenseMatrix matrixOne = randomMatrix(9, 7, DenseMatrix.Layout.ROW_MAJOR, 15L);
+        DenseMatrix matrixTwo = randomMatrix(7, 5, DenseMatrix.Layout.ROW_MAJOR, 16L);
+        DenseMatrix out = randomMatrix(9, 5, DenseMatrix.Layout.COLUMN_MAJOR, 17L);
+
+        DenseMatrix actual = DenseMatrix.multiplyInto(matrixOne, matrixTwo, out);
+
+        assertSame(out, actual);
+        assertEquals(matrixOne.multiply(matrixTwo), out);
+    }
+
+    @Test
+    public void doesGemmAccumulateScaledProduct() {
+        DenseMatrix matrixOne = randomMatrix(9, 7, DenseMatrix.Layout.ROW_MAJOR, 18L);
+        DenseMatrix matrixTwo = randomMatrix(7, 5, DenseMatrix.Layout.COLUMN_MAJOR, 19L);
+        DenseMatrix out = randomMatrix(9, 5, DenseMatrix.Layout.ROW_MAJOR, 20L);
+
+        DenseMatrix expected = new DenseMatrix(9, 5);
+        DenseMatrix product = matrixOne.multiply(matrixTwo);
+        for (int i = 0; i < 9; i++) {
+            for (int j = 0; j < 5; j++) {
+                expected.set(i, j, 2 * product.get(i, j) + 0.5 * out.get(i, j));
+            }
+        }
+
+        DenseMatrix.gemm(2, matrixOne, matrixTwo, 0.5, out);
+
+        assertEquals(expected, out);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesMultiplyIntoThrowExceptionWhenOutputIsOperand() {
+        DenseMatrix matrix = new DenseMatrix(3, 3);
+
+        DenseMatrix.multiplyInto(matrix, matrix, matrix);
+    }
+
+    @Test
+    public void doesWrapShareArray() {
+        double[] elements = {1, 2, 3, 4, 5, 6};
+        DenseMatrix matrix = DenseMatrix.wrap(3, 2, DenseMatrix.Layout.COLUMN_MAJOR, elements);
+
+        assertSame(elements, matrix.getElements());
+        assertEquals(4, matrix.get(0, 1), 0.000005);
+        assertEquals(3, matrix.get(2, 0), 0.000005);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesWrapThrowExceptionWhenArrayHasWrongLength() {
+        DenseMatrix.wrap(3, 2, DenseMatrix.Layout.ROW_MAJOR, new double[5]);
+    }
+
+    @Test
+    public void doesReadReturnWrittenMatrix() throws IOException {
+        Path path = Files.createTempFile("dense", ".dmat");
+        try {
+            DenseMatrix rowMajor = randomMatrix(150, 100, DenseMatrix.Layout.ROW_MAJOR, 21L);
+            rowMajor.write(path);
+            DenseMatrix actual = DenseMatrix.read(path);
+            assertEquals(DenseMatrix.Layout.ROW_MAJOR, actual.getLayout());
+            assertEquals(rowMajor, actual);
+
+            DenseMatrix columnMajor = randomMatrix(7, 3, DenseMatrix.Layout.COLUMN_MAJOR, 22L);
+            columnMajor.write(path);
+            actual = DenseMatrix.read(path);
+            assertEquals(DenseMatrix.Layout.COLUMN_MAJOR, actual.getLayout());
+            assertEquals(columnMajor, actual);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void doesWrittenMatrixOpenOffHeap() throws IOException {
+        Path path = Files.createTempFile("dense", ".dmat");
+        try {
+            DenseMatrix matrix = randomMatrix(20, 30, DenseMatrix.Layout.ROW_MAJOR, 23L);
+            matrix.write(path);
+            try (OffHeapDenseMatrix mapped = OffHeapDenseMatrix.open(path, true)) {
+                assertEquals(matrix, mapped);
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void doesReadThrowExceptionWhenChecksumDoesNotMatch() throws IOException {
+        Path path = Files.createTempFile("dense", ".dmat");
+        try {
+            randomMatrix(4, 4, DenseMatrix.Layout.ROW_MAJOR, 24L).write(path);
+            byte[] bytes = Files.readAllBytes(path);
+            bytes[bytes.length - 1] ^= 1;
+            Files.write(path, bytes);
+
+            DenseMatrix.read(path);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void doesMultiplyVectorMatchMatrixProduct() {
+        for (DenseMatrix.Layout layout : DenseMatrix.Layout.values()) {
+            DenseMatrix matrix = randomMatrix(33, 21, layout, 25L);
+            DenseMatrix column = randomMatrix(21, 1, DenseMatrix.Layout.ROW_MAJOR, 26L);
+            double[] x = column.getElements();
+            double[] y = new double[33];
+
+            double[] actual = matrix.multiply(x, y);
+
+            assertSame(y, actual);
+            DenseMatrix expected = matrix.multiply(column);
+            for (int i = 0; i < 33; i++) {
+                assertEquals(expected.get(i, 0), y[i], 0.000005);
+            }
+        }
+    }
+
+    @Test
+    public void doesBatchedMultiplyMatchSingleMultiply() {
+        DenseMatrix matrix = randomMatrix(700, 400, DenseMatrix.Layout.ROW_MAJOR, 27L);
+        double[][] xs = new double[5][];
+        double[][] ys = new double[5][700];
+        for (int v = 0; v < xs.length; v++) {
+            xs[v] = randomMatrix(1, 400, DenseMatrix.Layout.ROW_MAJOR, 28L + v).getElements();
+        }
+
+        matrix.multiply(xs, ys);
+
+        for (int v = 0; v < xs.length; v++) {
+            assertArrayEquals(matrix.multiply(xs[v], new double[700]), ys[v], 0.000005);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesMultiplyVectorThrowExceptionWithWrongLength() {
+        DenseMatrix matrix = new DenseMatrix(3, 2);
+
+        matrix.multiply(new double[3], new double[3]);
+    }
+
+    @Test
+    public void doesTransposeShareStorage() {
+        DenseMatrix matrix = randomMatrix(4, 7, DenseMatrix.Layout.ROW_MAJOR, 31L);
+        DenseMatrix transpose = matrix.transpose();
+
+        assertEquals(7, transpose.numOfRows());
+        assertEquals(4, transpose.numOfColumns());
+        assertEquals(matrix.get(2, 5), transpose.get(5, 2), 0.000005);
+
+        transpose.set(6, 3, 42);
+        assertEquals(42, matrix.get(3, 6), 0.000005);
+        assertEquals(matrix, transpose.transpose());
+    }
+
+    @Test
+    public void doesSubMatrixShareStorage() {
+        DenseMatrix matrix = randomMatrix(6, 8, DenseMatrix.Layout.COLUMN_MAJOR, 32L);
+        DenseMatrix block = matrix.subMatrix(1, 2, 3, 4);
+
+        assertEquals(3, block.numOfRows());
+        assertEquals(4, block.numOfColumns());
+        assertEquals(matrix.get(3, 5), block.get(2, 3), 0.000005);
+
+        block.set(0, 0, -9);
+        assertEquals(-9, matrix.get(1, 2), 0.000005);
+    }
+
+    @Test
+    public void doesRowAndColumnViewMatchMatrix() {
+        DenseMatrix matrix = randomMatrix(5, 6, DenseMatrix.Layout.ROW_MAJOR, 33L);
+        DenseMatrix row = matrix.row(3);
+        DenseMatrix column = matrix.column(4);
+
+        for (int j = 0; j < 6; j++) {
+            assertEquals(matrix.get(3, j), row.get(0, j), 0.000005);
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals(matrix.get(i, 4), column.get(i, 0), 0.000005);
+        }
+    }
+
+    @Test
+    public void doesMultiplyWorkOnViews() {
+        DenseMatrix matrixOne = randomMatrix(90, 70, DenseMatrix.Layout.ROW_MAJOR, 34L);
+        DenseMatrix matrixTwo = randomMatrix(60, 80, DenseMatrix.Layout.COLUMN_MAJOR, 35L);
+        DenseMatrix left = matrixOne.subMatrix(10, 5, 50, 40).transpose();
+        DenseMatrix right = matrixTwo.subMatrix(7, 3, 50, 30);
+
+        assertEquals(0, maxAbsoluteDifference(naiveMultiply(left, right), left.multiply(right)), 0.000005);
+        DenseMatrix block = matrixTwo.subMatrix(2, 1, 40, 50);
+        assertEquals(left.copy().add(block.copy()), left.add(block));
+    }
+
+    @Test
+    public void doesTransposeCopyMatchTransposeView() {
+        DenseMatrix matrix = randomMatrix(130, 75, DenseMatrix.Layout.COLUMN_MAJOR, 36L);
+        DenseMatrix copy = matrix.transposeCopy();
+
+        assertEquals(matrix.transpose(), copy);
+        assertEquals(DenseMatrix.Layout.COLUMN_MAJOR, copy.getLayout());
+        assertEquals(matrix.subMatrix(3, 4, 20, 30).transpose(), matrix.subMatrix(3, 4, 20, 30).transposeCopy());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesSubMatrixThrowExceptionOutsideMatrix() {
+        DenseMatrix matrix = new DenseMatrix(4, 4);
+
+        matrix.subMatrix(2, 2, 3, 1);
+    }
+
+    @Test
+    public void doesMultiplySparseMatchDenseProduct() {
+        DenseMatrix matrixOne = randomMatrix(6, 13, DenseMatrix.Layout.COLUMN_MAJOR, 86L);
+        for (SparseMatrix.DiagonalMode mode : SparseMatrix.DiagonalMode.values()) {
+            SparseMatrix matrixTwo = CompressedSparseMatrixTest.randomSparseMatrix(13, 9, 0.2, 87L, mode);
+
+            DenseMatrix actual = matrixOne.multiply((Matrix) matrixTwo);
+
+            assertTrue(maxAbsoluteDifference(naiveMultiply(matrixOne, matrixTwo.toDense()), actual) < 1e-9);
+        }
+    }
+
+    @Test
+    public void doesAddSparseMatchDenseSum() {
+        DenseMatrix matrixOne = randomMatrix(8, 5, DenseMatrix.Layout.ROW_MAJOR, 88L);
+        SparseMatrix matrixTwo = CompressedSparseMatrixTest.randomSparseMatrix(8, 5, 0.3, 89L);
+
+        DenseMatrix actual = matrixOne.add((Matrix) matrixTwo);
+
+        assertEquals(matrixOne.add(matrixTwo.toDense()), actual);
+        assertEquals(actual, matrixTwo.add((Matrix) matrixOne));
+    }
+
+    static DenseMatrix randomMatrix(int rows, int columns, DenseMatrix.Layout layout, long seed) {
+        Random random = new Random(seed);
+        DenseMatrix matrix = new DenseMatrix(rows, columns, layout);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                matrix.set(i, j, random.nextDouble() * 2 - 1);
+            }
+        }
+        return matrix;
+    }
+
+    private static DenseMatrix naiveMultiply(DenseMatrix matrixOne, DenseMatrix matrixTwo) {
+        DenseMatrix result = new DenseMatrix(matrixOne.numOfRows(), matrixTwo.numOfColumns());
+        for (int i = 0; i < matrixOne.numOfRows(); i++) {
+            for (int j = 0; j < matrixTwo.numOfColumns(); j++) {
+                double sum = 0;
+                for (int k = 0; k < matrixOne.numOfColumns(); k++) {
+                    sum += matrixOne.get(i, k) * matrixTwo.get(k, j);
+                }
+                result.set(i, j, sum);
+            }
+        }
+        return result;
+    }
+
+    private static double maxAbsoluteDifference(DenseMatrix matrixOne, DenseMatrix matrixTwo) {
+        double max = 0;
+        for (int i = 0; i < matrixOne.numOfRows(); i++) {
+            for (int j = 0; j < matrixOne.numOfColumns(); j++) {
+                max = Math.max(max, Math.abs(matrixOne.get(i, j) - matrixTwo.get(i, j)));
+            }
+        }
+        return max;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IterativeSolverTest {
+
+    @Test
+    public void doesConjugateGradientSolvePoissonWithEachPreconditioner() {
+        CompressedSparseMatrix matrix = poisson(20, 0);
+        double[] b = rightHandSide(400);
+        int[] iterations = new int[3];
+        Preconditioner[] preconditioners = {Preconditioner.NONE, Preconditioner.jacobi(matrix),
+                Preconditioner.incompleteLU(matrix)};
+        for (int k = 0; k < preconditioners.length; k++) {
+            IterativeSolver solver = new IterativeSolver(matrix, IterativeSolver.Method.CONJUGATE_GRADIENT)
+                    .preconditioner(preconditioners[k])
+                    .tolerance(1e-10);
+            double[] x = new double[400];
+
+            assertTrue(solver.solve(b, x));
+            assertArrayEquals(b, matrix.multiply(x, new double[400]), 0.000005);
+            assertTrue(solver.getResidual() <= 1e-10);
+            iterations[k] = solver.getIterations();
+        }
+        assertTrue(iterations[2] < iterations[0]);
+    }
+
+    @Test
+    public void doesBicgstabSolveNonSymmetricSystem() {
+        CompressedSparseMatrix matrix = poisson(15, 0.4);
+        double[] b = rightHandSide(225);
+        for (Preconditioner preconditioner : new Preconditioner[]{Preconditioner.NONE,
+                Preconditioner.jacobi(matrix), Preconditioner.incompleteLU(matrix)}) {
+            IterativeSolver solver = new IterativeSolver(matrix.toSparseMatrix(), IterativeSolver.Method.BICGSTAB)
+                    .preconditioner(preconditioner);
+            double[] x = new double[225];
+
+            assertTrue(solver.solve(b, x));
+            assertArrayEquals(b, matrix.multiply(x, new double[225]), 0.00001);
+        }
+    }
+
+    @Test
+    public void doesIncompleteLUSolveTridiagonalSystemExactly() {
+        SparseMatrixBuilder builder = new SparseMatrixBuilder(50, 50).diagonalMode(SparseMatrix.DiagonalMode.GENERAL);
+        for (int i = 0; i < 50; i++) {
+            builder.add(i, i, 4);
+            if (i > 0) {
+                builder.add(i, i - 1, -1.5);
+            }
+            if (i < 49) {
+                builder.add(i, i + 1, -0.5);
+            }
+        }
+        CompressedSparseMatrix matrix = builder.build();
+        double[] b = rightHandSide(50);
+        IterativeSolver solver = new IterativeSolver(matrix, IterativeSolver.Method.BICGSTAB)
+                .preconditioner(Preconditioner.incompleteLU(matrix));
+
+        assertTrue(solver.solve(b, new double[50]));
+        assertEquals(1, solver.getIterations());
+    }
+
+    @Test
+    public void doesResidualListenerSeeEveryIteration() {
+        CompressedSparseMatrix matrix = poisson(10, 0);
+        List<Double> residuals = new ArrayList<>();
+        IterativeSolver solver = new IterativeSolver(matrix, IterativeSolver.Method.CONJUGATE_GRADIENT)
+                .residualListener((iteration, residual) -> {
+                    assertEquals(residuals.size(), iteration);
+                    residuals.add(residual);
+                });
+
+        assertTrue(solver.solve(rightHandSide(100), new double[100]));
+        assertEquals(solver.getIterations() + 1, residuals.size());
+        assertEquals(solver.getResidual(), residuals.get(residuals.size() - 1), 0);
+    }
+
+    @Test
+    public void doesSolveStopAtMaxIterations() {
+        IterativeSolver solver = new IterativeSolver(poisson(20, 0), IterativeSolver.Method.CONJUGATE_GRADIENT)
+                .maxIterations(3);
+
+        assertFalse(solver.solve(rightHandSide(400), new double[400]));
+        assertEquals(3, solver.getIterations());
+    }
+
+    @Test
+    public void doesSolveReturnZeroForZeroRightHandSide() {
+        double[] x = rightHandSide(25);
+        IterativeSolver solver = new IterativeSolver(poisson(5, 0), IterativeSolver.Method.BICGSTAB);
+
+        assertTrue(solver.solve(new double[25], x));
+        assertArrayEquals(new double[25], x, 0);
+        assertEquals(0, solver.getIterations());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesConstructorThrowExceptionWhenNotSquare() {
+        new IterativeSolver(new SparseMatrix(3, 4), IterativeSolver.Method.CONJUGATE_GRADIENT);
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void doesJacobiThrowExceptionWithZeroDiagonal() {
+        Preconditioner.jacobi(new SparseMatrix(3, 3, SparseMatrix.DiagonalMode.GENERAL).compress());
+    }
+
+    /**
+     * Returns the five-point finite difference Laplacian on a {@code side x side} grid, with {@code convection} added
+     * to the east neighbour and taken from the west one so the matrix is not symmetric unless it is zero.
+     */
+    private static CompressedSparseMatrix poisson(int side, double convection) {
+        int n = side * side;
+        SparseMatrixBuilder builder = new SparseMatrixBuilder(n, n).diagonalMode(SparseMatrix.DiagonalMode.GENERAL);
+        for (int i = 0; i < side; i++) {
+            for (int j = 0; j < side; j++) {
+                int row = i * side + j;
+                builder.add(row, row, 4);
+                if (i > 0) {
+                    builder.add(row, row - side, -1);
+                }
+                if (i < side - 1) {
+                    builder.add(row, row + side, -1);
+                }
+                if (j > 0) {
+                    builder.add(row, row - 1, -1 - convection);
+                }
+                if (j < side - 1) {
+                    builder.add(row, row + 1, -1 + convection);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static double[] rightHandSide(int n) {
+        double[] b = new double[n];
+        for (int i = 0; i < n; i++) {
+            b[i] = Math.sin(i + 1);
+        }
+        return b;
+    }
+
+}
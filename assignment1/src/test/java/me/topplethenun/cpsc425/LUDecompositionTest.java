@@ -0,0 +1,135 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LUDecompositionTest {
+
+    @Test
+    public void doesLowerTimesUpperEqualPermutedMatrix() {
+        DenseMatrix matrix = DenseMatrixTest.randomMatrix(70, 70, DenseMatrix.Layout.COLUMN_MAJOR, 101L);
+        LUDecomposition lu = new LUDecomposition(matrix, 16, ForkJoinPool.commonPool());
+
+        DenseMatrix lower = lu.getLower();
+        DenseMatrix product = lower.multiply(lu.getUpper());
+        int[] pivots = lu.getPivots();
+
+        assertFalse(lu.isSingular());
+        for (int i = 0; i < 70; i++) {
+            for (int j = 0; j < 70; j++) {
+                assertEquals(matrix.get(pivots[i], j), product.get(i, j), 0.000005);
+                assertTrue(Math.abs(lower.get(i, j)) <= 1);
+            }
+        }
+    }
+
+    @Test
+    public void doesSolveMatchRightHandSide() {
+        DenseMatrix matrix = DenseMatrixTest.randomMatrix(300, 300, DenseMatrix.Layout.ROW_MAJOR, 102L);
+        double[] b = new double[300];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = Math.cos(i);
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            LUDecomposition lu = new LUDecomposition(matrix, 16, pool);
+
+            double[] x = lu.solve(b);
+
+            assertArrayEquals(b, matrix.multiply(x, new double[300]), 0.000005);
+            assertArrayEquals(x, matrix.lu().solve(b), 0.000005);
+            assertArrayEquals(x, lu.solve(b.clone(), b.clone()), 0.000005);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void doesSolveMatrixMatchSolveVector() {
+        DenseMatrix matrix = DenseMatrixTest.randomMatrix(40, 40, DenseMatrix.Layout.ROW_MAJOR, 103L);
+        DenseMatrix b = DenseMatrixTest.randomMatrix(40, 3, DenseMatrix.Layout.COLUMN_MAJOR, 104L);
+        LUDecomposition lu = matrix.lu();
+
+        DenseMatrix x = lu.solve(b);
+
+        for (int j = 0; j < 3; j++) {
+            double[] column = new double[40];
+            for (int i = 0; i < 40; i++) {
+                column[i] = b.get(i, j);
+            }
+            double[] expected = lu.solve(column);
+            for (int i = 0; i < 40; i++) {
+                assertEquals(expected[i], x.get(i, j), 0.000005);
+            }
+        }
+    }
+
+    @Test
+    public void doesInverseTimesMatrixGiveIdentity() {
+        DenseMatrix matrix = DenseMatrixTest.randomMatrix(90, 90, DenseMatrix.Layout.ROW_MAJOR, 105L);
+
+        DenseMatrix product = matrix.multiply(matrix.inverse());
+
+        for (int i = 0; i < 90; i++) {
+            for (int j = 0; j < 90; j++) {
+                assertEquals(i == j ? 1 : 0, product.get(i, j), 0.000005);
+            }
+        }
+    }
+
+    @Test
+    public void doesDeterminantMatchKnownValue() {
+        DenseMatrix matrix = DenseMatrix.wrap(3, 3, DenseMatrix.Layout.ROW_MAJOR, new double[]{
+                0, 2, 1,
+                3, 1, 4,
+                2, 5, 6});
+
+        assertEquals(-7, matrix.determinant(), 0.000005);
+        assertEquals(-1 / 7D, matrix.inverse().determinant(), 0.000005);
+    }
+
+    @Test
+    public void doesSingularMatrixHaveZeroDeterminant() {
+        DenseMatrix matrix = DenseMatrix.wrap(3, 3, DenseMatrix.Layout.ROW_MAJOR, new double[]{
+                1, 2, 3,
+                2, 4, 6,
+                1, 0, 1});
+
+        LUDecomposition lu = matrix.lu();
+
+        assertTrue(lu.isSingular());
+        assertEquals(0, lu.determinant(), 0.000005);
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void doesSolveThrowExceptionWhenSingular() {
+        new DenseMatrix(4, 4).lu().solve(new double[4]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesConstructorThrowExceptionWhenNotSquare() {
+        new DenseMatrix(4, 3).lu();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesSolveThrowExceptionWithWrongLength() {
+        DenseMatrixTest.randomMatrix(4, 4, DenseMatrix.Layout.ROW_MAJOR, 106L).lu().solve(new double[3]);
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class MappedSparseMatrixTest {
+
+    @Test
+    public void doesMappedMatrixMatchWrittenMatrix() throws IOException {
+        SparseMatrix source = CompressedSparseMatrixTest.randomSparseMatrix(50, 35, 0.15, 81L);
+        Path path = Files.createTempFile("sparse", ".smat");
+        try {
+            for (CompressedSparseMatrix.Orientation orientation : CompressedSparseMatrix.Orientation.values()) {
+                CompressedSparseMatrix matrix = source.compress(orientation);
+                matrix.write(path);
+
+                try (MappedSparseMatrix mapped = MappedSparseMatrix.open(path)) {
+                    assertEquals(50, mapped.numOfRows());
+                    assertEquals(35, mapped.numOfColumns());
+                    assertEquals(orientation, mapped.getOrientation());
+                    assertEquals(matrix.numOfNonZeros(), mapped.numOfNonZeros());
+                    for (int i = 0; i < 50; i++) {
+                        for (int j = 0; j < 35; j++) {
+                            assertEquals(matrix.get(i, j), mapped.get(i, j), 0.000005);
+                        }
+                    }
+                    assertEquals(matrix, mapped.load());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void doesMultiplyVectorMatchHeapMatrix() throws IOException {
+        CompressedSparseMatrix matrix = CompressedSparseMatrixTest.randomSparseMatrix(40, 60, 0.1, 82L)
+                .compress(CompressedSparseMatrix.Orientation.COLUMN);
+        double[] x = new double[60];
+        for (int j = 0; j < x.length; j++) {
+            x[j] = Math.cos(j);
+        }
+        Path path = Files.createTempFile("sparse", ".smat");
+        try {
+            matrix.write(path);
+
+            try (MappedSparseMatrix mapped = MappedSparseMatrix.open(path)) {
+                assertArrayEquals(matrix.multiply(x, new double[40]), mapped.multiply(x, new double[40]), 0.000005);
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void doesOpenThrowExceptionForDenseMatrixFile() throws IOException {
+        Path path = Files.createTempFile("sparse", ".smat");
+        try {
+            new DenseMatrix(3, 3).write(path);
+            MappedSparseMatrix.open(path);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void doesMappedMatrixReadSeparateDiagonal() throws IOException {
+        CompressedSparseMatrix matrix = CompressedSparseMatrixTest.randomSparseMatrix(30, 20, 0.1, 83L,
+                SparseMatrix.DiagonalMode.SEPARATE).compress();
+        double[] x = new double[20];
+        for (int j = 0; j < x.length; j++) {
+            x[j] = j % 3;
+        }
+        Path path = Files.createTempFile("sparse", ".smat");
+        try {
+            matrix.write(path);
+
+            assertEquals(matrix, CompressedSparseMatrix.read(path));
+            try (MappedSparseMatrix mapped = MappedSparseMatrix.open(path)) {
+                assertEquals(SparseMatrix.DiagonalMode.SEPARATE, mapped.getDiagonalMode());
+                assertEquals(21, mapped.get(7, 7), 0.000005);
+                assertArrayEquals(matrix.multiply(x, new double[30]), mapped.multiply(x, new double[30]), 0.000005);
+                assertArrayEquals(matrix.diagonal, mapped.load().diagonal, 0);
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
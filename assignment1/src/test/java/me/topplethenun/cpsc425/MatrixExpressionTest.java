@@ -0,0 +1,102 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MatrixExpressionTest {
+
+    @Test
+    public void doesFusedSumMatchChainedAdds() {
+        DenseMatrix a = DenseMatrixTest.randomMatrix(12, 9, DenseMatrix.Layout.ROW_MAJOR, 111L);
+        DenseMatrix b = DenseMatrixTest.randomMatrix(9, 12, DenseMatrix.Layout.COLUMN_MAJOR, 112L);
+        SparseMatrix c = CompressedSparseMatrixTest.randomSparseMatrix(12, 9, 0.2, 113L,
+                SparseMatrix.DiagonalMode.SEPARATE);
+
+        Matrix actual = MatrixExpression.of(a).add(MatrixExpression.of(b).transpose().scale(2)).add(c).scale(-0.5)
+                .evaluate();
+
+        assertTrue(actual instanceof DenseMatrix);
+        for (int i = 0; i < 12; i++) {
+            for (int j = 0; j < 9; j++) {
+                double expected = -0.5 * (a.get(i, j) + 2 * b.get(j, i) + c.get(i, j));
+                assertEquals(expected, actual.get(i, j), 0.000005);
+            }
+        }
+    }
+
+    @Test
+    public void doesSparseSumStaySparse() {
+        SparseMatrix a = CompressedSparseMatrixTest.randomSparseMatrix(10, 10, 0.2, 114L);
+        CompressedSparseMatrix b = CompressedSparseMatrixTest.randomSparseMatrix(10, 10, 0.2, 115L,
+                SparseMatrix.DiagonalMode.GENERAL).compress();
+
+        Matrix actual = MatrixExpression.of(a).scale(3).add(MatrixExpression.of(b).transpose()).evaluate();
+
+        assertTrue(actual instanceof CompressedSparseMatrix);
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                assertEquals(3 * a.get(i, j) + b.get(j, i), actual.get(i, j), 0.000005);
+            }
+        }
+    }
+
+    @Test
+    public void doesProductMatchLeftToRightProduct() {
+        DenseMatrix a = DenseMatrixTest.randomMatrix(30, 4, DenseMatrix.Layout.ROW_MAJOR, 116L);
+        SparseMatrix b = CompressedSparseMatrixTest.randomSparseMatrix(4, 30, 0.3, 117L);
+        DenseMatrix c = DenseMatrixTest.randomMatrix(30, 5, DenseMatrix.Layout.COLUMN_MAJOR, 118L);
+        DenseMatrix d = DenseMatrixTest.randomMatrix(12, 30, DenseMatrix.Layout.ROW_MAJOR, 119L);
+
+        Matrix actual = MatrixExpression.of(a).add(d.transpose().multiply(d).subMatrix(0, 0, 30, 4))
+                .multiply(b).scale(2).multiply(c).transpose().evaluate();
+
+        DenseMatrix expected = a.add(d.transpose().multiply(d).subMatrix(0, 0, 30, 4)).multiply(b.toDense())
+                .multiply(c).transpose();
+        assertEquals(5, actual.numOfRows());
+        assertEquals(30, actual.numOfColumns());
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 30; j++) {
+                assertEquals(2 * expected.get(i, j), actual.get(i, j), 0.000005);
+            }
+        }
+    }
+
+    @Test
+    public void doesChainOrderMinimizeMultiplyAdds() {
+        int[][] split = MatrixExpression.splits(new long[]{10, 100, 5, 50});
+
+        assertEquals(1, split[0][2]);
+        assertEquals(0, MatrixExpression.splits(new long[]{50, 5, 100, 10})[0][2]);
+    }
+
+    @Test
+    public void doesEvaluateReturnOperand() {
+        DenseMatrix matrix = new DenseMatrix(3, 3);
+
+        assertTrue(MatrixExpression.of(matrix).evaluate() == matrix);
+        assertTrue(MatrixExpression.of(matrix).transpose().transpose().evaluate() == matrix);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesAddThrowExceptionWhenNotSameSize() {
+        MatrixExpression.of(new DenseMatrix(3, 4)).add(new DenseMatrix(4, 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesMultiplyThrowExceptionWhenInvalidMults() {
+        MatrixExpression.of(new DenseMatrix(3, 4)).multiply(MatrixExpression.of(new DenseMatrix(3, 4)));
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class MatrixMarketTest {
+
+    @Test
+    public void doesReadReturnWrittenMatrix() throws IOException {
+        SparseMatrix matrix = CompressedSparseMatrixTest.randomSparseMatrix(60, 45, 0.1, 71L);
+        matrix.set(3, 4, 1e-300);
+        matrix.set(5, 2, -123456789.123456789);
+        Path path = Files.createTempFile("matrix", ".mtx");
+        try {
+            MatrixMarket.write(matrix, path);
+
+            assertEquals(matrix.compress(), MatrixMarket.read(path));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void doesReadParseNumbersExactly() throws IOException {
+        Random random = new Random(72L);
+        String[] numbers = new String[200];
+        StringBuilder file = new StringBuilder("%%MatrixMarket matrix coordinate real general\n% comment\n\n");
+        file.append("1 200 200\n");
+        for (int j = 0; j < numbers.length; j++) {
+            switch (j % 4) {
+                case 0:
+                    numbers[j] = Double.toString(random.nextDouble() * 1000 - 500);
+                    break;
+                case 1:
+                    numbers[j] = String.format("%.6e", random.nextGaussian());
+                    break;
+                case 2:
+                    numbers[j] = Integer.toString(random.nextInt(2000) - 1000);
+                    break;
+                default:
+                    numbers[j] = "+" + random.nextInt(100) + "." + random.nextInt(1000) + "E"
+                            + (random.nextInt(80) - 40);
+            }
+            file.append("1 ").append(j + 1).append("   ").append(numbers[j]).append("\r\n");
+        }
+        Path path = Files.createTempFile("matrix", ".mtx");
+        try {
+            Files.write(path, file.toString().getBytes(StandardCharsets.US_ASCII));
+
+            CompressedSparseMatrix matrix = MatrixMarket.read(path);
+
+            for (int j = 1; j < numbers.length; j++) {
+                assertEquals(Double.parseDouble(numbers[j]), matrix.get(0, j), 0);
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void doesReadExpandSymmetricPatternFile() throws IOException {
+        Path path = Files.createTempFile("matrix", ".mtx");
+        try {
+            Files.write(path, ("%%MatrixMarket matrix coordinate pattern symmetric\n3 3 3\n2 1\n3 1\n3 3\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+
+            CompressedSparseMatrix matrix = MatrixMarket.read(path);
+
+            assertEquals(4, matrix.numOfNonZeros());
+            assertEquals(1, matrix.get(0, 1), 0.000005);
+            assertEquals(1, matrix.get(2, 0), 0.000005);
+            assertEquals(0, matrix.get(1, 2), 0.000005);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void doesReadThrowExceptionForArrayFile() throws IOException {
+        Path path = Files.createTempFile("matrix", ".mtx");
+        try {
+            Files.write(path, "%%MatrixMarket matrix array real general\n2 2\n1\n2\n3\n4\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            MatrixMarket.read(path);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void doesReadThrowExceptionForEntryOutsideMatrix() throws IOException {
+        Path path = Files.createTempFile("matrix", ".mtx");
+        try {
+            Files.write(path, "%%MatrixMarket matrix coordinate real general\n2 2 1\n3 1 1.5\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            MatrixMarket.read(path);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void doesReadKeepDiagonalOfGivenMode() throws IOException {
+        SparseMatrix matrix = CompressedSparseMatrixTest.randomSparseMatrix(25, 25, 0.1, 72L,
+                SparseMatrix.DiagonalMode.SEPARATE);
+        Path path = Files.createTempFile("matrix", ".mtx");
+        try {
+            MatrixMarket.write(matrix, path);
+
+            CompressedSparseMatrix general = MatrixMarket.read(path, SparseMatrix.DiagonalMode.GENERAL);
+            assertEquals(SparseMatrix.DiagonalMode.GENERAL, general.getDiagonalMode());
+            assertEquals(matrix.compress(), general);
+            assertEquals(1, MatrixMarket.read(path).get(4, 4), 0.000005);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class OffHeapDenseMatrixTest {
+
+    @Test
+    public void doesAllocateSetNumberOfRowsAndColumns() {
+        OffHeapDenseMatrix matrix = OffHeapDenseMatrix.allocate(5, 7);
+
+        assertEquals(5, matrix.numOfRows());
+        assertEquals(7, matrix.numOfColumns());
+        assertFalse(matrix.hasArray());
+        assertFalse(matrix.isMapped());
+        assertEquals(0, matrix.get(4, 6), 0.000005);
+    }
+
+    @Test
+    public void doesSetChangeValue() {
+        OffHeapDenseMatrix matrix = OffHeapDenseMatrix.allocate(3, 3, DenseMatrix.Layout.COLUMN_MAJOR);
+
+        matrix.set(2, 1, 5);
+
+        assertEquals(5, matrix.get(2, 1), 0.000005);
+        assertEquals(0, matrix.get(1, 2), 0.000005);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesGetThrowExceptionWithTooLargeRow() {
+        OffHeapDenseMatrix matrix = OffHeapDenseMatrix.allocate(3, 3);
+
+        matrix.get(3, 0);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void doesGetElementsThrowException() {
+        OffHeapDenseMatrix.allocate(3, 3).getElements();
+    }
+
+    @Test
+    public void doesAddWorkAcrossHeapAndOffHeap() {
+        DenseMatrix heap = new DenseMatrix(4, 3);
+        OffHeapDenseMatrix offHeap = OffHeapDenseMatrix.allocate(4, 3);
+        DenseMatrix expected = new DenseMatrix(4, 3);
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 3; j++) {
+                heap.set(i, j, i);
+                offHeap.set(i, j, j);
+                expected.set(i, j, i + j);
+            }
+        }
+
+        assertEquals(expected, heap.add(offHeap));
+        assertEquals(expected, offHeap.add(heap));
+        assertEquals(expected, offHeap.addInPlace(heap));
+    }
+
+    @Test
+    public void doesMultiplyWorkAcrossHeapAndOffHeap() {
+        DenseMatrix heap = new DenseMatrix(6, 5);
+        OffHeapDenseMatrix offHeap = OffHeapDenseMatrix.allocate(5, 4);
+        for (int i = 0; i < 6; i++) {
+            for (int j = 0; j < 5; j++) {
+                heap.set(i, j, i - j);
+            }
+        }
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 4; j++) {
+                offHeap.set(i, j, i * j + 1);
+            }
+        }
+        DenseMatrix heapCopy = new DenseMatrix(5, 4);
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 4; j++) {
+                heapCopy.set(i, j, offHeap.get(i, j));
+            }
+        }
+        DenseMatrix expected = heap.multiply(heapCopy);
+
+        assertEquals(expected, heap.multiply(offHeap));
+
+        OffHeapDenseMatrix out = OffHeapDenseMatrix.allocate(6, 4);
+        DenseMatrix.multiplyInto(heap, offHeap, out);
+        assertEquals(expected, out);
+    }
+
+    @Test
+    public void doesViewShareOffHeapStorage() {
+        OffHeapDenseMatrix matrix = OffHeapDenseMatrix.allocate(5, 6);
+        DenseMatrix view = matrix.subMatrix(1, 2, 3, 3).transpose();
+
+        view.set(2, 0, 8);
+
+        assertEquals(8, matrix.get(1, 4), 0.000005);
+        assertEquals(matrix.transposeCopy(), matrix.transpose());
+    }
+
+    @Test
+    public void doesMappedMatrixPersistValues() throws IOException {
+        Path path = Files.createTempFile("offheap", ".dmat");
+        try {
+            try (OffHeapDenseMatrix matrix = OffHeapDenseMatrix.create(path, 3, 4, DenseMatrix.Layout.COLUMN_MAJOR)) {
+                assertTrue(matrix.isMapped());
+                matrix.set(1, 2, 7);
+                matrix.set(2, 3, -1);
+                matrix.force();
+            }
+
+            try (OffHeapDenseMatrix matrix = OffHeapDenseMatrix.open(path, true)) {
+                assertEquals(3, matrix.numOfRows());
+                assertEquals(4, matrix.numOfColumns());
+                assertEquals(DenseMatrix.Layout.COLUMN_MAJOR, matrix.getLayout());
+                assertEquals(7, matrix.get(1, 2), 0.000005);
+                assertEquals(-1, matrix.get(2, 3), 0.000005);
+                assertEquals(0, matrix.get(0, 0), 0.000005);
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void doesOpenThrowExceptionForNonMatrixFile() throws IOException {
+        Path path = Files.createTempFile("offheap", ".dmat");
+        try {
+            Files.write(path, new byte[64]);
+            OffHeapDenseMatrix.open(path);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProductCacheTest {
+
+    @Test
+    public void doesMultiplyReturnCachedProductUntilOperandChanges() {
+        DenseMatrix a = DenseMatrixTest.randomMatrix(8, 6, DenseMatrix.Layout.ROW_MAJOR, 121L);
+        DenseMatrix b = DenseMatrixTest.randomMatrix(6, 4, DenseMatrix.Layout.ROW_MAJOR, 122L);
+        ProductCache cache = new ProductCache(1000);
+
+        DenseMatrix first = cache.multiply(a, b);
+        DenseMatrix second = cache.multiply(a, b);
+        b.set(2, 3, 7);
+        DenseMatrix third = cache.multiply(a, b);
+
+        assertFalse(first == second);
+        assertEquals(first, second);
+        assertEquals(a.multiply(b), third);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.size());
+        assertEquals(32, cache.getWeight());
+    }
+
+    @Test
+    public void doesChangeThroughViewInvalidateProduct() {
+        DenseMatrix a = DenseMatrixTest.randomMatrix(5, 5, DenseMatrix.Layout.COLUMN_MAJOR, 123L);
+        ProductCache cache = new ProductCache(1000);
+        long version = a.getVersion();
+
+        DenseMatrix first = cache.multiply(a, a);
+        a.transpose().subMatrix(1, 1, 2, 2).set(0, 1, 3);
+        DenseMatrix second = cache.multiply(a, a);
+
+        assertTrue(a.getVersion() > version);
+        assertFalse(first == second);
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void doesChangingReturnedProductLeaveCacheUnchanged() {
+        DenseMatrix a = DenseMatrixTest.randomMatrix(4, 4, DenseMatrix.Layout.ROW_MAJOR, 124L);
+        ProductCache cache = new ProductCache(1000);
+
+        cache.multiply(a, a).scaleInPlace(2);
+        cache.multiply(a, a).set(1, 2, 5);
+
+        assertEquals(a.multiply(a), cache.multiply(a, a));
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void doesCacheEvictLeastRecentlyUsedProduct() {
+        DenseMatrix[] matrices = new DenseMatrix[3];
+        for (int m = 0; m < matrices.length; m++) {
+            matrices[m] = DenseMatrixTest.randomMatrix(4, 4, DenseMatrix.Layout.ROW_MAJOR, 125L + m);
+        }
+        ProductCache cache = new ProductCache(40);
+
+        DenseMatrix zero = cache.multiply(matrices[0], matrices[0]);
+        cache.multiply(matrices[1], matrices[1]);
+        cache.multiply(matrices[0], matrices[0]);
+        cache.multiply(matrices[2], matrices[2]);
+
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+        assertEquals(zero, cache.multiply(matrices[0], matrices[0]));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(32, cache.getWeight());
+    }
+
+    @Test
+    public void doesCacheSkipProductLargerThanCapacity() {
+        DenseMatrix a = new DenseMatrix(10, 10);
+        ProductCache cache = new ProductCache(50);
+
+        cache.multiply(a, a);
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void doesSetChangeVersion() {
+        DenseMatrix a = new DenseMatrix(2, 2);
+        long version = a.getVersion();
+
+        a.set(0, 0, 1);
+        a.addInPlace(a.copy());
+
+        assertEquals(version + 2, a.getVersion());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesConstructorThrowExceptionWithNoCapacity() {
+        new ProductCache(0);
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SparseMatrixBuilderTest {
+
+    @Test
+    public void doesBuildMatchSetValues() {
+        SparseMatrix expected = CompressedSparseMatrixTest.randomSparseMatrix(30, 40, 0.1, 61L);
+        SparseMatrixBuilder builder = new SparseMatrixBuilder(30, 40);
+        for (int i = 29; i >= 0; i--) {
+            for (int j = 39; j >= 0; j--) {
+                if (i != j && expected.get(i, j) != 0) {
+                    builder.add(i, j, expected.get(i, j));
+                }
+            }
+        }
+
+        assertEquals(expected.compress(), builder.build());
+        assertEquals(expected, builder.buildSparseMatrix());
+    }
+
+    @Test
+    public void doesBuildSumDuplicatesAndLeaveOutDiagonalAndZeros() {
+        SparseMatrixBuilder builder = new SparseMatrixBuilder(3, 3);
+        builder.addAll(new int[]{2, 0, 2, 1, 0, 1}, new int[]{1, 2, 1, 1, 1, 0}, new double[]{1, 4, 2, 9, 3, -3});
+        builder.add(0, 1, -3);
+
+        CompressedSparseMatrix matrix = builder.build();
+
+        assertArrayEquals(new int[]{0, 1, 2, 3}, matrix.pointers);
+        assertArrayEquals(new int[]{2, 0, 1}, matrix.indices);
+        assertArrayEquals(new double[]{4, -3, 3}, matrix.values, 0.000005);
+        assertEquals(7, builder.size());
+    }
+
+    @Test
+    public void doesCombineWithKeepValuesInOrderAdded() {
+        SparseMatrixBuilder builder = new SparseMatrixBuilder(2, 2).combineWith((a, b) -> b);
+        builder.add(0, 1, 5).add(1, 0, 2).add(0, 1, 7).add(0, 1, 6);
+
+        CompressedSparseMatrix matrix = builder.build(CompressedSparseMatrix.Orientation.COLUMN);
+
+        assertEquals(6, matrix.get(0, 1), 0.000005);
+        assertEquals(2, matrix.get(1, 0), 0.000005);
+    }
+
+    @Test
+    public void doesBuildParallelMatchBuild() {
+        Random random = new Random(62L);
+        int size = 200000;
+        int[] rows = new int[size];
+        int[] columns = new int[size];
+        double[] values = new double[size];
+        for (int e = 0; e < size; e++) {
+            rows[e] = random.nextInt(5) == 0 ? 7 : random.nextInt(2000);
+            columns[e] = random.nextInt(1500);
+            values[e] = random.nextDouble();
+        }
+        SparseMatrixBuilder builder = new SparseMatrixBuilder(2000, 1500, size).addAll(rows, columns, values);
+
+        for (CompressedSparseMatrix.Orientation orientation : CompressedSparseMatrix.Orientation.values()) {
+            assertEquals(builder.build(orientation), builder.buildParallel(orientation, new ForkJoinPool(4)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesAddThrowExceptionWithTooLargeRow() {
+        new SparseMatrixBuilder(3, 3).add(3, 0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesAddAllThrowExceptionWhenArraysDiffer() {
+        new SparseMatrixBuilder(3, 3).addAll(new int[2], new int[2], new double[1]);
+    }
+
+    @Test
+    public void doesBuildKeepDiagonalAsDiagonalMode() {
+        SparseMatrixBuilder builder = new SparseMatrixBuilder(3, 3);
+        builder.add(1, 1, 2).add(0, 1, 4).add(1, 1, 3).add(2, 2, 5).add(2, 2, -5);
+
+        CompressedSparseMatrix unit = builder.build();
+        CompressedSparseMatrix general = builder.diagonalMode(SparseMatrix.DiagonalMode.GENERAL).build();
+        CompressedSparseMatrix separate = builder.diagonalMode(SparseMatrix.DiagonalMode.SEPARATE)
+                .build(CompressedSparseMatrix.Orientation.COLUMN);
+
+        assertEquals(1, unit.numOfNonZeros());
+        assertEquals(1, unit.get(1, 1), 0.000005);
+        assertArrayEquals(new int[]{1, 1}, general.indices);
+        assertArrayEquals(new double[]{4, 5}, general.values, 0.000005);
+        assertArrayEquals(new double[]{0, 5, 0}, separate.diagonal, 0.000005);
+        assertEquals(general, separate);
+    }
+}
@@ -12,10 +12,15 @@ package me.topplethenun.cpsc425;
 
 import org.junit.Test;
 
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class SparseMatrixTest {
 
@@ -430,4 +435,239 @@ public class SparseMatrixTest {
         assertEquals(matrixTwo.numOfColumns(), actual.numOfColumns());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void doesMultiplyMatchNaiveProduct() {
+        SparseMatrix matrixOne = CompressedSparseMatrixTest.randomSparseMatrix(30, 45, 0.1, 51L);
+        SparseMatrix matrixTwo = CompressedSparseMatrixTest.randomSparseMatrix(45, 20, 0.1, 52L);
+
+        SparseMatrix actual = matrixOne.multiply(matrixTwo);
+
+        for (int i = 0; i < 30; i++) {
+            for (int j = 0; j < 20; j++) {
+                double expected = 0;
+                for (int k = 0; k < 45; k++) {
+                    expected += matrixOne.get(i, k) * matrixTwo.get(k, j);
+                }
+                assertEquals(i == j ? 1 : expected, actual.get(i, j), 0.000005);
+            }
+        }
+    }
+
+    @Test
+    public void doesMultiplyNotStoreZeros() {
+        SparseMatrix matrixOne = new SparseMatrix(4, 4);
+        SparseMatrix matrixTwo = new SparseMatrix(4, 4);
+        matrixOne.set(0, 1, 2);
+        matrixTwo.set(1, 2, 3);
+        matrixTwo.set(0, 2, -6);
+
+        SparseMatrix expected = new SparseMatrix(4, 4);
+        expected.set(0, 1, 2);
+        expected.set(1, 2, 3);
+
+        assertEquals(expected, matrixOne.multiply(matrixTwo));
+        assertEquals(new SparseMatrix(4, 4), new SparseMatrix(4, 4).multiply(new SparseMatrix(4, 4)));
+    }
+
+    @Test
+    public void doesAddMatchElementWiseSum() {
+        SparseMatrix matrixOne = CompressedSparseMatrixTest.randomSparseMatrix(30, 40, 0.1, 53L);
+        SparseMatrix matrixTwo = CompressedSparseMatrixTest.randomSparseMatrix(30, 40, 0.1, 54L);
+
+        SparseMatrix actual = matrixOne.add(matrixTwo);
+
+        for (int i = 0; i < 30; i++) {
+            for (int j = 0; j < 40; j++) {
+                assertEquals(i == j ? 1 : matrixOne.get(i, j) + matrixTwo.get(i, j), actual.get(i, j), 0.000005);
+            }
+        }
+    }
+
+    @Test
+    public void doesAddNotStoreCancelledValues() {
+        SparseMatrix matrixOne = new SparseMatrix(3, 3);
+        SparseMatrix matrixTwo = new SparseMatrix(3, 3);
+        matrixOne.set(0, 1, 2);
+        matrixOne.set(2, 0, 4);
+        matrixTwo.set(0, 1, -2);
+
+        SparseMatrix expected = new SparseMatrix(3, 3);
+        expected.set(2, 0, 4);
+
+        assertEquals(expected, matrixOne.add(matrixTwo));
+    }
+
+    @Test
+    public void doesAxpyStoreResultsInMatrix() {
+        SparseMatrix matrixOne = CompressedSparseMatrixTest.randomSparseMatrix(20, 25, 0.2, 55L);
+        SparseMatrix matrixTwo = CompressedSparseMatrixTest.randomSparseMatrix(20, 25, 0.2, 56L);
+        SparseMatrix original = matrixOne.add(new SparseMatrix(20, 25));
+
+        SparseMatrix actual = matrixOne.axpy(-3, matrixTwo);
+
+        assertEquals(matrixOne, actual);
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < 25; j++) {
+                double expected = i == j ? 1 : original.get(i, j) - 3 * matrixTwo.get(i, j);
+                assertEquals(expected, actual.get(i, j), 0.000005);
+            }
+        }
+    }
+
+    @Test
+    public void doesAddInPlaceRemoveCancelledValues() {
+        SparseMatrix matrixOne = new SparseMatrix(3, 3);
+        SparseMatrix matrixTwo = new SparseMatrix(3, 3);
+        matrixOne.set(1, 2, 5);
+        matrixTwo.set(1, 2, -5);
+
+        matrixOne.addInPlace(matrixTwo);
+
+        assertEquals(new SparseMatrix(3, 3), matrixOne);
+    }
+
+    @Test
+    public void doesSetZeroRemoveValue() {
+        SparseMatrix matrix = new SparseMatrix(3, 3);
+        matrix.set(0, 2, 7);
+
+        matrix.set(0, 2, 0);
+
+        assertEquals(new SparseMatrix(3, 3), matrix);
+        assertEquals(0, matrix.compress().numOfNonZeros());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesAddInPlaceThrowExceptionWhenNotSameSize() {
+        new SparseMatrix(2, 2).addInPlace(new SparseMatrix(2, 3));
+    }
+
+    @Test
+    public void doesMultiplyVectorMatchElementWiseProduct() {
+        SparseMatrix matrix = CompressedSparseMatrixTest.randomSparseMatrix(30, 20, 0.2, 57L);
+        double[] x = new double[20];
+        for (int j = 0; j < x.length; j++) {
+            x[j] = j - 7.5;
+        }
+
+        double[] y = matrix.multiply(x, new double[30]);
+
+        for (int i = 0; i < 30; i++) {
+            double expected = 0;
+            for (int j = 0; j < 20; j++) {
+                expected += matrix.get(i, j) * x[j];
+            }
+            assertEquals(expected, y[i], 0.000005);
+        }
+    }
+
+    @Test
+    public void doesMultiplyParallelMatchSerialProductWithUnevenRows() {
+        Random random = new Random(58L);
+        int size = 3000;
+        SparseMatrix matrix = new SparseMatrix(size, size);
+        for (int i = 0; i < size; i++) {
+            int length = i % 500 == 0 ? size / 2 : 1 + random.nextInt(20);
+            for (int n = 0; n < length; n++) {
+                matrix.set(i, random.nextInt(size), random.nextDouble());
+            }
+        }
+        double[] x = new double[size];
+        for (int j = 0; j < size; j++) {
+            x[j] = random.nextDouble() * 2 - 1;
+        }
+
+        double[] expected = matrix.multiply(x, new double[size]);
+        double[] actual = matrix.multiplyParallel(x, new double[size], new ForkJoinPool(4));
+
+        assertArrayEquals(expected, actual, 0.000005);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesMultiplyVectorThrowExceptionWithWrongLength() {
+        new SparseMatrix(3, 2).multiply(new double[3], new double[3]);
+    }
+
+    @Test
+    public void doesSetStoreDiagonalUnlessUnit() {
+        for (SparseMatrix.DiagonalMode mode : SparseMatrix.DiagonalMode.values()) {
+            SparseMatrix matrix = new SparseMatrix(3, 4, mode);
+            matrix.set(1, 1, 5);
+            matrix.set(2, 1, 3);
+
+            assertEquals(mode, matrix.getDiagonalMode());
+            assertEquals(mode == SparseMatrix.DiagonalMode.UNIT ? 1 : 5, matrix.get(1, 1), 0.000005);
+            assertEquals(mode == SparseMatrix.DiagonalMode.UNIT ? 1 : 0, matrix.get(2, 2), 0.000005);
+            assertEquals(3, matrix.get(2, 1), 0.000005);
+            assertEquals(mode == SparseMatrix.DiagonalMode.UNIT ? 1 : 2, matrix.numOfNonZeros());
+        }
+    }
+
+    @Test
+    public void doesEqualAcrossDiagonalModes() {
+        SparseMatrix unit = new SparseMatrix(2, 2);
+        SparseMatrix general = new SparseMatrix(2, 2, SparseMatrix.DiagonalMode.GENERAL);
+        SparseMatrix separate = new SparseMatrix(2, 2, SparseMatrix.DiagonalMode.SEPARATE);
+        for (SparseMatrix matrix : new SparseMatrix[]{unit, general, separate}) {
+            matrix.set(0, 0, 1);
+            matrix.set(1, 1, 1);
+            matrix.set(0, 1, 4);
+        }
+
+        assertEquals(unit, general);
+        assertEquals(general, separate);
+        assertEquals(unit.hashCode(), separate.hashCode());
+        separate.set(1, 1, 2);
+        assertNotEquals(general, separate);
+    }
+
+    @Test
+    public void doesAxpyAddDiagonalUnlessUnit() {
+        SparseMatrix separate = CompressedSparseMatrixTest.randomSparseMatrix(10, 10, 0.3, 58L,
+                SparseMatrix.DiagonalMode.SEPARATE);
+        SparseMatrix general = CompressedSparseMatrixTest.randomSparseMatrix(10, 10, 0.3, 59L,
+                SparseMatrix.DiagonalMode.GENERAL);
+        SparseMatrix unit = CompressedSparseMatrixTest.randomSparseMatrix(10, 10, 0.3, 60L);
+        SparseMatrix expected = separate.compress().add(general.compress()).add(unit.compress()).toSparseMatrix();
+
+        general.axpy(1, separate).axpy(1, unit);
+        unit.axpy(1, separate);
+
+        assertEquals(expected, general);
+        assertEquals(23, general.get(3, 3), 0.000005);
+        assertEquals(1, unit.get(3, 3), 0.000005);
+    }
+
+    @Test
+    public void doesForEachNonZeroSkipRemovedValues() {
+        SparseMatrix matrix = new SparseMatrix(3, 4);
+        matrix.set(2, 3, 6);
+        matrix.set(0, 1, 2);
+        matrix.set(1, 0, 5);
+        matrix.set(1, 0, 0);
+        StringBuilder visited = new StringBuilder();
+
+        matrix.forEachNonZero((row, column, value) -> visited.append(row).append(column).append(value).append(' '));
+
+        assertEquals("012.0 236.0 ", visited.toString());
+        assertEquals(2, matrix.numOfNonZeros());
+        assertArrayEquals(new int[]{1, 0, 1}, matrix.numOfNonZerosPerRow());
+        assertEquals(0, matrix.numOfNonZeros(1));
+    }
+
+    @Test
+    public void doesMatrixOperationsPickResultType() {
+        Matrix sparse = CompressedSparseMatrixTest.randomSparseMatrix(6, 6, 0.3, 90L);
+        Matrix otherSparse = CompressedSparseMatrixTest.randomSparseMatrix(6, 6, 0.3, 91L).compress();
+        Matrix dense = sparse.toDense();
+
+        assertTrue(sparse.add(otherSparse) instanceof SparseMatrix);
+        assertTrue(sparse.multiply(otherSparse) instanceof SparseMatrix);
+        assertTrue(otherSparse.multiply(sparse) instanceof CompressedSparseMatrix);
+        assertTrue(sparse.add(dense) instanceof DenseMatrix);
+        assertTrue(dense.multiply(sparse) instanceof DenseMatrix);
+        assertEquals(dense.multiply(dense), sparse.multiply(dense));
+        assertEquals(SparseMatrix.fromDense((DenseMatrix) dense, 0), sparse);
+    }
+
+}
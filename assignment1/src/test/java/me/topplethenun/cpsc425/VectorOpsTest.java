@@ -0,0 +1,78 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class VectorOpsTest {
+
+    private final VectorOps ops = VectorOps.get();
+    private final VectorOps scalar = new VectorOps.Scalar();
+
+    @Test
+    public void doesAddMatchScalarAdd() {
+        double[] a = randomArray(37, 1L);
+        double[] b = randomArray(37, 2L);
+        double[] expected = new double[40];
+        double[] actual = new double[40];
+
+        scalar.add(a, 1, b, 2, expected, 3, 34);
+        ops.add(a, 1, b, 2, actual, 3, 34);
+
+        assertArrayEquals(expected, actual, 0.000005);
+    }
+
+    @Test
+    public void doesAxpyMatchScalarAxpy() {
+        double[] x = randomArray(53, 3L);
+        double[] expected = randomArray(53, 4L);
+        double[] actual = expected.clone();
+
+        scalar.axpy(-1.5, x, 2, expected, 1, 50);
+        ops.axpy(-1.5, x, 2, actual, 1, 50);
+
+        assertArrayEquals(expected, actual, 0.000005);
+    }
+
+    @Test
+    public void doesDotMatchScalarDot() {
+        double[] x = randomArray(71, 5L);
+        double[] y = randomArray(71, 6L);
+
+        assertEquals(scalar.dot(x, 0, y, 0, 71), ops.dot(x, 0, y, 0, 71), 0.000005);
+        assertEquals(scalar.dot(x, 3, y, 5, 61), ops.dot(x, 3, y, 5, 61), 0.000005);
+    }
+
+    @Test
+    public void doesAllCloseDetectDifferenceInEveryPosition() {
+        double[] a = randomArray(29, 7L);
+        for (int i = 0; i < a.length; i++) {
+            double[] b = a.clone();
+            assertTrue(ops.allClose(a, 0, b, 0, a.length, 0.00005));
+            b[i] += 0.0001;
+            assertFalse(ops.allClose(a, 0, b, 0, a.length, 0.00005));
+        }
+    }
+
+    private static double[] randomArray(int length, long seed) {
+        Random random = new Random(seed);
+        double[] result = new double[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = random.nextDouble() * 2 - 1;
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Throughput of the {@link DenseMatrix} kernels. The left-hand matrix has the given shape; {@link #add()} adds a
+ * matrix of the same shape and {@link #multiply()} multiplies by a {@code columns x size} matrix.
+ *
+ * @author Richard Harrah
+ */
+@State(Scope.Thread)
+public class DenseMatrixBenchmark {
+
+    /**
+     * Number of random positions read or written by one invocation of {@link #get()} or {@link #set()}.
+     */
+    static final int ACCESSES = 1024;
+
+    @Param({"64", "256", "512"})
+    int size;
+
+    @Param({"SQUARE", "TALL", "WIDE"})
+    MatrixShape shape;
+
+    @Param({"ROW_MAJOR", "COLUMN_MAJOR"})
+    DenseMatrix.Layout layout;
+
+    private DenseMatrix matrix;
+    private DenseMatrix sameShape;
+    private DenseMatrix right;
+    private double[] x;
+    private double[] y;
+    private int[] accessRows;
+    private int[] accessColumns;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(size);
+        int rows = shape.rows(size);
+        int columns = shape.columns(size);
+        matrix = randomMatrix(rows, columns, layout, random);
+        sameShape = randomMatrix(rows, columns, layout, random);
+        right = randomMatrix(columns, size, layout, random);
+        x = new double[columns];
+        y = new double[rows];
+        for (int j = 0; j < columns; j++) {
+            x[j] = random.nextDouble();
+        }
+        accessRows = new int[ACCESSES];
+        accessColumns = new int[ACCESSES];
+        for (int a = 0; a < ACCESSES; a++) {
+            accessRows[a] = random.nextInt(rows);
+            accessColumns[a] = random.nextInt(columns);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public double get() {
+        double sum = 0;
+        for (int a = 0; a < ACCESSES; a++) {
+            sum += matrix.get(accessRows[a], accessColumns[a]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public DenseMatrix set() {
+        for (int a = 0; a < ACCESSES; a++) {
+            matrix.set(accessRows[a], accessColumns[a], a);
+        }
+        return matrix;
+    }
+
+    @Benchmark
+    public DenseMatrix add() {
+        return matrix.add(sameShape);
+    }
+
+    @Benchmark
+    public DenseMatrix multiply() {
+        return matrix.multiply(right);
+    }
+
+    @Benchmark
+    public double[] multiplyVector() {
+        return matrix.multiply(x, y);
+    }
+
+    static DenseMatrix randomMatrix(int rows, int columns, DenseMatrix.Layout layout, Random random) {
+        DenseMatrix matrix = new DenseMatrix(rows, columns, layout);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                matrix.set(i, j, random.nextDouble() * 2 - 1);
+            }
+        }
+        return matrix;
+    }
+
+}
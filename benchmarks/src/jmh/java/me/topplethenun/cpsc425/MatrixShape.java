@@ -0,0 +1,59 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+/**
+ * The shape of the left-hand matrix in a benchmark, given as a multiple of the benchmark's size parameter.
+ *
+ * @author Richard Harrah
+ */
+public enum MatrixShape {
+    /**
+     * {@code size} rows and {@code size} columns.
+     */
+    SQUARE(1, 1),
+    /**
+     * Four times as many rows as columns.
+     */
+    TALL(4, 1),
+    /**
+     * Four times as many columns as rows.
+     */
+    WIDE(1, 4);
+
+    private final int rowFactor;
+    private final int columnFactor;
+
+    MatrixShape(int rowFactor, int columnFactor) {
+        this.rowFactor = rowFactor;
+        this.columnFactor = columnFactor;
+    }
+
+    /**
+     * Returns the number of rows of a matrix of this shape.
+     *
+     * @param size size parameter of the benchmark
+     * @return number of rows
+     */
+    public int rows(int size) {
+        return size * rowFactor;
+    }
+
+    /**
+     * Returns the number of columns of a matrix of this shape.
+     *
+     * @param size size parameter of the benchmark
+     * @return number of columns
+     */
+    public int columns(int size) {
+        return size * columnFactor;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * This file is part of cspc335, licensed under the Fair License.
+ *
+ * (C) 2015 Richard Harrah <richard.harrah.13@cnu.edu>
+ *
+ * Usage of the works is permitted provided that this instrument is retained with the works, so that any entity that uses
+ * the works is notified of this instrument.
+ *
+ * DISCLAIMER: THE WORKS ARE WITHOUT WARRANTY.
+ */
+package me.topplethenun.cpsc425;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Throughput of the {@link SparseMatrix} kernels and of the {@link CompressedSparseMatrix} they run on. The
+ * left-hand matrix has the given shape and roughly {@code density} of its values stored; {@link #add()} adds a
+ * matrix of the same shape and {@link #multiply()} multiplies by a {@code columns x size} matrix of the same density.
+ * {@link #set(InsertTarget)} inserts values at positions that hold no value, into a fresh copy of the left-hand
+ * matrix made before every invocation.
+ *
+ * @author Richard Harrah
+ */
+@State(Scope.Thread)
+public class SparseMatrixBenchmark {
+
+    /**
+     * Number of random positions read or written by one invocation of {@link #get()} or {@link #set(InsertTarget)}.
+     * The positions written are distinct, so the matrix must have at least this many positions that hold no value.
+     */
+    static final int ACCESSES = 1024;
+
+    @Param({"64", "256", "1024"})
+    int size;
+
+    @Param({"0.001", "0.01", "0.05"})
+    double density;
+
+    @Param({"SQUARE", "TALL", "WIDE"})
+    MatrixShape shape;
+
+    private SparseMatrix matrix;
+    private SparseMatrix sameShape;
+    private SparseMatrix right;
+    private CompressedSparseMatrix compressed;
+    private CompressedSparseMatrix compressedSameShape;
+    private CompressedSparseMatrix compressedRight;
+    private double[] x;
+    private double[] y;
+    private int[] accessRows;
+    private int[] accessColumns;
+    private int[] insertRows;
+    private int[] insertColumns;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(size);
+        int rows = shape.rows(size);
+        int columns = shape.columns(size);
+        compressed = randomMatrix(rows, columns, density, random);
+        compressedSameShape = randomMatrix(rows, columns, density, random);
+        compressedRight = randomMatrix(columns, size, density, random);
+        matrix = compressed.toSparseMatrix();
+        sameShape = compressedSameShape.toSparseMatrix();
+        right = compressedRight.toSparseMatrix();
+        x = new double[columns];
+        y = new double[rows];
+        for (int j = 0; j < columns; j++) {
+            x[j] = random.nextDouble();
+        }
+        accessRows = new int[ACCESSES];
+        accessColumns = new int[ACCESSES];
+        for (int a = 0; a < ACCESSES; a++) {
+            accessRows[a] = random.nextInt(rows);
+            accessColumns[a] = random.nextInt(columns);
+        }
+        boolean[] taken = new boolean[rows * columns];
+        insertRows = new int[ACCESSES];
+        insertColumns = new int[ACCESSES];
+        for (int a = 0; a < ACCESSES; a++) {
+            int row;
+            int column;
+            do {
+                row = random.nextInt(rows);
+                column = random.nextInt(columns);
+            } while (taken[row * columns + column] || compressed.get(row, column) != 0);
+            taken[row * columns + column] = true;
+            insertRows[a] = row;
+            insertColumns[a] = column;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public double get() {
+        double sum = 0;
+        for (int a = 0; a < ACCESSES; a++) {
+            sum += matrix.get(accessRows[a], accessColumns[a]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public double getCompressed() {
+        double sum = 0;
+        for (int a = 0; a < ACCESSES; a++) {
+            sum += compressed.get(accessRows[a], accessColumns[a]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public SparseMatrix set(InsertTarget target) {
+        for (int a = 0; a < ACCESSES; a++) {
+            target.matrix.set(insertRows[a], insertColumns[a], a + 1);
+        }
+        return target.matrix;
+    }
+
+    @Benchmark
+    public SparseMatrix add() {
+        return matrix.add(sameShape);
+    }
+
+    @Benchmark
+    public CompressedSparseMatrix addCompressed() {
+        return compressed.add(compressedSameShape);
+    }
+
+    @Benchmark
+    public SparseMatrix multiply() {
+        return matrix.multiply(right);
+    }
+
+    @Benchmark
+    public CompressedSparseMatrix multiplyCompressed() {
+        return compressed.multiply(compressedRight);
+    }
+
+    @Benchmark
+    public double[] multiplyVector() {
+        return compressed.multiply(x, y);
+    }
+
+    static CompressedSparseMatrix randomMatrix(int rows, int columns, double density, Random random) {
+        int entries = (int) Math.max(1, rows * (long) columns * density);
+        SparseMatrixBuilder builder = new SparseMatrixBuilder(rows, columns, entries)
+                .diagonalMode(SparseMatrix.DiagonalMode.GENERAL);
+        for (int e = 0; e < entries; e++) {
+            builder.add(random.nextInt(rows), random.nextInt(columns), random.nextDouble() * 2 - 1);
+        }
+        return builder.build();
+    }
+
+    /**
+     * The matrix {@link #set(InsertTarget)} writes into, copied from the left-hand matrix before every invocation. It
+     * is a separate state so that only that benchmark pays for the copy.
+     */
+    @State(Scope.Thread)
+    public static class InsertTarget {
+
+        SparseMatrix matrix;
+
+        @Setup(Level.Invocation)
+        public void reset(SparseMatrixBenchmark benchmark) {
+            matrix = benchmark.compressed.toSparseMatrix();
+        }
+    }
+
+}